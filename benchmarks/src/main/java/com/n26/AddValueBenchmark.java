@@ -0,0 +1,77 @@
+package com.n26;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest path of {@link N26RollingStatistics}. With {@code millisPerOp} set to 0 the clock stands still and every
+ * call lands in the current bucket, otherwise every call moves the clock forward and a rotation happens once per
+ * {@code bucketSizeInMilliseconds / millisPerOp} calls of the fastest thread.
+ *
+ *<br>
+ * Every thread moves a clock of its own, a shared one would make all threads contend on it and measure that instead.
+ * Threads which fall behind simply add to the latest bucket.
+ *
+ * @author Andrew Polyakov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddValueBenchmark {
+
+    @Param({"0", "1", "100"})
+    long millisPerOp;
+
+    /* one summary CAS and allocation per value against four primitive CASes */
+    @Param({"false", "true"})
+    boolean consistentReads;
+
+    private ThreadTime time;
+    private N26RollingStatistics statistics;
+
+    @Setup
+    public void setUp() {
+        time = new ThreadTime();
+        statistics = new N26RollingStatistics(time, 60 * 1000, 60,
+                new N26RollingStatistics.Options().consistentReads(consistentReads));
+    }
+
+    @Benchmark
+    public void addValue() {
+        if (millisPerOp != 0) {
+            time.advance(millisPerOp);
+        }
+        statistics.addValue(12.34);
+    }
+
+    /**
+     * Clock of the calling thread.
+     */
+    static final class ThreadTime implements N26RollingStatistics.Time {
+
+        private final ThreadLocal<long[]> time = ThreadLocal.withInitial(() -> new long[1]);
+
+        @Override
+        public long getCurrentTimeInMillis() {
+            return time.get()[0];
+        }
+
+        void advance(long millis) {
+            time.get()[0] += millis;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.n26;
+
+import com.n26.primitive.PrimitivesBenchmark;
+import com.n26.primitive.SummationErrorBenchmark;
+import com.n26.restful.api.binary.CodecBenchmark;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the whole suite and writes all results into a single JSON file, so that two runs on different commits can be
+ * diffed or fed into a JMH visualizer.
+ * <br>
+ * Contended benchmarks are repeated for 1, 2, 4 ... threads up to the number of available processors, writer count
+ * benchmarks for a fixed set of thread counts and the rest run single threaded.
+ * <br>
+ * Usage: {@code java -jar target/benchmarks.jar [regexp]} and {@code -Djmh.result=<file>} to override the default
+ * {@code target/jmh-result.json}.
+ *
+ * @author Andrew Polyakov
+ */
+public class BenchmarkRunner {
+
+    static final String RESULT = "target/jmh-result.json";
+
+    static final String[] CONTENDED = {
+            PrimitivesBenchmark.class.getName(),
+            AddValueBenchmark.class.getName()
+    };
+
+    static final String[] WRITER_COUNTS = {
+            EngineBenchmark.class.getName()
+    };
+
+    static final int[] WRITERS = {8, 32, 64};
+
+    static final String[] SINGLE_THREADED = {
+            GetRollingBenchmark.class.getName(),
+            BucketCircularArrayBenchmark.class.getName(),
+            SummationErrorBenchmark.class.getName(),
+            CodecBenchmark.class.getName()
+    };
+
+    public static void main(String[] args) throws RunnerException {
+        String filter = args.length > 0 ? args[0] : ".*";
+        String resultFile = System.getProperty("jmh.result", RESULT);
+        List<RunResult> results = new ArrayList<>();
+
+        for (int threads : threadCounts()) {
+            for (String benchmark : CONTENDED) {
+                results.addAll(run(benchmark, filter, threads));
+            }
+        }
+        for (int threads : WRITERS) {
+            for (String benchmark : WRITER_COUNTS) {
+                results.addAll(run(benchmark, filter, threads));
+            }
+        }
+        for (String benchmark : SINGLE_THREADED) {
+            results.addAll(run(benchmark, filter, 1));
+        }
+
+        File parent = new File(resultFile).getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, resultFile).writeOut(results);
+        System.out.println("Results written to " + resultFile);
+    }
+
+    private static List<RunResult> run(String benchmark, String filter, int threads) throws RunnerException {
+        if (!Pattern.compile(filter).matcher(benchmark).find()) {
+            return new ArrayList<>();
+        }
+        Options options = new OptionsBuilder()
+                .include(benchmark.replace(".", "\\.") + "\\..*")
+                .threads(threads)
+                .build();
+        return new ArrayList<>(new Runner(options).run());
+    }
+
+    static List<Integer> threadCounts() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        List<Integer> counts = new ArrayList<>();
+        for (int t = 1; t < cpus; t <<= 1) {
+            counts.add(t);
+        }
+        counts.add(cpus);
+        return counts;
+    }
+}
@@ -0,0 +1,52 @@
+package com.n26;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of iterating {@link N26RollingStatistics.BucketCircularArray} alone, i.e. the copy made by the iterator
+ * without touching any of the bucket primitives.
+ *
+ * @author Andrew Polyakov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BucketCircularArrayBenchmark {
+
+    @Param({"60", "600", "3600"})
+    int numberOfBuckets;
+
+    private N26RollingStatistics.BucketCircularArray buckets;
+
+    @Setup
+    public void setUp() {
+        buckets = new N26RollingStatistics.BucketCircularArray(numberOfBuckets);
+        for (int i = 0; i < numberOfBuckets; i++) {
+            buckets.addLast(new N26RollingStatistics.Bucket(i));
+        }
+    }
+
+    @Benchmark
+    public long iterate() {
+        long acc = 0;
+        for (N26RollingStatistics.Bucket b : buckets) {
+            acc += b.windowStart;
+        }
+        return acc;
+    }
+}
@@ -0,0 +1,70 @@
+package com.n26;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every {@link StatisticsEngine} through the same harness, looked up by name the way the service does. A new engine
+ * only needs to be added to {@link #engine}. {@link BenchmarkRunner} runs it with 8, 32 and 64 writer threads
+ * regardless of the number of processors, oversubscription is part of what is being measured.
+ * <br>
+ * {@code getRolling} is measured with whatever state the writers of the last iteration left behind, e.g. the rings of
+ * all of them for {@code thread-local}, which is the read cost that engine trades for contention free writes.
+ *
+ * @author Andrew Polyakov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EngineBenchmark {
+
+    static final int BATCH = 64;
+
+    @Param({"bucketed", "thread-local", "decaying"})
+    String engine;
+
+    private StatisticsEngine statistics;
+    private double[] values;
+    private long[] timestamps;
+
+    @Setup
+    public void setUp() {
+        ManualTime time = new ManualTime();
+        statistics = StatisticsEngines.create(engine, new StatisticsEngine.Settings().time(time));
+        values = new double[BATCH];
+        Arrays.fill(values, 12.34);
+        timestamps = new long[BATCH];
+    }
+
+    @Benchmark
+    public void addValue() {
+        statistics.addValue(12.34);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int addValues() {
+        return statistics.addValues(values, timestamps);
+    }
+
+    @Benchmark
+    public N26RollingStatistics.AggregatedStatistics getRolling() {
+        return statistics.getRolling();
+    }
+}
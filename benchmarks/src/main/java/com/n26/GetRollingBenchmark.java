@@ -0,0 +1,55 @@
+package com.n26;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read path of {@link N26RollingStatistics} over a full ring. The window is one hour so that every bucket count
+ * divides it equally.
+ *
+ * @author Andrew Polyakov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GetRollingBenchmark {
+
+    static final int WINDOW = 60 * 60 * 1000;
+
+    @Param({"60", "600", "3600"})
+    int numberOfBuckets;
+
+    private N26RollingStatistics statistics;
+
+    @Setup
+    public void setUp() {
+        ManualTime time = new ManualTime();
+        statistics = new N26RollingStatistics(time, WINDOW, numberOfBuckets);
+        for (int i = 0; i < numberOfBuckets; i++) {
+            statistics.addValue((double) i);
+            statistics.addValue(-1.0 * i);
+            time.advance(statistics.bucketSizeInMilliseconds);
+        }
+        // step back into the last bucket so that reads do not rotate
+        time.advance(-1);
+    }
+
+    @Benchmark
+    public N26RollingStatistics.AggregatedStatistics getRolling() {
+        return statistics.getRolling();
+    }
+}
@@ -0,0 +1,22 @@
+package com.n26;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock driven by benchmarks so that bucket rotations happen at a known rate.
+ *
+ * @author Andrew Polyakov
+ */
+class ManualTime implements N26RollingStatistics.Time {
+
+    private final AtomicLong time = new AtomicLong(0);
+
+    @Override
+    public long getCurrentTimeInMillis() {
+        return time.get();
+    }
+
+    void advance(long millis) {
+        time.addAndGet(millis);
+    }
+}
@@ -0,0 +1,83 @@
+package com.n26.primitive;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended updates of the CAS primitives. Thread count is not fixed here, {@link com.n26.BenchmarkRunner}
+ * sweeps it from 1 up to the number of available processors.
+ *
+ * @author Andrew Polyakov
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrimitivesBenchmark {
+
+    private DoubleSum sum;
+    private CompensatedDoubleSum compensatedSum;
+    private DoubleMax max;
+    private DoubleMin min;
+
+    @Setup
+    public void setUp() {
+        sum = new DoubleSum();
+        compensatedSum = new CompensatedDoubleSum();
+        max = new DoubleMax();
+        min = new DoubleMin();
+    }
+
+    @State(Scope.Thread)
+    public static class Values {
+        final double[] values = new double[1024];
+        int next;
+
+        @Setup
+        public void setUp() {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = ThreadLocalRandom.current().nextDouble(-1000.0, 1000.0);
+            }
+        }
+
+        double next() {
+            return values[next++ & (values.length - 1)];
+        }
+    }
+
+    @Benchmark
+    public void sumAdd(Values v) {
+        sum.add(v.next());
+    }
+
+    /**
+     * Price of the accuracy, compare with {@link #sumAdd}. Accuracy itself is measured by {@link SummationErrorBenchmark}.
+     */
+    @Benchmark
+    public void compensatedSumAdd(Values v) {
+        compensatedSum.add(v.next());
+    }
+
+    @Benchmark
+    public void maxUpdate(Values v) {
+        max.update(v.next());
+    }
+
+    @Benchmark
+    public void minUpdate(Values v) {
+        min.update(v.next());
+    }
+}
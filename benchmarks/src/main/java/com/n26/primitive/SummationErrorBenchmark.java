@@ -0,0 +1,106 @@
+package com.n26.primitive;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sums inputs which are known to hurt plain double summation, once with {@link DoubleSum} and once with
+ * {@link CompensatedDoubleSum}. The time of a whole pass is measured as usual, the error of either sum against the
+ * exact {@link BigDecimal} result is printed at the end of every trial.
+ *
+ * @author Andrew Polyakov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SummationErrorBenchmark {
+
+    private static final int SIZE = 100000;
+
+    /**
+     * <ul>
+     *     <li>{@code cancellation} - small values next to huge ones which later cancel out</li>
+     *     <li>{@code decimals} - 0.1 over and over, the typical amount which has no exact binary form</li>
+     *     <li>{@code magnitudes} - random signs and magnitudes from 1e-6 to 1e12</li>
+     * </ul>
+     */
+    @Param({"cancellation", "decimals", "magnitudes"})
+    public String input;
+
+    private double[] values;
+    private BigDecimal exact;
+
+    @Setup
+    public void setUp() {
+        values = new double[SIZE];
+        Random random = new Random(26);
+        for (int i = 0; i < SIZE; i++) {
+            switch (input) {
+                case "cancellation":
+                    values[i] = i % 3 == 0 ? 1e16 : i % 3 == 1 ? 1.0 : -1e16;
+                    break;
+                case "decimals":
+                    values[i] = 0.1;
+                    break;
+                case "magnitudes":
+                    values[i] = (random.nextBoolean() ? 1 : -1) * Math.pow(10, random.nextDouble() * 18 - 6);
+                    break;
+                default:
+                    throw new IllegalArgumentException(input);
+            }
+        }
+        exact = BigDecimal.ZERO;
+        for (double v : values) {
+            exact = exact.add(new BigDecimal(v));
+        }
+    }
+
+    @Benchmark
+    public double plain() {
+        DoubleSum sum = new DoubleSum();
+        for (double v : values) {
+            sum.add(v);
+        }
+        return sum.aggregate();
+    }
+
+    @Benchmark
+    public double compensated() {
+        CompensatedDoubleSum sum = new CompensatedDoubleSum();
+        for (double v : values) {
+            sum.add(v);
+        }
+        return sum.aggregate();
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.println(String.format("%n%s: exact %s, plain error %s, compensated error %s",
+                input,
+                exact.toPlainString(),
+                error(plain()),
+                error(compensated())));
+    }
+
+    private String error(double sum) {
+        return new BigDecimal(sum).subtract(exact).abs().toPlainString();
+    }
+}
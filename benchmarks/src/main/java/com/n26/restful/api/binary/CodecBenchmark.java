@@ -0,0 +1,129 @@
+package com.n26.restful.api.binary;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.n26.restful.api.dto.Amount;
+import com.n26.restful.api.dto.StatisticsDto;
+import com.n26.restful.api.dto.TransactionDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of a single transaction, of a batch of them and of the statistics response, as JSON through
+ * the Jackson mapper the service uses and through {@link BinaryCodec}. The encoded sizes are printed on setup.
+ *
+ * @author Andrew Polyakov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    static final int BATCH = 100;
+    static final TypeReference<List<TransactionDto>> TRANSACTIONS = new TypeReference<List<TransactionDto>>() {
+    };
+
+    @Param({"json", "cbor", "msgpack"})
+    String format;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+    private BinaryFormat binary;
+
+    private TransactionDto transaction;
+    private List<TransactionDto> batch;
+    private StatisticsDto statistics;
+
+    private byte[] transactionBytes;
+    private byte[] batchBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        binary = format.equals("json") ? null : BinaryFormat.valueOf(format.toUpperCase());
+        long now = System.currentTimeMillis();
+        transaction = new TransactionDto(12.3, now, "merchant-42");
+        batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(new TransactionDto(i + 0.5, now - i, i % 2 == 0 ? "merchant-" + i : null));
+        }
+        statistics = new StatisticsDto(1000L, Amount.valueOf(0.5), Amount.valueOf(99.5), Amount.valueOf(50.0),
+                Amount.valueOf(50000.0), 833.25, 28.87, 50.0, 90.0, 99.0);
+        transactionBytes = encodeTransaction().clone();
+        batchBytes = encodeBatch().clone();
+        System.out.printf("%n%s: transaction %d bytes, batch of %d %d bytes, statistics %d bytes%n", format,
+                transactionBytes.length, BATCH, batchBytes.length, encodeStatistics().length);
+    }
+
+    @Benchmark
+    public byte[] encodeTransaction() throws IOException {
+        out.reset();
+        if (binary == null) {
+            mapper.writeValue(out, transaction);
+        } else {
+            BinaryWriter writer = binary.newWriter(out);
+            BinaryCodec.writeTransaction(writer, transaction);
+            writer.flush();
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public TransactionDto decodeTransaction() throws IOException {
+        if (binary == null) {
+            return mapper.readValue(transactionBytes, TransactionDto.class);
+        }
+        return BinaryCodec.readTransaction(binary.newReader(transactionBytes));
+    }
+
+    @Benchmark
+    public byte[] encodeBatch() throws IOException {
+        out.reset();
+        if (binary == null) {
+            mapper.writeValue(out, batch);
+        } else {
+            BinaryWriter writer = binary.newWriter(out);
+            BinaryCodec.writeTransactions(writer, batch);
+            writer.flush();
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<TransactionDto> decodeBatch() throws IOException {
+        if (binary == null) {
+            return mapper.readValue(batchBytes, TRANSACTIONS);
+        }
+        return BinaryCodec.readTransactions(binary.newReader(batchBytes));
+    }
+
+    @Benchmark
+    public byte[] encodeStatistics() throws IOException {
+        out.reset();
+        if (binary == null) {
+            mapper.writeValue(out, statistics);
+        } else {
+            BinaryWriter writer = binary.newWriter(out);
+            BinaryCodec.writeStatistics(writer, statistics);
+            writer.flush();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,186 @@
+package com.n26;
+
+import com.n26.primitive.CompensatedDoubleSum;
+import com.n26.primitive.Moments;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Struct of arrays holding the totals of the sealed buckets of a {@link N26RollingStatistics} ring, one parallel
+ * primitive array per field indexed by {@code (windowStart / bucketSizeInMilliseconds) % numberOfBuckets}. Reads walk
+ * a handful of contiguous arrays instead of chasing a {@link N26RollingStatistics.Bucket} and its primitives per slot.
+ *
+ *<br>
+ * Slots which do not hold a sealed bucket of the ring carry neutral values (zero count and sum, infinite min and
+ * max), so {@link #reduce(boolean, boolean)} folds every slot unconditionally. Its main loops are counted, branch free
+ * and load nothing but contiguous array elements. C2 unrolls them but does not vectorize them, a double sum has to
+ * be added up in order; the gain is in not chasing pointers.
+ *
+ *<br>
+ * Written only by the thread rotating the ring, under its lock. Readers are kept consistent by a sequence lock, see
+ * {@link #beginRead()} and {@link #validate(long)}. Both ends of it are atomic read-modify-writes of the sequence, which
+ * keeps the plain reads of a reader ordered against the plain writes of the writer without fences.
+ *
+ * @author Andrew Polyakov
+ */
+final class BucketColumns {
+
+    private final int length;
+    private final int bucketSizeInMilliseconds;
+    private final AtomicLong sequence = new AtomicLong();
+
+    final double[] counts;
+    final double[] sums;
+    final double[] compensations;
+    final double[] mins;
+    final double[] maxes;
+    final double[] means;
+    final double[] m2s;
+    final long[] unitsSums;
+    final long[] unitsMins;
+    final long[] unitsMaxes;
+
+    BucketColumns(int numberOfBuckets, int bucketSizeInMilliseconds) {
+        this.length = numberOfBuckets;
+        this.bucketSizeInMilliseconds = bucketSizeInMilliseconds;
+        counts = new double[numberOfBuckets];
+        sums = new double[numberOfBuckets];
+        compensations = new double[numberOfBuckets];
+        mins = new double[numberOfBuckets];
+        maxes = new double[numberOfBuckets];
+        means = new double[numberOfBuckets];
+        m2s = new double[numberOfBuckets];
+        unitsSums = new long[numberOfBuckets];
+        unitsMins = new long[numberOfBuckets];
+        unitsMaxes = new long[numberOfBuckets];
+        clearAll();
+    }
+
+    int slot(long windowStart) {
+        return (int) Math.floorMod(windowStart / bucketSizeInMilliseconds, (long) length);
+    }
+
+    void beginWrite() {
+        sequence.incrementAndGet();
+    }
+
+    void endWrite() {
+        sequence.lazySet(sequence.get() + 1);
+    }
+
+    /**
+     * @return sequence to pass to {@link #validate(long)}, waits while a write is in progress
+     */
+    long beginRead() {
+        long s;
+        while (((s = sequence.get()) & 1) != 0) {
+            Thread.yield();
+        }
+        return s;
+    }
+
+    /**
+     * @return true if nothing was written since {@link #beginRead()} returned the given sequence
+     */
+    boolean validate(long s) {
+        return sequence.compareAndSet(s, s);
+    }
+
+    void put(long windowStart, N26RollingStatistics.BucketTotals t) {
+        int i = slot(windowStart);
+        if (t.count < 1) {
+            clear(i);
+            return;
+        }
+        counts[i] = t.count;
+        sums[i] = t.sum;
+        compensations[i] = t.sumCompensation;
+        mins[i] = t.min;
+        maxes[i] = t.max;
+        means[i] = t.moments.getMean();
+        m2s[i] = t.moments.getM2();
+        unitsSums[i] = t.unitsSum;
+        unitsMins[i] = t.unitsMin;
+        unitsMaxes[i] = t.unitsMax;
+    }
+
+    void clear(long windowStart) {
+        clear(slot(windowStart));
+    }
+
+    private void clear(int i) {
+        counts[i] = 0.0;
+        sums[i] = 0.0;
+        compensations[i] = 0.0;
+        mins[i] = Double.POSITIVE_INFINITY;
+        maxes[i] = Double.NEGATIVE_INFINITY;
+        means[i] = 0.0;
+        m2s[i] = 0.0;
+        unitsSums[i] = 0;
+        unitsMins[i] = Long.MAX_VALUE;
+        unitsMaxes[i] = Long.MIN_VALUE;
+    }
+
+    void clearAll() {
+        Arrays.fill(counts, 0.0);
+        Arrays.fill(sums, 0.0);
+        Arrays.fill(compensations, 0.0);
+        Arrays.fill(mins, Double.POSITIVE_INFINITY);
+        Arrays.fill(maxes, Double.NEGATIVE_INFINITY);
+        Arrays.fill(means, 0.0);
+        Arrays.fill(m2s, 0.0);
+        Arrays.fill(unitsSums, 0);
+        Arrays.fill(unitsMins, Long.MAX_VALUE);
+        Arrays.fill(unitsMaxes, Long.MIN_VALUE);
+    }
+
+    /**
+     * Folds all slots into the totals of a single virtual bucket. Must be bracketed by {@link #beginRead()} and
+     * {@link #validate(long)}.
+     *
+     * @param moments     whether to combine the moments as well, slot by slot in a loop of its own
+     * @param compensated whether to fold the sums with compensation, also in a loop of its own
+     */
+    N26RollingStatistics.BucketTotals reduce(boolean moments, boolean compensated) {
+        double count = 0.0;
+        double sum = 0.0;
+        double compensation = 0.0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        long unitsSum = 0;
+        long unitsMin = Long.MAX_VALUE;
+        long unitsMax = Long.MIN_VALUE;
+        for (int i = 0; i < length; i++) {
+            count += counts[i];
+            sum += sums[i];
+        }
+        if (compensated) {
+            CompensatedDoubleSum.Partial partial = CompensatedDoubleSum.Partial.ZERO;
+            for (int i = 0; i < length; i++) {
+                partial = partial.combine(new CompensatedDoubleSum.Partial(sums[i], compensations[i]));
+            }
+            sum = partial.getSum();
+            compensation = partial.getCompensation();
+        }
+        for (int i = 0; i < length; i++) {
+            min = Math.min(min, mins[i]);
+            max = Math.max(max, maxes[i]);
+        }
+        for (int i = 0; i < length; i++) {
+            unitsSum += unitsSums[i];
+            unitsMin = Math.min(unitsMin, unitsMins[i]);
+            unitsMax = Math.max(unitsMax, unitsMaxes[i]);
+        }
+        Moments m = Moments.EMPTY;
+        if (moments) {
+            for (int i = 0; i < length; i++) {
+                if (counts[i] > 0) {
+                    m = m.combine(new Moments((long) counts[i], means[i], m2s[i]));
+                }
+            }
+        }
+        return new N26RollingStatistics.BucketTotals((long) count, sum, compensation, min, max, m,
+                unitsSum, unitsMin, unitsMax);
+    }
+}
@@ -0,0 +1,241 @@
+package com.n26;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Exponentially decayed statistics in O(1) memory, an alternative to the hard cutoff of {@link N26RollingStatistics}
+ * for smooth alerting. Uses forward decay: a value at time {@code t} gets the weight {@code exp((t - L) / lifetime)}
+ * relative to a landmark {@code L}, which never changes afterwards, and a query at time {@code T} divides by
+ * {@code exp((T - L) / lifetime)}. Ingest is therefore a plain striped add of the weighted value and of the weight,
+ * no bucket ever rotates and nothing allocates. The weight of a timestamp is computed once per thread and reused for
+ * the values which follow with the same one, which is most of them.
+ *
+ *<br>
+ * The accumulators are the JDK's {@link DoubleAdder} and {@link DoubleAccumulator}. The striped primitives of this
+ * project take boxed values and {@link com.n26.primitive.DoubleSummary} allocates a summary per value, either would
+ * cost the allocation this engine exists to avoid. The price is that weight, weighted sum, min and max are updated one
+ * after the other, so a read racing with a write may see a value in some of them only, the same as the bucketed
+ * engine without consistent reads.
+ *
+ *<br>
+ * Weights grow with time, so the landmark is moved forward every {@link #RENORMALIZE_LIFETIMES} lifetimes: a fresh
+ * set of accumulators is swapped in and the old one is scaled down onto it. Writers which still hold the old set keep
+ * adding to it, it is only folded into the new set at the next renormalization, long after they are gone.
+ *
+ *<br>
+ * {@link #getRolling()} reports the decayed count (rounded), the decayed sum and the weighted mean. Min and max can
+ * not be decayed in constant memory, they cover the values of the last one to two renormalization periods.
+ *
+ * @author Andrew Polyakov
+ */
+public class DecayingStatistics implements StatisticsEngine {
+
+    /* e^50 is far from overflowing and still leaves plenty of precision for new values */
+    static final int RENORMALIZE_LIFETIMES = 50;
+    /* values this many lifetimes old weigh less than 1e-4 */
+    static final int HORIZON_LIFETIMES = 10;
+
+    final N26RollingStatistics.Time time;
+    final long meanLifetimeInMilliseconds;
+
+    private final AtomicReference<Accumulators> current;
+    private final AtomicBoolean renormalizing = new AtomicBoolean();
+    private final ThreadLocal<Weight> weights = ThreadLocal.withInitial(Weight::new);
+
+    public DecayingStatistics(long meanLifetimeInMilliseconds) {
+        this(N26RollingStatistics.ACTUAL_TIME, meanLifetimeInMilliseconds);
+    }
+
+    /* package for testing */ DecayingStatistics(N26RollingStatistics.Time time, long meanLifetimeInMilliseconds) {
+        if (meanLifetimeInMilliseconds <= 0) {
+            throw new IllegalArgumentException("The meanLifetimeInMilliseconds must be positive");
+        }
+        this.time = time;
+        this.meanLifetimeInMilliseconds = meanLifetimeInMilliseconds;
+        this.current = new AtomicReference<>(new Accumulators(time.getCurrentTimeInMillis(), null));
+    }
+
+    /**
+     * Future stamps are taken as now, their weight would grow without bound and swamp everything else for good.
+     *
+     * @return false if the value is so old that its weight is negligible
+     */
+    @Override
+    public boolean addValue(Double value, Long timestamp) {
+        long currentTime = time.getCurrentTimeInMillis();
+        if (timestamp <= currentTime - HORIZON_LIFETIMES * meanLifetimeInMilliseconds) {
+            return false;
+        }
+        add(value, timestamp, currentTime);
+        return true;
+    }
+
+    @Override
+    public void addValue(Double value) {
+        long currentTime = time.getCurrentTimeInMillis();
+        add(value, currentTime, currentTime);
+    }
+
+    /**
+     * Reads the clock once per batch.
+     */
+    @Override
+    public int addValues(double[] values, long[] timestamps) {
+        StatisticsEngine.checkBatch(values, timestamps);
+        long currentTime = time.getCurrentTimeInMillis();
+        long horizon = currentTime - HORIZON_LIFETIMES * meanLifetimeInMilliseconds;
+        int added = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (timestamps[i] > horizon) {
+                add(values[i], timestamps[i], currentTime);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private void add(double value, long timestamp, long currentTime) {
+        timestamp = Math.min(timestamp, currentTime);
+        Accumulators a = current.get();
+        if (currentTime - a.landmark > RENORMALIZE_LIFETIMES * meanLifetimeInMilliseconds) {
+            a = renormalize(currentTime);
+        }
+        double weight = weights.get().of(timestamp, a.landmark, meanLifetimeInMilliseconds);
+        a.weightedSum.add(value * weight);
+        a.weight.add(weight);
+        a.min.accumulate(value);
+        a.max.accumulate(value);
+    }
+
+    /**
+     * Same query contract as {@link N26RollingStatistics#getRolling()}.
+     *
+     * @return decayed statistics as of now
+     */
+    @Override
+    public N26RollingStatistics.AggregatedStatistics getRolling() {
+        long currentTime = time.getCurrentTimeInMillis();
+        Accumulators a = current.get();
+        if (currentTime - a.landmark > RENORMALIZE_LIFETIMES * meanLifetimeInMilliseconds) {
+            a = renormalize(currentTime);
+        }
+        double weight = a.weight.sum();
+        double weightedSum = a.weightedSum.sum();
+        double min = a.min.get();
+        double max = a.max.get();
+        Accumulators retired = a.retired;
+        if (retired != null) {
+            // late writers of the previous set, see class comment
+            double factor = Math.exp((double) (retired.landmark - a.landmark) / meanLifetimeInMilliseconds);
+            weight += retired.weight.sum() * factor;
+            weightedSum += retired.weightedSum.sum() * factor;
+            min = Math.min(min, retired.min.get());
+            max = Math.max(max, retired.max.get());
+        }
+        if (weight <= 0.0) {
+            return N26RollingStatistics.EMPTY;
+        }
+        double decay = Math.exp((double) (a.landmark - currentTime) / meanLifetimeInMilliseconds);
+        double count = weight * decay;
+        double sum = weightedSum * decay;
+        if (min > max) {
+            // only values folded in from sets retired long ago, no extremes to tell
+            min = 0.0;
+            max = 0.0;
+        }
+        return new N26RollingStatistics.AggregatedStatistics(Math.round(count), sum, min, max)
+                .withAvg(weightedSum / weight);
+    }
+
+    /**
+     * Forgets everything. Late writers may still land a value in the set which is being replaced.
+     */
+    @Override
+    public void reset() {
+        current.set(new Accumulators(time.getCurrentTimeInMillis(), null));
+    }
+
+    /**
+     * Moves the landmark to now. Only one thread does the work, the others carry on with whatever set is current.
+     */
+    private Accumulators renormalize(long currentTime) {
+        if (!renormalizing.compareAndSet(false, true)) {
+            return current.get();
+        }
+        try {
+            Accumulators old = current.get();
+            if (currentTime - old.landmark <= RENORMALIZE_LIFETIMES * meanLifetimeInMilliseconds) {
+                return old; // someone else was faster
+            }
+            Accumulators next = new Accumulators(currentTime, old);
+            Accumulators retired = old.retired;
+            if (retired != null) {
+                // quiescent by now, fold it in for good
+                double factor = Math.exp((double) (retired.landmark - currentTime) / meanLifetimeInMilliseconds);
+                next.weight.add(retired.weight.sum() * factor);
+                next.weightedSum.add(retired.weightedSum.sum() * factor);
+                old.retired = null;
+            }
+            current.set(next);
+            return next;
+        } finally {
+            renormalizing.set(false);
+        }
+    }
+
+    /**
+     * The {@code decaying} engine.
+     */
+    public static class Provider implements StatisticsEngineProvider {
+
+        @Override
+        public String getName() {
+            return "decaying";
+        }
+
+        @Override
+        public StatisticsEngine create(StatisticsEngine.Settings settings) {
+            return new DecayingStatistics(settings.time, settings.meanLifetimeInMilliseconds);
+        }
+    }
+
+    /**
+     * Striped accumulators relative to one landmark.
+     */
+    private static final class Accumulators {
+        final long landmark;
+        final DoubleAdder weightedSum = new DoubleAdder();
+        final DoubleAdder weight = new DoubleAdder();
+        final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+        /* the set this one replaced, folded in and dropped at the next renormalization */
+        volatile Accumulators retired;
+
+        Accumulators(long landmark, Accumulators retired) {
+            this.landmark = landmark;
+            this.retired = retired;
+        }
+    }
+
+    /**
+     * Weight of the last timestamp a thread added a value for, one per thread so that it is neither shared nor
+     * allocated per value.
+     */
+    private static final class Weight {
+        long timestamp;
+        long landmark = Long.MIN_VALUE;
+        double value;
+
+        double of(long timestamp, long landmark, long meanLifetimeInMilliseconds) {
+            if (timestamp != this.timestamp || landmark != this.landmark) {
+                this.timestamp = timestamp;
+                this.landmark = landmark;
+                value = Math.exp((double) (timestamp - landmark) / meanLifetimeInMilliseconds);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.n26;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.StrictMath.max;
+import static java.lang.StrictMath.min;
+
+/**
+ * Rolling statistics per key (merchant, currency, account...). A full {@link N26RollingStatistics} per key is far too
+ * heavy for millions of keys, so every key gets a compact ring of plain arrays instead, created on first use.
+ *
+ *<br>
+ * Buckets of a ring are aligned to {@code time / bucketSizeInMilliseconds} so that rings never need to rotate
+ * explicitly, a slot is simply recycled once its epoch falls out of the window. Updates of a single key are guarded by
+ * the monitor of its ring, different keys never contend.
+ *
+ *<br>
+ * Keys idle for longer than the window are evicted by {@link #evictIdleIfDue()}, which the owner calls from a
+ * background thread so that request threads never scan the registry. The number of live keys is capped by a memory
+ * budget, values for new keys beyond it are not tracked per key until the next eviction makes room, see
+ * {@link #getRejectedKeys()}.
+ *
+ * @author Andrew Polyakov
+ */
+public class KeyedRollingStatistics {
+
+    final N26RollingStatistics.Time time;
+    final int timeInMilliseconds;
+    final int numberOfBuckets;
+    final int bucketSizeInMilliseconds;
+    final int maxKeys;
+
+    private final long origin;
+    private final ConcurrentHashMap<String, KeyRing> rings = new ConcurrentHashMap<>();
+    private final AtomicInteger keys = new AtomicInteger();
+    private final AtomicLong rejectedKeys = new AtomicLong();
+    private volatile long lastSweep;
+
+    public KeyedRollingStatistics(int timeInMilliseconds, int numberOfBuckets, long memoryBudgetInBytes) {
+        this(N26RollingStatistics.ACTUAL_TIME, timeInMilliseconds, numberOfBuckets, memoryBudgetInBytes);
+    }
+
+    /* package for testing */ KeyedRollingStatistics(N26RollingStatistics.Time time, int timeInMilliseconds, int numberOfBuckets, long memoryBudgetInBytes) {
+        if (timeInMilliseconds % numberOfBuckets != 0) {
+            throw new IllegalArgumentException("The timeInMilliseconds must divide equally into numberOfBuckets. For example 1000/10 is ok, 1000/11 is not.");
+        }
+        this.time = time;
+        this.timeInMilliseconds = timeInMilliseconds;
+        this.numberOfBuckets = numberOfBuckets;
+        this.bucketSizeInMilliseconds = timeInMilliseconds / numberOfBuckets;
+        this.maxKeys = (int) Math.min(Integer.MAX_VALUE, memoryBudgetInBytes / bytesPerKey(numberOfBuckets));
+        this.origin = time.getCurrentTimeInMillis() / bucketSizeInMilliseconds;
+        this.lastSweep = time.getCurrentTimeInMillis();
+    }
+
+    /**
+     * Rough heap footprint of a single key: the ring arrays, their headers, the ring itself and the map entry.
+     */
+    static long bytesPerKey(int numberOfBuckets) {
+        return numberOfBuckets * KeyRing.BYTES_PER_SLOT + 5 * 16 + 48 + 64;
+    }
+
+    /**
+     * Same contract as {@link N26RollingStatistics#addValue(Double, Long)}, except for keys beyond the memory budget.
+     *
+     * @return false if the transaction is older than the window or its key is new and the budget is exhausted, see
+     * {@link #getRejectedKeys()}
+     */
+    public boolean addValue(String key, Double value, Long timestamp) {
+        long currentTime = time.getCurrentTimeInMillis();
+        if (!new Timestamp(timestamp).after(new Timestamp(currentTime - timeInMilliseconds))) {
+            return false;
+        }
+        int epoch = epoch(currentTime);
+        while (true) {
+            KeyRing ring = rings.get(key);
+            if (ring == null) {
+                ring = newRing(key);
+                if (ring == null) {
+                    rejectedKeys.incrementAndGet();
+                    return false;
+                }
+            }
+            if (ring.add(epoch, value, currentTime)) {
+                return true;
+            }
+            // lost a race with eviction, the ring is gone from the map by now so look it up again
+        }
+    }
+
+    /**
+     * Aggregates the window of a single key. Runs in O(numberOfBuckets).
+     *
+     * @return statistics of the key or {@link N26RollingStatistics#EMPTY} for unknown keys
+     */
+    public N26RollingStatistics.AggregatedStatistics getRolling(String key) {
+        KeyRing ring = rings.get(key);
+        if (ring == null) {
+            return N26RollingStatistics.EMPTY;
+        }
+        return ring.aggregate(epoch(time.getCurrentTimeInMillis()));
+    }
+
+    /**
+     * Drops all keys which have not seen a value for longer than the window.
+     *
+     * @return number of evicted keys
+     */
+    public int evictIdle() {
+        long currentTime = time.getCurrentTimeInMillis();
+        lastSweep = currentTime;
+        int evicted = 0;
+        for (Map.Entry<String, KeyRing> entry : rings.entrySet()) {
+            if (entry.getValue().evictIfIdle(currentTime - timeInMilliseconds) && rings.remove(entry.getKey(), entry.getValue())) {
+                keys.decrementAndGet();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Runs {@link #evictIdle()} unless it ran within the last bucket, cheap enough to be called on every tick of a
+     * background worker. Keys go idle a bucket at a time, so sweeping more often would not free up more room.
+     *
+     * @return number of evicted keys or -1 if the sweep was not due
+     */
+    public int evictIdleIfDue() {
+        if (time.getCurrentTimeInMillis() - lastSweep < bucketSizeInMilliseconds) {
+            return -1;
+        }
+        return evictIdle();
+    }
+
+    public int size() {
+        return keys.get();
+    }
+
+    /**
+     * @return number of values which were not tracked per key because the memory budget was exhausted
+     */
+    public long getRejectedKeys() {
+        return rejectedKeys.get();
+    }
+
+    private KeyRing newRing(String key) {
+        if (keys.incrementAndGet() > maxKeys) {
+            keys.decrementAndGet();
+            return null;
+        }
+        KeyRing ring = new KeyRing(numberOfBuckets);
+        KeyRing existing = rings.putIfAbsent(key, ring);
+        if (existing != null) {
+            keys.decrementAndGet();
+            return existing;
+        }
+        return ring;
+    }
+
+    private int epoch(long currentTime) {
+        // relative to the creation of the registry so that int is enough
+        return (int) (currentTime / bucketSizeInMilliseconds - origin);
+    }
+
+    /**
+     * Compact single key ring. Slot {@code epoch % numberOfBuckets} holds the bucket of that epoch, a slot holding an
+     * older epoch is stale and gets overwritten on the next write.
+     */
+    static final class KeyRing {
+        static final int BYTES_PER_SLOT = 4 + 4 + 8 + 8 + 8;
+
+        private final int[] epochs;
+        private final int[] counts;
+        private final double[] sums;
+        private final double[] mins;
+        private final double[] maxes;
+        private long lastUpdate;
+        private boolean evicted;
+
+        KeyRing(int numberOfBuckets) {
+            epochs = new int[numberOfBuckets];
+            counts = new int[numberOfBuckets];
+            sums = new double[numberOfBuckets];
+            mins = new double[numberOfBuckets];
+            maxes = new double[numberOfBuckets];
+            Arrays.fill(epochs, Integer.MIN_VALUE);
+        }
+
+        synchronized boolean add(int epoch, double value, long currentTime) {
+            if (evicted) {
+                return false;
+            }
+            int slot = Math.floorMod(epoch, epochs.length);
+            if (epochs[slot] != epoch) {
+                epochs[slot] = epoch;
+                counts[slot] = 0;
+                sums[slot] = 0.0;
+                mins[slot] = value;
+                maxes[slot] = value;
+            }
+            counts[slot]++;
+            sums[slot] += value;
+            mins[slot] = min(mins[slot], value);
+            maxes[slot] = max(maxes[slot], value);
+            lastUpdate = currentTime;
+            return true;
+        }
+
+        synchronized N26RollingStatistics.AggregatedStatistics aggregate(int epoch) {
+            long size = 0;
+            double sum = 0.0;
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (int i = 0; i < epochs.length; i++) {
+                if (epochs[i] > epoch - epochs.length && epochs[i] <= epoch && counts[i] > 0) {
+                    size += counts[i];
+                    sum += sums[i];
+                    min = min(min, mins[i]);
+                    max = max(max, maxes[i]);
+                }
+            }
+            if (size == 0) {
+                return N26RollingStatistics.EMPTY;
+            }
+            return new N26RollingStatistics.AggregatedStatistics(size, sum, min, max);
+        }
+
+        synchronized boolean evictIfIdle(long idleBefore) {
+            if (lastUpdate < idleBefore) {
+                evicted = true;
+            }
+            return evicted;
+        }
+    }
+}
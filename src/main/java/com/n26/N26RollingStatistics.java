@@ -18,14 +18,36 @@ package com.n26;
 import com.n26.primitive.DoubleMax;
 import com.n26.primitive.DoubleMin;
 import com.n26.primitive.DoubleSum;
+import com.n26.primitive.DoubleSummary;
+import com.n26.primitive.DoubleVariance;
+import com.n26.primitive.Moments;
+import com.n26.primitive.CompensatedDoubleSum;
+import com.n26.primitive.Summary;
+import com.n26.history.HistoryStore;
+import com.n26.jfr.BucketRotationEvent;
+import com.n26.jfr.ExpiredTransactionEvent;
+import com.n26.jfr.FlightEvents;
+import com.n26.jfr.LockMissEvent;
+import com.n26.jfr.ResetEvent;
+import com.n26.jfr.SlowRollingEvent;
+import com.n26.money.FixedPoint;
+import com.n26.sketch.BloomFilter;
+import com.n26.sketch.HeavyHitter;
+import com.n26.sketch.LogLinearHistogram;
+import com.n26.sketch.SpaceSaving;
+import com.n26.sketch.StripedSpaceSaving;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static java.lang.StrictMath.max;
@@ -41,23 +63,43 @@ import static java.lang.StrictMath.min;
  * @author Andrew Polyakov
  *
  */
-public class N26RollingStatistics {
+public class N26RollingStatistics implements StatisticsEngine {
 
-    private static final N26RollingStatistics.Time ACTUAL_TIME = new N26RollingStatistics.ActualTime();
+    static final N26RollingStatistics.Time ACTUAL_TIME = new N26RollingStatistics.ActualTime();
     final N26RollingStatistics.Time time;
     final int timeInMilliseconds;
     final int numberOfBuckets;
     final int bucketSizeInMilliseconds;
+    final N26RollingStatistics.Options options;
 
     final N26RollingStatistics.BucketCircularArray buckets;
 
+    /* the tail and the bucket right behind it, all older ones are sealed into the columns */
+    static final int LIVE_BUCKETS = 2;
+
+    final BucketColumns columns;
+
+    private final List<SealedBucketListener> listeners = new CopyOnWriteArrayList<>();
+    private final TumblingWindows tumbling;
+    private final HistoryStore history;
+    private final RateMeter rates;
+
 
     public N26RollingStatistics(int timeInMilliseconds, int numberOfBuckets) {
         this(ACTUAL_TIME, timeInMilliseconds, numberOfBuckets);
     }
 
+    public N26RollingStatistics(int timeInMilliseconds, int numberOfBuckets, N26RollingStatistics.Options options) {
+        this(ACTUAL_TIME, timeInMilliseconds, numberOfBuckets, options);
+    }
+
     /* package for testing */ N26RollingStatistics(N26RollingStatistics.Time time, int timeInMilliseconds, int numberOfBuckets) {
+        this(time, timeInMilliseconds, numberOfBuckets, new N26RollingStatistics.Options());
+    }
+
+    /* package for testing */ N26RollingStatistics(N26RollingStatistics.Time time, int timeInMilliseconds, int numberOfBuckets, N26RollingStatistics.Options options) {
         this.time = time;
+        this.options = options;
         this.timeInMilliseconds = timeInMilliseconds;
         this.numberOfBuckets = numberOfBuckets;
 
@@ -67,32 +109,267 @@ public class N26RollingStatistics {
         this.bucketSizeInMilliseconds = timeInMilliseconds / numberOfBuckets;
 
         buckets = new N26RollingStatistics.BucketCircularArray(numberOfBuckets);
+        columns = new BucketColumns(numberOfBuckets, bucketSizeInMilliseconds);
+        if (options.tumblingWindows > 0) {
+            tumbling = new TumblingWindows(options.tumblingWindows);
+            addSealedBucketListener(tumbling);
+        } else {
+            tumbling = null;
+        }
+        if (options.historyMemoryBudget > 0) {
+            history = new HistoryStore(options.historyMemoryBudget);
+            addSealedBucketListener(history);
+        } else {
+            history = null;
+        }
+        if (options.rates) {
+            rates = new RateMeter();
+            addSealedBucketListener(rates);
+        } else {
+            rates = null;
+        }
     }
 
+    @Override
     public boolean addValue(Double value, Long timestamp) {
+        return addValue(value, timestamp, null);
+    }
+
+    /**
+     * Same as {@link #addValue(Double, Long)} but also accounts the value to the given key for {@link #getTopKeys(int)}.
+     * A null key is allowed and simply not tracked.
+     */
+    @Override
+    public boolean addValue(Double value, Long timestamp, String key) {
         long windowToCapture = time.getCurrentTimeInMillis() - timeInMilliseconds;
 
         if (new Timestamp(timestamp).after(new Timestamp(windowToCapture))) {
-            addValue(value);
+            record(value, key);
             return true;
         } else {
+            expired(timestamp, windowToCapture);
             return false;
         }
     }
 
+    @Override
     public void addValue(Double value) {
+        record(value, null);
+    }
+
+    /**
+     * Reads the clock once per batch and compares raw timestamps instead of allocating a pair of {@link Timestamp}s
+     * per value.
+     */
+    @Override
+    public int addValues(double[] values, long[] timestamps) {
+        StatisticsEngine.checkBatch(values, timestamps);
+        long windowToCapture = time.getCurrentTimeInMillis() - timeInMilliseconds;
+        int added = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (timestamps[i] > windowToCapture) {
+                record(values[i], null);
+                added++;
+            } else {
+                expired(timestamps[i], windowToCapture);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Money mode ingest, see {@link Options#moneyScale(int)}. Sum, min and max are kept as exact long minor units in
+     * striped {@link LongAdder}/{@link LongAccumulator} cells, which is both cheaper than the boxed double CAS and
+     * free of rounding drift. Percentiles, variance and top keys are still approximations on doubles.
+     *
+     * @param units     amount in minor units, e.g. cents
+     * @param timestamp transaction time
+     * @param key       optional key for {@link #getTopKeys(int)}
+     * @return false if the transaction is older than the window
+     */
+    public boolean addMinorUnits(long units, Long timestamp, String key) {
+        if (!isMoneyMode()) {
+            throw new IllegalStateException("Money mode is off, use addValue instead");
+        }
+        long windowToCapture = time.getCurrentTimeInMillis() - timeInMilliseconds;
+
+        if (new Timestamp(timestamp).after(new Timestamp(windowToCapture))) {
+            recordUnits(units, key);
+            return true;
+        } else {
+            expired(timestamp, windowToCapture);
+            return false;
+        }
+    }
+
+    /**
+     * Windowed de-duplication of transaction ids, see {@link Options#dedup(int, double)}. The id is looked up in the
+     * filters of all buckets of the window and put into the current one if it is new, lock free either way. Filters
+     * expire with their bucket, an id is forgotten once the bucket it was put in rotates out.
+     *
+     *<br>
+     * Bloom filters have no false negatives but some false positives: a new id is reported as a duplicate with the
+     * configured probability, and two deliveries of the same id racing each other may both pass.
+     *
+     *<br>
+     * Marks the id right away, use {@link #seen(String)} and {@link #markSeen(String)} instead to only remember ids of
+     * transactions which were actually accounted.
+     *
+     * @return false if the id was probably seen within the window already, always true if de-duplication is off
+     */
+    public boolean firstSeen(String id) {
+        if (seen(id)) {
+            return false;
+        }
+        markSeen(id);
+        return true;
+    }
+
+    /**
+     * Looks the id up in the filters of all buckets of the window, see {@link #firstSeen(String)}.
+     *
+     * @return true if the id was probably marked within the window already, always false if de-duplication is off
+     */
+    public boolean seen(String id) {
+        N26RollingStatistics.Bucket current = getCurrentBucket();
+        if (current == null || current.ids == null) {
+            return false;
+        }
+        long hash = BloomFilter.hash(id);
+        for (int i = 0; i < numberOfBuckets; i++) {
+            N26RollingStatistics.Bucket b = buckets.peekBeforeLast(i);
+            if (b == null) {
+                break;
+            }
+            if (b.ids != null && b.ids.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Puts the id into the filter of the current bucket, a no-op if de-duplication is off.
+     */
+    public void markSeen(String id) {
+        N26RollingStatistics.Bucket current = getCurrentBucket();
+        if (current != null && current.ids != null) {
+            current.ids.put(BloomFilter.hash(id));
+        }
+    }
+
+    private void expired(long timestamp, long windowToCapture) {
+        if (FlightEvents.EXPIRED.isEnabled()) {
+            ExpiredTransactionEvent event = new ExpiredTransactionEvent();
+            event.transactionTime = timestamp;
+            event.age = windowToCapture + timeInMilliseconds - timestamp;
+            event.commit();
+        }
+    }
+
+    public boolean isMoneyMode() {
+        return options.moneyScale >= 0;
+    }
+
+    /**
+     * @return decimal places of a minor unit in money mode, -1 otherwise
+     */
+    public int getMoneyScale() {
+        return options.moneyScale;
+    }
+
+    private void record(Double value, String key) {
+        if (isMoneyMode()) {
+            // double callers in money mode, convert once at the door
+            recordUnits(Math.round(value * Math.pow(10, options.moneyScale)), key);
+            return;
+        }
         Bucket bucket = getCurrentBucket();
+        if (bucket.summary != null) {
+            // one CAS for count, sum, min, max and moments, see Options#consistentReads
+            bucket.summary.add(value);
+            recordSketches(bucket, value, key);
+            return;
+        }
         bucket.max.update(value);
         bucket.min.update(value);
-        bucket.sum.add(value);
+        if (bucket.compensatedSum != null) {
+            bucket.compensatedSum.add(value);
+        } else {
+            bucket.sum.add(value);
+        }
         bucket.count.add(1.0);
+        recordDerived(bucket, value, key);
+    }
+
+    private void recordUnits(long units, String key) {
+        Bucket bucket = getCurrentBucket();
+        bucket.units.add(units);
+        bucket.unitsMin.accumulate(units);
+        bucket.unitsMax.accumulate(units);
+        bucket.count.add(1.0);
+        recordDerived(bucket, FixedPoint.toDouble(units, options.moneyScale), key);
+    }
+
+    /**
+     * Percentiles, variance and top keys, shared by the double and the money path.
+     */
+    private void recordDerived(Bucket bucket, double value, String key) {
+        if (bucket.moments != null) {
+            bucket.moments.add(value);
+        }
+        recordSketches(bucket, value, key);
+    }
+
+    private void recordSketches(Bucket bucket, double value, String key) {
+        if (bucket.histogram != null) {
+            bucket.histogram.record(value);
+        }
+        if (key != null && bucket.topByCount != null) {
+            bucket.topByCount.offer(key, 1.0);
+            if (value > 0) {
+                bucket.topBySum.offer(key, value);
+            }
+        }
     }
 
     /**
      * Force a reset of all rolling counters (clear all buckets) so that statistics start being gathered from scratch.
      */
+    @Override
     public void reset() {
-        buckets.clear();
+        reset(false);
+    }
+
+    private void reset(boolean idle) {
+        ResetEvent event = null;
+        if (FlightEvents.RESET.isEnabled()) {
+            event = new ResetEvent();
+            event.begin();
+        }
+        int dropped;
+        newBucketLock.lock();
+        try {
+            columns.beginWrite();
+            try {
+                dropped = buckets.size();
+                columns.clearAll();
+                buckets.clear();
+            } finally {
+                columns.endWrite();
+            }
+        } finally {
+            newBucketLock.unlock();
+        }
+        if (tumbling != null) {
+            // the next bucket starts now, windows which ended meanwhile get nothing more
+            tumbling.closeEnded(time.getCurrentTimeInMillis());
+        }
+        if (event != null) {
+            event.buckets = dropped;
+            event.idle = idle;
+            event.commit();
+        }
     }
 
     public static final AggregatedStatistics EMPTY = new AggregatedStatistics(0, 0, 0, 0);
@@ -103,11 +380,30 @@ public class N26RollingStatistics {
      * Each bucket represents a time frame.
      *
      *<br>
-     * Please note when under contention the numbers will lag. Eventually things will align with reality.
+     * Please note when under contention the numbers will lag. Eventually things will align with reality. By default
+     * count, sum, min and max of a live bucket are read one after the other, so a value may show up in some of them
+     * only, see {@link Options#consistentReads(boolean)} to rule that out.
      *
      * @return POJO with statistics for current window
      */
+    @Override
     public AggregatedStatistics getRolling() {
+        if (!FlightEvents.SLOW_ROLLING.isEnabled()) {
+            return rolling();
+        }
+        SlowRollingEvent event = new SlowRollingEvent();
+        event.begin();
+        AggregatedStatistics result = rolling();
+        event.end();
+        if (event.shouldCommit()) {
+            event.count = result.getSize();
+            event.buckets = numberOfBuckets;
+            event.commit();
+        }
+        return result;
+    }
+
+    private AggregatedStatistics rolling() {
         N26RollingStatistics.Bucket lastBucket = getCurrentBucket();
         if (lastBucket == null)
             return EMPTY;
@@ -115,28 +411,243 @@ public class N26RollingStatistics {
         Double min = null;
         Double max = null;
         long size = 0;
-        for (N26RollingStatistics.Bucket b : buckets) {
-            double sizeOfThisBucket = b.count.aggregate();
-            if (sizeOfThisBucket < 1) {
+        long[] histogram = options.percentiles ? LogLinearHistogram.newAccumulator() : null;
+        Moments moments = Moments.EMPTY;
+        CompensatedDoubleSum.Partial compensated = CompensatedDoubleSum.Partial.ZERO;
+        boolean money = isMoneyMode();
+        long unitsSum = 0;
+        long unitsMin = Long.MAX_VALUE;
+        long unitsMax = Long.MIN_VALUE;
+        if (histogram != null) {
+            for (N26RollingStatistics.Bucket b : buckets) {
+                b.histogram.addTo(histogram);
+            }
+        }
+        for (N26RollingStatistics.BucketTotals t : totals()) {
+            if (t == null || t.count < 1) {
                 continue;// Empty one, skip it
             }
-            size += sizeOfThisBucket;
-            sum += b.sum.aggregate();
+            size += t.count;
+            moments = moments.combine(t.moments);
+            if (money) {
+                unitsSum += t.unitsSum;
+                unitsMin = Math.min(unitsMin, t.unitsMin);
+                unitsMax = Math.max(unitsMax, t.unitsMax);
+                continue;
+            }
+            if (options.compensatedSum) {
+                compensated = compensated.combine(new CompensatedDoubleSum.Partial(t.sum, t.sumCompensation));
+            } else {
+                sum += t.sum;
+            }
             if (max == null) {
-                max = b.max.aggregate();
+                max = t.max;
             } else {
-                max = max(max, b.max.aggregate());
+                max = max(max, t.max);
             }
             if (min == null) {
-                min = b.min.aggregate();
+                min = t.min;
             } else {
-                min = min(min, b.min.aggregate());
+                min = min(min, t.min);
             }
         }
         if (size == 0) {
             return EMPTY;
         }
-        return new AggregatedStatistics(size, sum, min, max);
+        if (options.compensatedSum) {
+            sum = compensated.value();
+        }
+        if (money) {
+            int scale = options.moneyScale;
+            sum = FixedPoint.toDouble(unitsSum, scale);
+            min = FixedPoint.toDouble(unitsMin, scale);
+            max = FixedPoint.toDouble(unitsMax, scale);
+        }
+        AggregatedStatistics result;
+        if (histogram == null) {
+            result = new AggregatedStatistics(size, sum, min, max, moments.variance(), 0.0, 0.0, 0.0);
+        } else {
+            // bins are a few percent wide, do not let that leak outside of the actual range
+            result = new AggregatedStatistics(size, sum, min, max, moments.variance(),
+                    clamp(LogLinearHistogram.valueAt(histogram, 0.5), min, max),
+                    clamp(LogLinearHistogram.valueAt(histogram, 0.9), min, max),
+                    clamp(LogLinearHistogram.valueAt(histogram, 0.99), min, max));
+        }
+        return money ? result.withMinorUnits(options.moneyScale, unitsSum, unitsMin, unitsMax) : result;
+    }
+
+    /**
+     * Totals of the window: all sealed buckets folded into one from {@link BucketColumns} and the live buckets at the
+     * tail, read consistently with each other so that a bucket being sealed is counted exactly once.
+     */
+    private N26RollingStatistics.BucketTotals[] totals() {
+        N26RollingStatistics.BucketTotals[] totals = new N26RollingStatistics.BucketTotals[LIVE_BUCKETS + 1];
+        while (true) {
+            long s = columns.beginRead();
+            totals[0] = columns.reduce(options.variance, options.compensatedSum);
+            for (int i = 0; i < LIVE_BUCKETS; i++) {
+                N26RollingStatistics.Bucket b = buckets.peekBeforeLast(i);
+                totals[i + 1] = b == null || b.isSealed() ? null : b.totals();
+            }
+            if (columns.validate(s)) {
+                return totals;
+            }
+        }
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return max(min, min(max, value));
+    }
+
+    /**
+     * Heaviest keys over the window, merged from the per bucket summaries. This is kept apart from
+     * {@link #getRolling()} because merging summaries is far more expensive than adding up four numbers per bucket.
+     *
+     * @param limit maximum number of keys per ranking
+     * @return keys ranked by sum and by count, both empty unless {@link Options#topKeysCapacity(int)} is set
+     */
+    public TopKeys getTopKeys(int limit) {
+        getCurrentBucket(); // roll the window forward first
+        List<SpaceSaving> bySum = new ArrayList<>();
+        List<SpaceSaving> byCount = new ArrayList<>();
+        for (N26RollingStatistics.Bucket b : buckets) {
+            if (b.topByCount != null) {
+                b.topBySum.snapshot(bySum);
+                b.topByCount.snapshot(byCount);
+            }
+        }
+        return new TopKeys(SpaceSaving.top(bySum, limit), SpaceSaving.top(byCount, limit));
+    }
+
+    /**
+     * Keys ranked by sum and by count. Only positive amounts contribute to the sum ranking.
+     */
+    public static class TopKeys {
+        final List<HeavyHitter> bySum;
+        final List<HeavyHitter> byCount;
+
+        public TopKeys(List<HeavyHitter> bySum, List<HeavyHitter> byCount) {
+            this.bySum = bySum;
+            this.byCount = byCount;
+        }
+
+        public List<HeavyHitter> getBySum() {
+            return bySum;
+        }
+
+        public List<HeavyHitter> getByCount() {
+            return byCount;
+        }
+    }
+
+    /**
+     * Optional features of an instance. Everything is off by default.
+     */
+    public static class Options {
+        int topKeysCapacity;
+        boolean percentiles;
+        boolean variance;
+        int moneyScale = -1;
+        boolean compensatedSum;
+        int tumblingWindows;
+        int dedupCapacity;
+        double dedupFalsePositiveProbability;
+        long historyMemoryBudget;
+        boolean rates;
+        boolean consistentReads;
+
+        /**
+         * Enables {@link #getTopKeys(int)}. Every bucket keeps up to this many keys per stripe and ranking, larger
+         * values give more accurate rankings at the cost of memory and a slower ingest of keyed values.
+         */
+        public N26RollingStatistics.Options topKeysCapacity(int topKeysCapacity) {
+            this.topKeysCapacity = topKeysCapacity;
+            return this;
+        }
+
+        /**
+         * Enables p50/p90/p99 in {@link #getRolling()}. Every bucket gets a fixed size histogram of about 12KB.
+         */
+        public N26RollingStatistics.Options percentiles(boolean percentiles) {
+            this.percentiles = percentiles;
+            return this;
+        }
+
+        /**
+         * Enables variance and standard deviation in {@link #getRolling()}, at the cost of one more striped CAS per
+         * value.
+         */
+        public N26RollingStatistics.Options variance(boolean variance) {
+            this.variance = variance;
+            return this;
+        }
+
+        /**
+         * Sums doubles with Neumaier's compensation, see {@link CompensatedDoubleSum}. Keeps the sum accurate over
+         * millions of values of mixed magnitudes, at the cost of an allocation per value. Ignored in money mode.
+         */
+        public N26RollingStatistics.Options compensatedSum(boolean compensatedSum) {
+            this.compensatedSum = compensatedSum;
+            return this;
+        }
+
+        /**
+         * Rolls sealed buckets into per minute, hour and day totals aligned to UTC and keeps this many closed windows
+         * of each, see {@link #getTumblingWindows()}.
+         */
+        public N26RollingStatistics.Options tumblingWindows(int tumblingWindows) {
+            this.tumblingWindows = tumblingWindows;
+            return this;
+        }
+
+        /**
+         * Switches to money mode: amounts are accounted as exact long minor units with the given number of decimal
+         * places, see {@link #addMinorUnits(long, Long, String)}. Negative values keep the double mode.
+         */
+        public N26RollingStatistics.Options moneyScale(int moneyScale) {
+            this.moneyScale = moneyScale;
+            return this;
+        }
+
+        /**
+         * Appends every sealed bucket to a compressed history of at most the given number of bytes, see
+         * {@link #getHistory()}. 0 disables it.
+         */
+        public N26RollingStatistics.Options history(long memoryBudgetInBytes) {
+            this.historyMemoryBudget = memoryBudgetInBytes;
+            return this;
+        }
+
+        /**
+         * Derives transactions and amount per second from sealed buckets, see {@link #getRateMeter()}.
+         */
+        public N26RollingStatistics.Options rates(boolean rates) {
+            this.rates = rates;
+            return this;
+        }
+
+        /**
+         * Keeps count, sum, min, max and variance of a bucket in one {@link DoubleSummary} cell per stripe, replaced
+         * by a single CAS, instead of a primitive each. Every bucket then contributes a coherent tuple to
+         * {@link #getRolling()}, e.g. the average is always one of values which were really added, and writers are
+         * never blocked or retried by readers. Costs an allocation per value. Percentiles and top keys are still
+         * updated separately. Ignored in money mode.
+         */
+        public N26RollingStatistics.Options consistentReads(boolean consistentReads) {
+            this.consistentReads = consistentReads;
+            return this;
+        }
+
+        /**
+         * Enables {@link #firstSeen(String)}. Every bucket gets a Bloom filter sized for the given number of ids, the
+         * false positive probability is the one of a lookup against the whole window, so the filters get larger with
+         * the number of buckets. A capacity of 0 disables it.
+         */
+        public N26RollingStatistics.Options dedup(int capacity, double falsePositiveProbability) {
+            this.dedupCapacity = capacity;
+            this.dedupFalsePositiveProbability = falsePositiveProbability;
+            return this;
+        }
     }
 
     /**
@@ -150,17 +661,67 @@ public class N26RollingStatistics {
         final double avg;
         final double min;
         final double max;
+        final double variance;
+        final double p50;
+        final double p90;
+        final double p99;
+        final int scale;
+        final long sumUnits;
+        final long minUnits;
+        final long maxUnits;
 
         public AggregatedStatistics(long size, double sum, double min, double max) {
+            this(size, sum, min, max, 0.0, 0.0, 0.0, 0.0);
+        }
+
+        public AggregatedStatistics(long size, double sum, double min, double max, double variance, double p50, double p90, double p99) {
             this.size = size;
             this.sum = sum;
             this.min = min;
             this.max = max;
+            this.variance = variance;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
             if ( size != 0) {
                 avg = sum / size;
             } else {
                 avg = 0.0;
             }
+            this.scale = -1;
+            this.sumUnits = 0;
+            this.minUnits = 0;
+            this.maxUnits = 0;
+        }
+
+        private AggregatedStatistics(AggregatedStatistics s, double avg, int scale, long sumUnits, long minUnits, long maxUnits) {
+            this.size = s.size;
+            this.sum = s.sum;
+            this.avg = avg;
+            this.min = s.min;
+            this.max = s.max;
+            this.variance = s.variance;
+            this.p50 = s.p50;
+            this.p90 = s.p90;
+            this.p99 = s.p99;
+            this.scale = scale;
+            this.sumUnits = sumUnits;
+            this.minUnits = minUnits;
+            this.maxUnits = maxUnits;
+        }
+
+        /**
+         * @return copy carrying exact sum, min and max in minor units of the given scale
+         */
+        public AggregatedStatistics withMinorUnits(int scale, long sumUnits, long minUnits, long maxUnits) {
+            return new AggregatedStatistics(this, avg, scale, sumUnits, minUnits, maxUnits);
+        }
+
+        /**
+         * @return copy with an average which is not simply {@code sum / size}, e.g. a weighted mean
+         */
+        public AggregatedStatistics withAvg(double avg) {
+            return new AggregatedStatistics(this, avg, scale, sumUnits, minUnits, maxUnits);
         }
 
         public long getSize() {
@@ -182,6 +743,59 @@ public class N26RollingStatistics {
         public double getMax() {
             return max;
         }
+
+        /**
+         * @return population variance of the window
+         */
+        public double getVariance() {
+            return variance;
+        }
+
+        public double getStddev() {
+            return Math.sqrt(variance);
+        }
+
+        public double getP50() {
+            return p50;
+        }
+
+        public double getP90() {
+            return p90;
+        }
+
+        public double getP99() {
+            return p99;
+        }
+
+        /**
+         * @return true if sum, min, max and avg are also available as exact minor units
+         */
+        public boolean isExact() {
+            return scale >= 0;
+        }
+
+        public int getScale() {
+            return scale;
+        }
+
+        public long getSumUnits() {
+            return sumUnits;
+        }
+
+        public long getMinUnits() {
+            return minUnits;
+        }
+
+        public long getMaxUnits() {
+            return maxUnits;
+        }
+
+        /**
+         * @return exact average in minor units, rounded half to even
+         */
+        public long getAvgUnits() {
+            return size == 0 ? 0 : FixedPoint.divide(sumUnits, size);
+        }
     }
 
     private ReentrantLock newBucketLock = new ReentrantLock();
@@ -228,11 +842,12 @@ public class N26RollingStatistics {
          * bucket to calculate the min themselves. This is an example of favoring write-performance instead of read-performance and how the tryLock
          * versus a synchronized block needs to be accommodated.
          */
+        BucketRotationEvent rotation = null;
         if (newBucketLock.tryLock()) {
             try {
                 if (buckets.peekLast() == null) {
                     // the list is empty so create the first bucket
-                    N26RollingStatistics.Bucket newBucket = new N26RollingStatistics.Bucket(currentTime);
+                    N26RollingStatistics.Bucket newBucket = newBucket(currentTime);
                     buckets.addLast(newBucket);
                     return newBucket;
                 } else {
@@ -248,12 +863,21 @@ public class N26RollingStatistics {
                             return lastBucket;
                         } else if (currentTime - (lastBucket.windowStart + this.bucketSizeInMilliseconds) > timeInMilliseconds) {
                             // the time passed is greater than the entire rolling counter so we want to clear it all and start from scratch
-                            reset();
+                            sealRemaining();
+                            reset(true);
                             // recursively call getCurrentBucket which will create a new bucket and return it
                             return getCurrentBucket();
                         } else { // we're past the window so we need to create a new bucket
                             // create a new bucket and add it as the new 'last'
-                            buckets.addLast(new N26RollingStatistics.Bucket(lastBucket.windowStart + this.bucketSizeInMilliseconds));
+                            if (rotation == null && FlightEvents.ROTATION.isEnabled()) {
+                                rotation = new BucketRotationEvent();
+                                rotation.begin();
+                            }
+                            rotate(lastBucket.windowStart + this.bucketSizeInMilliseconds);
+                            if (rotation != null) {
+                                rotation.buckets++;
+                                rotation.windowStart = lastBucket.windowStart + this.bucketSizeInMilliseconds;
+                            }
                         }
                     }
                     // we have finished the for-loop and created all of the buckets, so return the lastBucket now
@@ -261,9 +885,18 @@ public class N26RollingStatistics {
                 }
             } finally {
                 newBucketLock.unlock();
+                if (rotation != null) {
+                    rotation.commit();
+                }
             }
         } else {
             currentBucket = buckets.peekLast();
+            if (FlightEvents.LOCK_MISS.isEnabled()) {
+                LockMissEvent event = new LockMissEvent();
+                event.stale = currentBucket == null
+                        ? 0 : Math.max(0, currentTime - (currentBucket.windowStart + this.bucketSizeInMilliseconds));
+                event.commit();
+            }
             if (currentBucket != null) {
                 // we didn't get the lock so just return the latest bucket while another thread creates the next one
                 return currentBucket;
@@ -280,6 +913,195 @@ public class N26RollingStatistics {
         }
     }
 
+    /**
+     * Adds a new tail and seals the bucket {@link #LIVE_BUCKETS} behind it. The one right behind the tail is left
+     * alone as writers which lost the tryLock in {@link #getCurrentBucket()} may still be adding to it.
+     */
+    private void rotate(long windowStart) {
+        N26RollingStatistics.Bucket b;
+        columns.beginWrite();
+        try {
+            // the slot of the new bucket is the one of the head which is about to drop out of the ring
+            columns.clear(windowStart);
+            buckets.addLast(newBucket(windowStart));
+            b = buckets.peekBeforeLast(LIVE_BUCKETS);
+            if (b != null && !b.isSealed()) {
+                b.seal();
+                columns.put(b.windowStart, b.sealed);
+            } else {
+                b = null;
+            }
+        } finally {
+            columns.endWrite();
+        }
+        if (b != null) {
+            fireSealed(b);
+        }
+    }
+
+    /**
+     * Seals the live buckets ahead of a reset so that listeners still see every bucket which had values.
+     */
+    private void sealRemaining() {
+        for (N26RollingStatistics.Bucket b : buckets) {
+            if (!b.isSealed()) {
+                b.seal();
+                fireSealed(b);
+            }
+        }
+    }
+
+    private void fireSealed(N26RollingStatistics.Bucket b) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        AggregatedStatistics statistics = seriesPoint(b).statistics;
+        for (SealedBucketListener listener : listeners) {
+            listener.onSealed(b.windowStart, b.windowStart + bucketSizeInMilliseconds, statistics);
+        }
+    }
+
+    private AggregatedStatistics toStatistics(N26RollingStatistics.BucketTotals t) {
+        if (t.count < 1) {
+            return EMPTY;
+        }
+        if (isMoneyMode()) {
+            int scale = options.moneyScale;
+            return new AggregatedStatistics(t.count, FixedPoint.toDouble(t.unitsSum, scale),
+                    FixedPoint.toDouble(t.unitsMin, scale), FixedPoint.toDouble(t.unitsMax, scale),
+                    t.moments.variance(), 0.0, 0.0, 0.0)
+                    .withMinorUnits(scale, t.unitsSum, t.unitsMin, t.unitsMax);
+        }
+        return new AggregatedStatistics(t.count, t.sum + t.sumCompensation, t.min, t.max,
+                t.moments.variance(), 0.0, 0.0, 0.0);
+    }
+
+    /**
+     * Gets notified once per bucket, when the bucket is sealed. Runs on the thread rotating the ring while it holds
+     * the rotation lock, implementations must be quick and must not call back into this instance.
+     */
+    public interface SealedBucketListener {
+
+        /**
+         * @param windowStart start of the bucket, inclusive
+         * @param windowEnd   end of the bucket, exclusive
+         * @param bucket      final totals of the bucket, {@link #EMPTY} if it saw no values
+         */
+        void onSealed(long windowStart, long windowEnd, AggregatedStatistics bucket);
+    }
+
+    public void addSealedBucketListener(SealedBucketListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return closed calendar aligned windows or null unless {@link Options#tumblingWindows(int)} is set
+     */
+    public TumblingWindows getTumblingWindows() {
+        return tumbling;
+    }
+
+    /**
+     * @return compressed history of sealed buckets or null unless {@link Options#history(long)} is set
+     */
+    public HistoryStore getHistory() {
+        return history;
+    }
+
+    /**
+     * @return per second rates of sealed buckets or null unless {@link Options#rates(boolean)} is set
+     */
+    public RateMeter getRateMeter() {
+        return rates;
+    }
+
+    /**
+     * Per bucket totals of the window for charting, the oldest bucket first, empty buckets included. Reads a single
+     * snapshot of the ring. Points of sealed buckets are built once and cached on the bucket, so repeated calls only
+     * fold the primitives of the {@link #LIVE_BUCKETS} live ones. Variance is the only derived value filled in.
+     *
+     * @return one point per bucket of the window
+     */
+    public List<SeriesPoint> getSeries() {
+        if (getCurrentBucket() == null) {
+            return Collections.emptyList();
+        }
+        List<SeriesPoint> series = new ArrayList<>(numberOfBuckets);
+        for (N26RollingStatistics.Bucket b : buckets) {
+            series.add(seriesPoint(b));
+        }
+        return series;
+    }
+
+    public int getBucketSizeInMilliseconds() {
+        return bucketSizeInMilliseconds;
+    }
+
+    private SeriesPoint seriesPoint(N26RollingStatistics.Bucket b) {
+        N26RollingStatistics.BucketTotals t = b.sealed;
+        if (t == null) {
+            return new SeriesPoint(b.windowStart, false, toStatistics(b.totals()));
+        }
+        SeriesPoint point = b.point;
+        if (point == null) {
+            // racing readers may both build it, the points are equal
+            point = new SeriesPoint(b.windowStart, true, toStatistics(t));
+            b.point = point;
+        }
+        return point;
+    }
+
+    /**
+     * Totals of one bucket, see {@link #getSeries()}.
+     */
+    public static class SeriesPoint {
+        final long windowStart;
+        final boolean sealed;
+        final AggregatedStatistics statistics;
+
+        SeriesPoint(long windowStart, boolean sealed, AggregatedStatistics statistics) {
+            this.windowStart = windowStart;
+            this.sealed = sealed;
+            this.statistics = statistics;
+        }
+
+        public long getWindowStart() {
+            return windowStart;
+        }
+
+        /**
+         * @return true if the bucket takes no more values, the same instance is then returned by every call
+         */
+        public boolean isSealed() {
+            return sealed;
+        }
+
+        public AggregatedStatistics getStatistics() {
+            return statistics;
+        }
+    }
+
+    private N26RollingStatistics.Bucket newBucket(long startTime) {
+        return new N26RollingStatistics.Bucket(startTime, options, numberOfBuckets);
+    }
+
+    /**
+     * The {@code bucketed} engine, the only one honouring {@link StatisticsEngine.Settings#options(Options)}.
+     */
+    public static class Provider implements StatisticsEngineProvider {
+
+        @Override
+        public String getName() {
+            return "bucketed";
+        }
+
+        @Override
+        public StatisticsEngine create(StatisticsEngine.Settings settings) {
+            return new N26RollingStatistics(settings.time, settings.timeInMilliseconds, settings.numberOfBuckets,
+                    settings.options);
+        }
+    }
+
     /* package */static interface Time {
         public long getCurrentTimeInMillis();
     }
@@ -301,9 +1123,59 @@ public class N26RollingStatistics {
         final DoubleSum sum = new DoubleSum();
         final DoubleMin min = new DoubleMin();
         final DoubleSum count = new DoubleSum();
+        final StripedSpaceSaving topBySum;
+        final StripedSpaceSaving topByCount;
+        final LogLinearHistogram histogram;
+        final DoubleVariance moments;
+        final CompensatedDoubleSum compensatedSum;
+        final LongAdder units;
+        final LongAccumulator unitsMin;
+        final LongAccumulator unitsMax;
+        final BloomFilter ids;
+        /* replaces count, sum, min, max, the compensated sum and the moments in consistent read mode */
+        final DoubleSummary summary;
+        /* whether the moments of the summary are wanted */
+        final boolean variance;
+        volatile N26RollingStatistics.BucketTotals sealed;
+        /* read instead of the primitives while seal() folds their cells, see totals() */
+        volatile N26RollingStatistics.BucketTotals sealing;
+        /* rendered lazily once sealed, see getSeries() */
+        volatile N26RollingStatistics.SeriesPoint point;
 
         Bucket(long startTime) {
+            this(startTime, new N26RollingStatistics.Options(), 1);
+        }
+
+        /**
+         * @param numberOfBuckets buckets of the window, the de-duplication filters share its false positive budget
+         */
+        Bucket(long startTime, N26RollingStatistics.Options options, int numberOfBuckets) {
             this.windowStart = startTime;
+            if (options.topKeysCapacity > 0) {
+                topBySum = new StripedSpaceSaving(options.topKeysCapacity);
+                topByCount = new StripedSpaceSaving(options.topKeysCapacity);
+            } else {
+                topBySum = null;
+                topByCount = null;
+            }
+            histogram = options.percentiles ? new LogLinearHistogram() : null;
+            summary = options.consistentReads && options.moneyScale < 0 ? new DoubleSummary() : null;
+            variance = options.variance;
+            moments = options.variance && summary == null ? new DoubleVariance() : null;
+            compensatedSum = options.compensatedSum && options.moneyScale < 0 && summary == null
+                    ? new CompensatedDoubleSum() : null;
+            if (options.moneyScale >= 0) {
+                units = new LongAdder();
+                unitsMin = new LongAccumulator(Math::min, Long.MAX_VALUE);
+                unitsMax = new LongAccumulator(Math::max, Long.MIN_VALUE);
+            } else {
+                units = null;
+                unitsMin = null;
+                unitsMax = null;
+            }
+            ids = options.dedupCapacity > 0
+                    ? new BloomFilter(options.dedupCapacity, options.dedupFalsePositiveProbability / numberOfBuckets)
+                    : null;
         }
 
         DoubleMax getMax() {
@@ -325,6 +1197,120 @@ public class N26RollingStatistics {
         public long getWindowStart() {
             return windowStart;
         }
+
+        /**
+         * @return the sealed totals, or totals folded from the live primitives if the bucket is not sealed yet
+         */
+        N26RollingStatistics.BucketTotals totals() {
+            N26RollingStatistics.BucketTotals t = sealed;
+            if (t == null) {
+                t = sealing;
+            }
+            return t != null ? t : new N26RollingStatistics.BucketTotals(this);
+        }
+
+        boolean isSealed() {
+            return sealed != null;
+        }
+
+        /**
+         * Folds the primitives into {@link BucketTotals} once and drops their cell tables, which are up to NCPU padded
+         * cells each. Reads of a sealed bucket touch a single small object.
+         *
+         *<br>
+         * Buckets are sealed {@link #LIVE_BUCKETS} rotations behind the tail, so only a writer which fetched the bucket
+         * that long ago and was descheduled since can still be adding to it. Such a write is lost: either it CASes a
+         * cell of the dropped table, see {@link com.n26.primitive.N26DoublePrimitive#compact()}, or it lands in a base
+         * after the totals were taken. Its count and sum may even be split across the snapshot. The totals are taken
+         * after the cells were folded, so that everything which finished before is in them, and readers in between get
+         * a snapshot taken before folding rather than a half folded primitive.
+         */
+        void seal() {
+            if (sealed != null) {
+                return;
+            }
+            sealing = new N26RollingStatistics.BucketTotals(this);
+            max.compact();
+            min.compact();
+            sum.compact();
+            count.compact();
+            if (compensatedSum != null) {
+                compensatedSum.compact();
+            }
+            if (moments != null) {
+                moments.compact();
+            }
+            if (summary != null) {
+                summary.compact();
+            }
+            sealed = new N26RollingStatistics.BucketTotals(this);
+            sealing = null;
+        }
+    }
+
+    /**
+     * Immutable totals of a single bucket as needed by {@link #getRolling()}.
+     */
+    /* package */static final class BucketTotals {
+        final long count;
+        final double sum;
+        final double sumCompensation;
+        final double min;
+        final double max;
+        final Moments moments;
+        final long unitsSum;
+        final long unitsMin;
+        final long unitsMax;
+
+        BucketTotals(long count, double sum, double sumCompensation, double min, double max, Moments moments,
+                     long unitsSum, long unitsMin, long unitsMax) {
+            this.count = count;
+            this.sum = sum;
+            this.sumCompensation = sumCompensation;
+            this.min = min;
+            this.max = max;
+            this.moments = moments;
+            this.unitsSum = unitsSum;
+            this.unitsMin = unitsMin;
+            this.unitsMax = unitsMax;
+        }
+
+        BucketTotals(N26RollingStatistics.Bucket b) {
+            if (b.summary != null) {
+                Summary summary = b.summary.aggregate();
+                count = summary.getCount();
+                sum = summary.getSum();
+                sumCompensation = summary.getCompensation();
+                min = summary.getMin();
+                max = summary.getMax();
+                moments = b.variance ? summary.getMoments() : Moments.EMPTY;
+                unitsSum = 0;
+                unitsMin = Long.MAX_VALUE;
+                unitsMax = Long.MIN_VALUE;
+                return;
+            }
+            count = (long) b.count.aggregate();
+            if (b.compensatedSum != null) {
+                CompensatedDoubleSum.Partial partial = b.compensatedSum.partial();
+                sum = partial.getSum();
+                sumCompensation = partial.getCompensation();
+            } else {
+                sum = b.sum.aggregate();
+                sumCompensation = 0.0;
+            }
+            min = b.min.aggregate();
+            max = b.max.aggregate();
+            moments = b.moments != null ? b.moments.aggregate() : Moments.EMPTY;
+            if (b.units != null) {
+                unitsSum = b.units.sum();
+                unitsMin = b.unitsMin.get();
+                unitsMax = b.unitsMax.get();
+            } else {
+                unitsSum = 0;
+                unitsMin = Long.MAX_VALUE;
+                unitsMax = Long.MIN_VALUE;
+            }
+        }
     }
 
     /**
@@ -370,6 +1356,13 @@ public class N26RollingStatistics {
                 this.data = data;
             }
 
+            private N26RollingStatistics.Bucket beforeTail(int n) {
+                if (size <= n) {
+                    return null;
+                }
+                return data.get(convert(size - 1 - n));
+            }
+
             public N26RollingStatistics.Bucket tail() {
                 if (size == 0) {
                     return null;
@@ -502,6 +1495,13 @@ public class N26RollingStatistics {
             return state.get().tail();
         }
 
+        /**
+         * @return the bucket n positions before the last one, null if there are not that many
+         */
+        public N26RollingStatistics.Bucket peekBeforeLast(int n) {
+            return state.get().beforeTail(n);
+        }
+
         private N26RollingStatistics.Bucket[] getArray() {
             return state.get().getArray();
         }
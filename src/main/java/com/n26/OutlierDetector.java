@@ -0,0 +1,129 @@
+package com.n26;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scores amounts against the current window on the ingest path. The baseline (mean, standard deviation and p99) is a
+ * snapshot handed in by whoever computes {@link StatisticsEngine#getRolling()} anyway, e.g. the statistics worker,
+ * so scoring is a volatile read and a few arithmetic operations and never folds the buckets itself.
+ *
+ *<br>
+ * An amount is flagged when its z-score against the baseline is at least the threshold in either direction. Nothing
+ * is flagged while the window holds fewer than {@code minSamples} values or has no spread, e.g. when variance is off.
+ * Being above p99 is reported for information only, by definition one in a hundred amounts is.
+ *
+ * @author Andrew Polyakov
+ */
+public class OutlierDetector {
+
+    private final double zThreshold;
+    private final long minSamples;
+    private final boolean percentiles;
+
+    private volatile Baseline baseline = Baseline.NONE;
+
+    private final LongAdder scored = new LongAdder();
+    private final LongAdder flagged = new LongAdder();
+
+    /**
+     * @param zThreshold  absolute z-score from which on an amount is flagged
+     * @param minSamples  values the window must hold before anything is flagged
+     * @param percentiles whether the statistics carry a p99, otherwise no amount is reported above it
+     */
+    public OutlierDetector(double zThreshold, long minSamples, boolean percentiles) {
+        if (!(zThreshold > 0)) {
+            throw new IllegalArgumentException("The zThreshold must be positive");
+        }
+        this.zThreshold = zThreshold;
+        this.minSamples = minSamples;
+        this.percentiles = percentiles;
+    }
+
+    /**
+     * Replaces the baseline, to be called with every fresh result of {@link StatisticsEngine#getRolling()}.
+     */
+    public void update(N26RollingStatistics.AggregatedStatistics statistics) {
+        if (statistics.getSize() < Math.max(1, minSamples)) {
+            baseline = Baseline.NONE;
+            return;
+        }
+        baseline = new Baseline(statistics.getAvg(), statistics.getStddev(),
+                percentiles ? statistics.getP99() : Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Scores and counts the amount.
+     */
+    public Score score(double value) {
+        Baseline b = baseline;
+        double z = b.stddev > 0 ? (value - b.mean) / b.stddev : 0.0;
+        boolean outlier = Math.abs(z) >= zThreshold;
+        scored.increment();
+        if (outlier) {
+            flagged.increment();
+        }
+        return new Score(z, value > b.p99, outlier);
+    }
+
+    public double getZThreshold() {
+        return zThreshold;
+    }
+
+    /**
+     * @return amounts scored since start
+     */
+    public long getScored() {
+        return scored.sum();
+    }
+
+    /**
+     * @return amounts flagged since start, divide by {@link #getScored()} for the flagged rate
+     */
+    public long getFlagged() {
+        return flagged.sum();
+    }
+
+    /**
+     * Verdict on a single amount.
+     */
+    public static class Score {
+        final double zScore;
+        final boolean aboveP99;
+        final boolean flagged;
+
+        public Score(double zScore, boolean aboveP99, boolean flagged) {
+            this.zScore = zScore;
+            this.aboveP99 = aboveP99;
+            this.flagged = flagged;
+        }
+
+        /**
+         * @return distance to the mean of the window in standard deviations, 0 without a baseline
+         */
+        public double getZScore() {
+            return zScore;
+        }
+
+        public boolean isAboveP99() {
+            return aboveP99;
+        }
+
+        public boolean isFlagged() {
+            return flagged;
+        }
+    }
+
+    private static final class Baseline {
+        static final Baseline NONE = new Baseline(0.0, 0.0, Double.POSITIVE_INFINITY);
+
+        final double mean;
+        final double stddev;
+        final double p99;
+
+        Baseline(double mean, double stddev, double p99) {
+            this.mean = mean;
+            this.stddev = stddev;
+            this.p99 = p99;
+        }
+    }
+}
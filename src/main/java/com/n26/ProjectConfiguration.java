@@ -1,11 +1,25 @@
 package com.n26;
 
+import com.n26.export.AsyncExporter;
+import com.n26.export.ExportFormat;
+import com.n26.export.ExportSink;
+import com.n26.export.RollingFileSink;
+import com.n26.export.StreamSink;
+import com.n26.lane.RequestLane;
+import com.n26.shm.SharedMemoryPublisher;
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.AbstractProtocol;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 
+import java.io.File;
+import java.io.IOException;
+
 /*
 Spring configuration
  */
@@ -13,12 +27,185 @@ Spring configuration
 @Configuration("ProjectConfiguration")
 public class ProjectConfiguration {
 
+    @Value("${engine}")
+    private String engine;
+
+    @Value("${engine-window}")
+    private int engineWindow;
+
+    @Value("${engine-buckets}")
+    private int engineBuckets;
+
+    @Value("${engine-mean-lifetime}")
+    private long engineMeanLifetime;
+
     @Value("${refresh-interval}")
     private int refreshInterval;
 
-    @Bean("rollingStatistics")
-    public N26RollingStatistics rollingStatistics() {
-        return new N26RollingStatistics(60 * 1000,60);
+    @Value("${keyed-memory-budget}")
+    private long keyedMemoryBudget;
+
+    @Value("${top-keys-capacity}")
+    private int topKeysCapacity;
+
+    @Value("${percentiles}")
+    private boolean percentiles;
+
+    @Value("${variance}")
+    private boolean variance;
+
+    @Value("${compensated-sum}")
+    private boolean compensatedSum;
+
+    @Value("${tumbling-windows}")
+    private int tumblingWindows;
+
+    @Value("${money-scale}")
+    private int moneyScale;
+
+    @Value("${consistent-reads}")
+    private boolean consistentReads;
+
+    @Value("${dedup-capacity}")
+    private int dedupCapacity;
+
+    @Value("${dedup-false-positives}")
+    private double dedupFalsePositives;
+
+    @Value("${history-memory-budget}")
+    private long historyMemoryBudget;
+
+    @Value("${rates}")
+    private boolean rates;
+
+    @Value("${export-sink}")
+    private String exportSink;
+
+    @Value("${export-format}")
+    private String exportFormat;
+
+    @Value("${export-queue-capacity}")
+    private int exportQueueCapacity;
+
+    @Value("${export-batch-size}")
+    private int exportBatchSize;
+
+    @Value("${export-flush-interval}")
+    private long exportFlushInterval;
+
+    @Value("${export-file-max-bytes}")
+    private long exportFileMaxBytes;
+
+    @Value("${export-file-count}")
+    private int exportFileCount;
+
+    @Value("${shm-path}")
+    private String shmPath;
+
+    @Value("${read-threads}")
+    private int readThreads;
+
+    @Value("${read-queue-capacity}")
+    private int readQueueCapacity;
+
+    @Value("${write-threads}")
+    private int writeThreads;
+
+    @Value("${write-queue-capacity}")
+    private int writeQueueCapacity;
+
+    @Value("${read-port}")
+    private int readPort;
+
+    @Value("${read-port-threads}")
+    private int readPortThreads;
+
+    @Value("${outlier-z-threshold}")
+    private double outlierZThreshold;
+
+    @Value("${outlier-min-samples}")
+    private long outlierMinSamples;
+
+    @Bean("statisticsEngine")
+    public StatisticsEngine statisticsEngine() throws IOException {
+        StatisticsEngine statisticsEngine = StatisticsEngines.create(engine, new StatisticsEngine.Settings()
+                .window(engineWindow, engineBuckets)
+                .meanLifetime(engineMeanLifetime)
+                .options(new N26RollingStatistics.Options()
+                        .topKeysCapacity(topKeysCapacity)
+                        .percentiles(percentiles)
+                        .variance(variance)
+                        .compensatedSum(compensatedSum)
+                        .tumblingWindows(tumblingWindows)
+                        .moneyScale(moneyScale)
+                        .consistentReads(consistentReads)
+                        .dedup(dedupCapacity, dedupFalsePositives)
+                        .history(historyMemoryBudget)
+                        .rates(rates)));
+        N26RollingStatistics rs = statisticsEngine.unwrap(N26RollingStatistics.class);
+        AsyncExporter exporter = asyncExporter();
+        if (rs != null && exporter.isEnabled()) {
+            // a listener makes rotation build the statistics of every sealed bucket
+            rs.addSealedBucketListener(exporter);
+        }
+        return statisticsEngine;
+    }
+
+    @Bean(value = "asyncExporter", destroyMethod = "close")
+    public AsyncExporter asyncExporter() throws IOException {
+        if (exportSink.isEmpty()) {
+            return AsyncExporter.disabled();
+        }
+        ExportFormat format = ExportFormat.parse(exportFormat);
+        ExportSink sink = "stdout".equals(exportSink)
+                ? new StreamSink(System.out, format)
+                : new RollingFileSink(new File(exportSink), format, exportFileMaxBytes, exportFileCount);
+        return new AsyncExporter(sink, exportQueueCapacity, exportBatchSize, exportFlushInterval);
+    }
+
+    @Bean("keyedStatistics")
+    public KeyedRollingStatistics keyedStatistics() {
+        // per key statistics cover the same window as the engine
+        return new KeyedRollingStatistics(engineWindow, engineBuckets, keyedMemoryBudget);
+    }
+
+    @Bean("sharedMemoryPublisher")
+    public SharedMemoryPublisher sharedMemoryPublisher() throws IOException {
+        if (shmPath.isEmpty()) {
+            return SharedMemoryPublisher.disabled();
+        }
+        return new SharedMemoryPublisher(new File(shmPath));
+    }
+
+    @Bean(value = "readLane", destroyMethod = "close")
+    public RequestLane readLane() {
+        return new RequestLane("read", readThreads, readQueueCapacity);
+    }
+
+    @Bean(value = "writeLane", destroyMethod = "close")
+    public RequestLane writeLane() {
+        return new RequestLane("write", writeThreads, writeQueueCapacity);
+    }
+
+    /**
+     * A second connector with threads of its own for readers, so slow request bodies on the main port cannot take them.
+     */
+    @Bean
+    public EmbeddedServletContainerCustomizer readConnector() {
+        return container -> {
+            if (readPort > 0 && container instanceof TomcatEmbeddedServletContainerFactory) {
+                Connector connector = new Connector(TomcatEmbeddedServletContainerFactory.DEFAULT_PROTOCOL);
+                connector.setPort(readPort);
+                ((AbstractProtocol<?>) connector.getProtocolHandler()).setMaxThreads(readPortThreads);
+                ((TomcatEmbeddedServletContainerFactory) container).addAdditionalTomcatConnectors(connector);
+            }
+        };
+    }
+
+    @Bean("outlierDetector")
+    public OutlierDetector outlierDetector() throws IOException {
+        boolean p99 = percentiles && statisticsEngine().unwrap(N26RollingStatistics.class) != null;
+        return new OutlierDetector(outlierZThreshold, outlierMinSamples, p99);
     }
 
     @Bean
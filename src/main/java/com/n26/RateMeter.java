@@ -0,0 +1,140 @@
+package com.n26;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transactions and amount per second, of the most recently sealed bucket and as 1, 5 and 15 minute exponentially
+ * weighted moving averages. Fed with sealed buckets by {@link N26RollingStatistics}, so the counts come from the
+ * buckets which are kept anyway and ingest pays for nothing. Every sealed bucket moves each average towards its rate
+ * by {@code 1 - exp(-bucketSize / lifetime)}, so the averages do not depend on the bucket size.
+ *
+ *<br>
+ * Buckets are sealed a couple of buckets behind the live one, the figures lag by as much. Rotation seals every bucket
+ * in turn, including empty ones, as long as anything reads or writes within the window. Longer gaps, e.g. after the
+ * ring was reset, decay the averages as if the gap had been empty buckets.
+ *
+ * @author Andrew Polyakov
+ */
+public class RateMeter implements N26RollingStatistics.SealedBucketListener {
+
+    static final long[] LIFETIMES = {TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(5), TimeUnit.MINUTES.toMillis(15)};
+
+    private final double[] transactions = new double[LIFETIMES.length];
+    private final double[] amount = new double[LIFETIMES.length];
+    private long lastEnd = Long.MIN_VALUE;
+
+    private volatile Rates rates = Rates.NONE;
+
+    @Override
+    public synchronized void onSealed(long windowStart, long windowEnd, N26RollingStatistics.AggregatedStatistics bucket) {
+        if (windowEnd <= lastEnd) {
+            return; // sealed before, not expected
+        }
+        double seconds = (windowEnd - windowStart) / 1000.0;
+        double transactionsPerSecond = bucket.getSize() / seconds;
+        double amountPerSecond = bucket.getSum() / seconds;
+        for (int i = 0; i < LIFETIMES.length; i++) {
+            if (lastEnd == Long.MIN_VALUE) {
+                // the first bucket is all there is to go by
+                transactions[i] = transactionsPerSecond;
+                amount[i] = amountPerSecond;
+                continue;
+            }
+            if (windowStart > lastEnd) {
+                double decay = Math.exp(-(double) (windowStart - lastEnd) / LIFETIMES[i]);
+                transactions[i] *= decay;
+                amount[i] *= decay;
+            }
+            double alpha = 1.0 - Math.exp(-(double) (windowEnd - windowStart) / LIFETIMES[i]);
+            transactions[i] += alpha * (transactionsPerSecond - transactions[i]);
+            amount[i] += alpha * (amountPerSecond - amount[i]);
+        }
+        lastEnd = windowEnd;
+        rates = new Rates(windowEnd,
+                new Rate(transactionsPerSecond, transactions[0], transactions[1], transactions[2]),
+                new Rate(amountPerSecond, amount[0], amount[1], amount[2]));
+    }
+
+    /**
+     * @return rates as of the end of the most recently sealed bucket, zeroes before the first one
+     */
+    public Rates getRates() {
+        return rates;
+    }
+
+    /**
+     * Rates of transactions and of amount as of the end of a sealed bucket.
+     */
+    public static class Rates {
+        static final Rates NONE = new Rates(0L, Rate.ZERO, Rate.ZERO);
+
+        final long asOf;
+        final Rate transactions;
+        final Rate amount;
+
+        public Rates(long asOf, Rate transactions, Rate amount) {
+            this.asOf = asOf;
+            this.transactions = transactions;
+            this.amount = amount;
+        }
+
+        /**
+         * @return end of the bucket the rates include, in epoch millis, 0 before the first one
+         */
+        public long getAsOf() {
+            return asOf;
+        }
+
+        /**
+         * @return transactions per second
+         */
+        public Rate getTransactions() {
+            return transactions;
+        }
+
+        /**
+         * @return sum of amounts per second
+         */
+        public Rate getAmount() {
+            return amount;
+        }
+    }
+
+    /**
+     * Per second rate of the last sealed bucket and its moving averages.
+     */
+    public static class Rate {
+        static final Rate ZERO = new Rate(0.0, 0.0, 0.0, 0.0);
+
+        final double current;
+        final double oneMinute;
+        final double fiveMinutes;
+        final double fifteenMinutes;
+
+        public Rate(double current, double oneMinute, double fiveMinutes, double fifteenMinutes) {
+            this.current = current;
+            this.oneMinute = oneMinute;
+            this.fiveMinutes = fiveMinutes;
+            this.fifteenMinutes = fifteenMinutes;
+        }
+
+        /**
+         * @return rate within the most recently sealed bucket
+         */
+        public double getCurrent() {
+            return current;
+        }
+
+        public double getOneMinute() {
+            return oneMinute;
+        }
+
+        public double getFiveMinutes() {
+            return fiveMinutes;
+        }
+
+        public double getFifteenMinutes() {
+            return fifteenMinutes;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.n26;
+
+/**
+ * What the REST layer needs from a statistics engine: ingest, one value at a time or in batches, a snapshot of the
+ * window and a reset. Implementations are plugged in by name through {@link StatisticsEngineProvider}, see
+ * {@link StatisticsEngines}, so engines can be swapped for throughput or memory by configuration alone.
+ *
+ *<br>
+ * Features only some engines have, e.g. top keys or money mode of {@link N26RollingStatistics}, are reached through
+ * {@link #unwrap(Class)}.
+ *
+ * @author Andrew Polyakov
+ */
+public interface StatisticsEngine {
+
+    /**
+     * @return false if the value is too old to be accounted
+     */
+    boolean addValue(Double value, Long timestamp);
+
+    /**
+     * Same as {@link #addValue(Double, Long)}, the key is a hint engines without per key features ignore.
+     */
+    default boolean addValue(Double value, Long timestamp, String key) {
+        return addValue(value, timestamp);
+    }
+
+    /**
+     * Accounts a value at the current time.
+     */
+    void addValue(Double value);
+
+    /**
+     * Ingests {@code values[i]} at {@code timestamps[i]}. Engines override this to pay per batch instead of per value
+     * for whatever does not depend on the value, e.g. reading the clock.
+     *
+     * @return number of values which were recent enough to be accounted
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    default int addValues(double[] values, long[] timestamps) {
+        checkBatch(values, timestamps);
+        int added = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (addValue(values[i], timestamps[i])) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @return POJO with statistics for current window
+     */
+    N26RollingStatistics.AggregatedStatistics getRolling();
+
+    /**
+     * Forgets everything accounted so far.
+     */
+    void reset();
+
+    /**
+     * @return this engine as the given type, null if it is not one
+     */
+    default <T> T unwrap(Class<T> type) {
+        return type.isInstance(this) ? type.cast(this) : null;
+    }
+
+    static void checkBatch(double[] values, long[] timestamps) {
+        if (values.length != timestamps.length) {
+            throw new IllegalArgumentException("Got " + values.length + " values but " + timestamps.length + " timestamps");
+        }
+    }
+
+    /**
+     * Parameters handed to {@link StatisticsEngineProvider#create(Settings)}, every engine picks those it understands.
+     */
+    class Settings {
+        N26RollingStatistics.Time time = N26RollingStatistics.ACTUAL_TIME;
+        int timeInMilliseconds = 60 * 1000;
+        int numberOfBuckets = 60;
+        long meanLifetimeInMilliseconds = 60 * 1000;
+        N26RollingStatistics.Options options = new N26RollingStatistics.Options();
+
+        /**
+         * Length of the window and the number of buckets it is split into, for the bucketed engines.
+         */
+        public Settings window(int timeInMilliseconds, int numberOfBuckets) {
+            this.timeInMilliseconds = timeInMilliseconds;
+            this.numberOfBuckets = numberOfBuckets;
+            return this;
+        }
+
+        /**
+         * Mean lifetime of a value, for the decaying engine.
+         */
+        public Settings meanLifetime(long meanLifetimeInMilliseconds) {
+            this.meanLifetimeInMilliseconds = meanLifetimeInMilliseconds;
+            return this;
+        }
+
+        /**
+         * Features of {@link N26RollingStatistics}, ignored by the other engines.
+         */
+        public Settings options(N26RollingStatistics.Options options) {
+            this.options = options;
+            return this;
+        }
+
+        /* package for testing */ Settings time(N26RollingStatistics.Time time) {
+            this.time = time;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.n26;
+
+/**
+ * Service provider of a {@link StatisticsEngine}, registered in
+ * {@code META-INF/services/com.n26.StatisticsEngineProvider} and looked up by {@link StatisticsEngines}.
+ *
+ * @author Andrew Polyakov
+ */
+public interface StatisticsEngineProvider {
+
+    /**
+     * @return name the engine is selected by, e.g. {@code bucketed}
+     */
+    String getName();
+
+    StatisticsEngine create(StatisticsEngine.Settings settings);
+}
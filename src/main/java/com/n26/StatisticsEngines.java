@@ -0,0 +1,41 @@
+package com.n26;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Looks up {@link StatisticsEngineProvider}s on the class path. Shipped engines are {@code bucketed}
+ * ({@link N26RollingStatistics}), {@code thread-local} ({@link ThreadLocalRollingStatistics}) and {@code decaying}
+ * ({@link DecayingStatistics}).
+ *
+ * @author Andrew Polyakov
+ */
+public final class StatisticsEngines {
+
+    private StatisticsEngines() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if no provider goes by the name
+     */
+    public static StatisticsEngine create(String name, StatisticsEngine.Settings settings) {
+        for (StatisticsEngineProvider provider : ServiceLoader.load(StatisticsEngineProvider.class)) {
+            if (provider.getName().equals(name)) {
+                return provider.create(settings);
+            }
+        }
+        throw new IllegalArgumentException("Unknown engine " + name + ", expected one of " + getNames());
+    }
+
+    /**
+     * @return names of all engines on the class path
+     */
+    public static List<String> getNames() {
+        List<String> names = new ArrayList<>();
+        for (StatisticsEngineProvider provider : ServiceLoader.load(StatisticsEngineProvider.class)) {
+            names.add(provider.getName());
+        }
+        return names;
+    }
+}
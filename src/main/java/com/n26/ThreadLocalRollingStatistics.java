@@ -0,0 +1,284 @@
+package com.n26;
+
+
+import java.lang.ref.WeakReference;
+import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.Double.doubleToRawLongBits;
+import static java.lang.Double.longBitsToDouble;
+import static java.lang.StrictMath.max;
+import static java.lang.StrictMath.min;
+
+/**
+ * Alternative to {@link N26RollingStatistics} for very high core counts. Every ingest thread owns a private ring of
+ * buckets written by it alone, so writers never contend with each other, not even on a striped cell. The price is paid
+ * by readers: {@link #getRolling()} merges the rings of all threads which have written within the window.
+ *
+ *<br>
+ * A ring is published with a sequence lock: the writer makes the sequence odd, updates the fields and makes it even
+ * again, all with release stores and no read-modify-write. Readers retry a ring whose sequence was odd or changed
+ * while they read it. See {@link ThreadRing} for how the stores and loads are kept in order.
+ *
+ *<br>
+ * Rings are registered on the first value of a thread. Rings of dead threads, e.g. after a container thread pool
+ * shrinks, still count until their values fall out of the window and are dropped by the next read after that.
+ * Buckets are aligned to {@code time / bucketSizeInMilliseconds} the same way as in {@link KeyedRollingStatistics}.
+ *
+ * @author Andrew Polyakov
+ */
+public class ThreadLocalRollingStatistics implements StatisticsEngine {
+
+    final N26RollingStatistics.Time time;
+    final int timeInMilliseconds;
+    final int numberOfBuckets;
+    final int bucketSizeInMilliseconds;
+
+    private final long origin;
+    private final ConcurrentLinkedQueue<ThreadRing> rings = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<ThreadRing> local = new ThreadLocal<>();
+    /* values of older generations were reset, see reset() */
+    private volatile int generation;
+
+    public ThreadLocalRollingStatistics(int timeInMilliseconds, int numberOfBuckets) {
+        this(N26RollingStatistics.ACTUAL_TIME, timeInMilliseconds, numberOfBuckets);
+    }
+
+    /* package for testing */ ThreadLocalRollingStatistics(N26RollingStatistics.Time time, int timeInMilliseconds, int numberOfBuckets) {
+        if (timeInMilliseconds % numberOfBuckets != 0) {
+            throw new IllegalArgumentException("The timeInMilliseconds must divide equally into numberOfBuckets. For example 1000/10 is ok, 1000/11 is not.");
+        }
+        this.time = time;
+        this.timeInMilliseconds = timeInMilliseconds;
+        this.numberOfBuckets = numberOfBuckets;
+        this.bucketSizeInMilliseconds = timeInMilliseconds / numberOfBuckets;
+        this.origin = time.getCurrentTimeInMillis() / bucketSizeInMilliseconds;
+    }
+
+    /**
+     * Same contract as {@link N26RollingStatistics#addValue(Double, Long)}.
+     */
+    @Override
+    public boolean addValue(Double value, Long timestamp) {
+        long currentTime = time.getCurrentTimeInMillis();
+        if (new Timestamp(timestamp).after(new Timestamp(currentTime - timeInMilliseconds))) {
+            ring().add(epoch(currentTime), generation, value);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public void addValue(Double value) {
+        ring().add(epoch(time.getCurrentTimeInMillis()), generation, value);
+    }
+
+    /**
+     * Looks up the ring of the thread and reads the clock once per batch.
+     */
+    @Override
+    public int addValues(double[] values, long[] timestamps) {
+        StatisticsEngine.checkBatch(values, timestamps);
+        long currentTime = time.getCurrentTimeInMillis();
+        long windowToCapture = currentTime - timeInMilliseconds;
+        ThreadRing ring = ring();
+        int epoch = epoch(currentTime);
+        int current = generation;
+        int added = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (timestamps[i] > windowToCapture) {
+                ring.add(epoch, current, values[i]);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Merges the rings of all threads, in O(threads * numberOfBuckets). Unlike {@link N26RollingStatistics#getRolling()}
+     * every ring is read consistently, values are never half way accounted.
+     *
+     * @return POJO with statistics for current window
+     */
+    @Override
+    public N26RollingStatistics.AggregatedStatistics getRolling() {
+        int epoch = epoch(time.getCurrentTimeInMillis());
+        int current = generation;
+        double[] totals = new double[4];
+        long size = 0;
+        double sum = 0.0;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (Iterator<ThreadRing> it = rings.iterator(); it.hasNext(); ) {
+            ThreadRing ring = it.next();
+            if (!ring.aggregate(epoch, current, totals)) {
+                if (!ring.isOwnerAlive()) {
+                    it.remove();
+                }
+                continue;
+            }
+            size += (long) totals[0];
+            sum += totals[1];
+            min = min(min, totals[2]);
+            max = max(max, totals[3]);
+        }
+        if (size == 0) {
+            return N26RollingStatistics.EMPTY;
+        }
+        return new N26RollingStatistics.AggregatedStatistics(size, sum, min, max);
+    }
+
+    /**
+     * Force a reset of all rolling counters. Rings are owned by their writers, so they are not cleared here but
+     * their current values are ignored from now on and overwritten lazily.
+     */
+    @Override
+    public void reset() {
+        generation++;
+    }
+
+    /**
+     * @return number of registered rings, including those of dead threads whose values are still in the window
+     */
+    public int getRingCount() {
+        return rings.size();
+    }
+
+    private ThreadRing ring() {
+        ThreadRing ring = local.get();
+        if (ring == null) {
+            ring = new ThreadRing(Thread.currentThread(), numberOfBuckets);
+            local.set(ring);
+            rings.add(ring);
+        }
+        return ring;
+    }
+
+    private int epoch(long currentTime) {
+        // relative to the creation of the instance so that int is enough
+        return (int) (currentTime / bucketSizeInMilliseconds - origin);
+    }
+
+    /**
+     * The {@code thread-local} engine.
+     */
+    public static class Provider implements StatisticsEngineProvider {
+
+        @Override
+        public String getName() {
+            return "thread-local";
+        }
+
+        @Override
+        public StatisticsEngine create(StatisticsEngine.Settings settings) {
+            return new ThreadLocalRollingStatistics(settings.time, settings.timeInMilliseconds, settings.numberOfBuckets);
+        }
+    }
+
+    /**
+     * Single writer ring. Slot {@code epoch % numberOfBuckets} holds the bucket of that epoch, a slot holding an
+     * older epoch or generation is stale and gets overwritten on the next write.
+     *
+     *<br>
+     * Java 8 has no fence outside {@code sun.misc.Unsafe}, so the fields are atomic arrays written with
+     * {@code lazySet} and read with {@code get}, doubles as their raw bits. A release store is not reordered with the
+     * stores before it, so no field store becomes visible ahead of the odd sequence. An acquire load is not reordered
+     * with the loads after it, so the closing read of the sequence cannot happen ahead of the fields. On x86 both are
+     * plain moves, a write costs no fence and no read-modify-write. Only the owner writes, so it may read its own
+     * fields back at any time.
+     */
+    static final class ThreadRing {
+        private final WeakReference<Thread> owner;
+        private final AtomicLong sequence = new AtomicLong();
+        private final AtomicIntegerArray epochs;
+        private final AtomicIntegerArray generations;
+        private final AtomicLongArray counts;
+        private final AtomicLongArray sums;
+        private final AtomicLongArray mins;
+        private final AtomicLongArray maxes;
+
+        ThreadRing(Thread owner, int numberOfBuckets) {
+            this.owner = new WeakReference<>(owner);
+            epochs = new AtomicIntegerArray(numberOfBuckets);
+            generations = new AtomicIntegerArray(numberOfBuckets);
+            counts = new AtomicLongArray(numberOfBuckets);
+            sums = new AtomicLongArray(numberOfBuckets);
+            mins = new AtomicLongArray(numberOfBuckets);
+            maxes = new AtomicLongArray(numberOfBuckets);
+            for (int i = 0; i < numberOfBuckets; i++) {
+                epochs.set(i, Integer.MIN_VALUE);
+            }
+        }
+
+        /**
+         * Must only be called by the owner thread.
+         */
+        void add(int epoch, int generation, double value) {
+            long s = sequence.get();
+            sequence.lazySet(s + 1);
+            int slot = Math.floorMod(epoch, epochs.length());
+            if (epochs.get(slot) != epoch || generations.get(slot) != generation) {
+                epochs.lazySet(slot, epoch);
+                generations.lazySet(slot, generation);
+                counts.lazySet(slot, 1);
+                sums.lazySet(slot, doubleToRawLongBits(value));
+                mins.lazySet(slot, doubleToRawLongBits(value));
+                maxes.lazySet(slot, doubleToRawLongBits(value));
+            } else {
+                counts.lazySet(slot, counts.get(slot) + 1);
+                sums.lazySet(slot, doubleToRawLongBits(longBitsToDouble(sums.get(slot)) + value));
+                mins.lazySet(slot, doubleToRawLongBits(min(longBitsToDouble(mins.get(slot)), value)));
+                maxes.lazySet(slot, doubleToRawLongBits(max(longBitsToDouble(maxes.get(slot)), value)));
+            }
+            sequence.lazySet(s + 2);
+        }
+
+        /**
+         * Reads count, sum, min and max of the live slots into the given array.
+         *
+         * @return false if the ring holds nothing within the window
+         */
+        boolean aggregate(int epoch, int generation, double[] totals) {
+            int length = epochs.length();
+            while (true) {
+                long before = sequence.get();
+                if ((before & 1) != 0) {
+                    Thread.yield();
+                    continue;
+                }
+                long count = 0;
+                double sum = 0.0;
+                double min = Double.MAX_VALUE;
+                double max = -Double.MAX_VALUE;
+                for (int i = 0; i < length; i++) {
+                    int e = epochs.get(i);
+                    long c = counts.get(i);
+                    if (e > epoch - length && e <= epoch && generations.get(i) == generation && c > 0) {
+                        count += c;
+                        sum += longBitsToDouble(sums.get(i));
+                        min = min(min, longBitsToDouble(mins.get(i)));
+                        max = max(max, longBitsToDouble(maxes.get(i)));
+                    }
+                }
+                if (sequence.get() != before) {
+                    continue;
+                }
+                totals[0] = count;
+                totals[1] = sum;
+                totals[2] = min;
+                totals[3] = max;
+                return count > 0;
+            }
+        }
+
+        boolean isOwnerAlive() {
+            Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.n26;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.StrictMath.max;
+import static java.lang.StrictMath.min;
+
+/**
+ * Closed per minute, per hour and per day totals, aligned to UTC wall clock boundaries. Fed with sealed buckets by
+ * {@link N26RollingStatistics}, so there is neither a second ingest path nor any re-aggregation on reads: every unit
+ * keeps one open accumulator and a small ring of the last closed windows.
+ *
+ *<br>
+ * A bucket is accounted to the window its start falls into, buckets are not aligned to the boundaries so a window may
+ * hold up to one bucket worth of values of its neighbour. A window closes with the sealed bucket which reaches its end,
+ * a couple of buckets after the boundary, or at the latest when a bucket of a later window is sealed. Windows which
+ * ended while the ring sat idle are closed when it is reset, see {@link #closeEnded(long)}. A closed window is never
+ * reopened: a late bucket of a window which is closed already is dropped and counted, see {@link #getDropped(TimeUnit)}.
+ * Variance and percentiles are not kept.
+ *
+ * @author Andrew Polyakov
+ */
+public class TumblingWindows implements N26RollingStatistics.SealedBucketListener {
+
+    static final TimeUnit[] UNITS = {TimeUnit.MINUTES, TimeUnit.HOURS, TimeUnit.DAYS};
+
+    private final Map<TimeUnit, Accumulator> accumulators = new EnumMap<>(TimeUnit.class);
+
+    public TumblingWindows(int capacity) {
+        for (TimeUnit unit : UNITS) {
+            accumulators.put(unit, new Accumulator(unit.toMillis(1), capacity));
+        }
+    }
+
+    /**
+     * @param unit {@code minute}, {@code hour} or {@code day}, case insensitive
+     * @throws IllegalArgumentException for anything else
+     */
+    public static TimeUnit parseUnit(String unit) {
+        String name = unit.toUpperCase(Locale.ROOT) + "S";
+        for (TimeUnit u : UNITS) {
+            if (u.name().equals(name)) {
+                return u;
+            }
+        }
+        throw new IllegalArgumentException("Unknown unit " + unit + ", expected minute, hour or day");
+    }
+
+    @Override
+    public synchronized void onSealed(long windowStart, long windowEnd, N26RollingStatistics.AggregatedStatistics bucket) {
+        for (Accumulator accumulator : accumulators.values()) {
+            accumulator.add(windowStart, windowEnd, bucket);
+        }
+    }
+
+    /**
+     * Closes the open windows which ended by the given time. Only to be called when no bucket which started before it
+     * is left to be sealed, e.g. when the ring is reset.
+     */
+    public synchronized void closeEnded(long time) {
+        for (Accumulator accumulator : accumulators.values()) {
+            accumulator.closeEnded(time);
+        }
+    }
+
+    /**
+     * @return closed windows of the unit, the most recent first
+     */
+    public synchronized List<Window> getClosed(TimeUnit unit) {
+        Accumulator accumulator = accumulators.get(unit);
+        if (accumulator == null) {
+            throw new IllegalArgumentException("Unsupported unit " + unit);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(accumulator.closed));
+    }
+
+    /**
+     * @return sealed buckets which were not accounted to any window of the unit because their window was closed already
+     */
+    public synchronized long getDropped(TimeUnit unit) {
+        Accumulator accumulator = accumulators.get(unit);
+        if (accumulator == null) {
+            throw new IllegalArgumentException("Unsupported unit " + unit);
+        }
+        return accumulator.dropped;
+    }
+
+    /**
+     * Totals of a closed window.
+     */
+    public static class Window {
+        final long start;
+        final long end;
+        final N26RollingStatistics.AggregatedStatistics statistics;
+
+        public Window(long start, long end, N26RollingStatistics.AggregatedStatistics statistics) {
+            this.start = start;
+            this.end = end;
+            this.statistics = statistics;
+        }
+
+        /**
+         * @return start of the window in epoch millis, inclusive
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * @return end of the window in epoch millis, exclusive
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        public N26RollingStatistics.AggregatedStatistics getStatistics() {
+            return statistics;
+        }
+    }
+
+    private static final class Accumulator {
+        private final long length;
+        private final int capacity;
+        private final Deque<Window> closed = new ArrayDeque<>();
+
+        private long start = Long.MIN_VALUE;
+        /* start of the most recently closed window, nothing at or before it is accounted any more */
+        private long lastClosed = Long.MIN_VALUE;
+        private long dropped;
+        private long size;
+        private double sum;
+        private double min;
+        private double max;
+        private int scale = -1;
+        private long sumUnits;
+        private long minUnits;
+        private long maxUnits;
+
+        Accumulator(long length, int capacity) {
+            this.length = length;
+            this.capacity = capacity;
+        }
+
+        void add(long windowStart, long windowEnd, N26RollingStatistics.AggregatedStatistics bucket) {
+            long bucketWindow = Math.floorDiv(windowStart, length) * length;
+            if (bucketWindow <= lastClosed || (start != Long.MIN_VALUE && bucketWindow < start)) {
+                dropped++; // a late bucket of a window which is closed already
+                return;
+            }
+            if (bucketWindow != start) {
+                if (start != Long.MIN_VALUE) {
+                    close();
+                }
+                open(bucketWindow);
+            }
+            accumulate(bucket);
+            closeEnded(windowEnd);
+        }
+
+        void closeEnded(long time) {
+            if (start != Long.MIN_VALUE && start + length <= time) {
+                close();
+            }
+        }
+
+        private void accumulate(N26RollingStatistics.AggregatedStatistics bucket) {
+            if (bucket.getSize() < 1) {
+                return;
+            }
+            sum += bucket.getSum();
+            min = size == 0 ? bucket.getMin() : min(min, bucket.getMin());
+            max = size == 0 ? bucket.getMax() : max(max, bucket.getMax());
+            if (bucket.isExact()) {
+                scale = bucket.getScale();
+                minUnits = size == 0 ? bucket.getMinUnits() : Math.min(minUnits, bucket.getMinUnits());
+                maxUnits = size == 0 ? bucket.getMaxUnits() : Math.max(maxUnits, bucket.getMaxUnits());
+                sumUnits += bucket.getSumUnits();
+            }
+            size += bucket.getSize();
+        }
+
+        private void open(long windowStart) {
+            start = windowStart;
+            size = 0;
+            sum = 0.0;
+            min = 0.0;
+            max = 0.0;
+            scale = -1;
+            sumUnits = 0;
+            minUnits = 0;
+            maxUnits = 0;
+        }
+
+        private void close() {
+            N26RollingStatistics.AggregatedStatistics statistics;
+            if (size == 0) {
+                statistics = N26RollingStatistics.EMPTY;
+            } else {
+                statistics = new N26RollingStatistics.AggregatedStatistics(size, sum, min, max);
+                if (scale >= 0) {
+                    statistics = statistics.withMinorUnits(scale, sumUnits, minUnits, maxUnits);
+                }
+            }
+            closed.addFirst(new Window(start, start + length, statistics));
+            if (closed.size() > capacity) {
+                closed.removeLast();
+            }
+            lastClosed = start;
+            start = Long.MIN_VALUE;
+        }
+    }
+}
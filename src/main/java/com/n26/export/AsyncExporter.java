@@ -0,0 +1,163 @@
+package com.n26.export;
+
+import com.n26.N26RollingStatistics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ships every sealed bucket to an {@link ExportSink} off the rotation path. {@link #onSealed} only offers to a bounded
+ * queue and counts a drop if it is full, it never blocks. A single daemon thread drains the queue and hands batches of
+ * up to {@code batchSize} records to the sink, a partial batch waits at most {@code flushIntervalInMilliseconds}.
+ *
+ *<br>
+ * Failures of the sink are counted and the batch is dropped, see {@link #getFailed()}.
+ *
+ * @author Andrew Polyakov
+ */
+public class AsyncExporter implements N26RollingStatistics.SealedBucketListener, Closeable {
+
+    private final ExportSink sink;
+    private final BlockingQueue<ExportRecord> queue;
+    private final int batchSize;
+    private final long flushIntervalInMilliseconds;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final LongAdder exported = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public AsyncExporter(ExportSink sink, int queueCapacity, int batchSize, long flushIntervalInMilliseconds) {
+        if (queueCapacity <= 0 || batchSize <= 0 || flushIntervalInMilliseconds <= 0) {
+            throw new IllegalArgumentException("The queueCapacity, batchSize and flushIntervalInMilliseconds must be positive");
+        }
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalInMilliseconds = flushIntervalInMilliseconds;
+        this.writer = new Thread(this::drain, "statistics-exporter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Exporter which does nothing, when no sink is configured.
+     */
+    private AsyncExporter() {
+        sink = null;
+        queue = null;
+        batchSize = 0;
+        flushIntervalInMilliseconds = 0;
+        writer = null;
+    }
+
+    public static AsyncExporter disabled() {
+        return new AsyncExporter();
+    }
+
+    public boolean isEnabled() {
+        return sink != null;
+    }
+
+    @Override
+    public void onSealed(long windowStart, long windowEnd, N26RollingStatistics.AggregatedStatistics bucket) {
+        if (queue == null) {
+            return;
+        }
+        if (closed || !queue.offer(new ExportRecord(windowStart, windowEnd, bucket))) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * @return records handed to the sink successfully
+     */
+    public long getExported() {
+        return exported.sum();
+    }
+
+    /**
+     * @return records which did not fit into the queue
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return records lost to failed writes of the sink
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Writes what is queued, then closes the sink. Records offered afterwards are dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        if (writer == null || closed) {
+            return;
+        }
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+    }
+
+    private void drain() {
+        List<ExportRecord> batch = new ArrayList<>(batchSize);
+        while (!closed) {
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalInMilliseconds);
+                ExportRecord first = queue.poll(flushIntervalInMilliseconds, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() == batchSize || remaining <= 0) {
+                        break;
+                    }
+                    ExportRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // closing, flush what we have below
+            }
+            write(batch);
+        }
+        write(batch);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+        }
+    }
+
+    private void write(List<ExportRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            sink.write(batch);
+            exported.add(batch.size());
+        } catch (IOException | RuntimeException e) {
+            failed.add(batch.size());
+        }
+        batch.clear();
+    }
+}
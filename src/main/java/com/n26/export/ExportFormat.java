@@ -0,0 +1,67 @@
+package com.n26.export;
+
+import com.n26.N26RollingStatistics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text formats of the built in sinks, one line per bucket.
+ *
+ * @author Andrew Polyakov
+ */
+public enum ExportFormat {
+
+    /**
+     * Comma separated values with a header line at the top of every file.
+     */
+    CSV {
+        @Override
+        public String header() {
+            return "window_start,window_end,count,sum,min,max,avg";
+        }
+
+        @Override
+        public String format(ExportRecord r) {
+            N26RollingStatistics.AggregatedStatistics s = r.statistics;
+            return r.windowStart + "," + r.windowEnd + "," + s.getSize() + "," + s.getSum() + "," + s.getMin() + ","
+                    + s.getMax() + "," + s.getAvg();
+        }
+    },
+
+    /**
+     * InfluxDB line protocol, timestamps in nanoseconds.
+     */
+    LINE_PROTOCOL {
+        @Override
+        public String header() {
+            return null;
+        }
+
+        @Override
+        public String format(ExportRecord r) {
+            N26RollingStatistics.AggregatedStatistics s = r.statistics;
+            return "n26_statistics count=" + s.getSize() + "i,sum=" + s.getSum() + ",min=" + s.getMin() + ",max="
+                    + s.getMax() + ",avg=" + s.getAvg() + " " + TimeUnit.MILLISECONDS.toNanos(r.windowStart);
+        }
+    };
+
+    /**
+     * @return first line of every file, null if the format has none
+     */
+    public abstract String header();
+
+    public abstract String format(ExportRecord record);
+
+    /**
+     * @param name {@code csv} or {@code line-protocol}, case insensitive
+     * @throws IllegalArgumentException for anything else
+     */
+    public static ExportFormat parse(String name) {
+        for (ExportFormat format : values()) {
+            if (format.name().replace('_', '-').equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format " + name + ", expected csv or line-protocol");
+    }
+}
@@ -0,0 +1,38 @@
+package com.n26.export;
+
+import com.n26.N26RollingStatistics;
+
+/**
+ * Final totals of one sealed bucket on their way to an {@link ExportSink}.
+ *
+ * @author Andrew Polyakov
+ */
+public class ExportRecord {
+    final long windowStart;
+    final long windowEnd;
+    final N26RollingStatistics.AggregatedStatistics statistics;
+
+    public ExportRecord(long windowStart, long windowEnd, N26RollingStatistics.AggregatedStatistics statistics) {
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return start of the bucket in epoch millis, inclusive
+     */
+    public long getWindowStart() {
+        return windowStart;
+    }
+
+    /**
+     * @return end of the bucket in epoch millis, exclusive
+     */
+    public long getWindowEnd() {
+        return windowEnd;
+    }
+
+    public N26RollingStatistics.AggregatedStatistics getStatistics() {
+        return statistics;
+    }
+}
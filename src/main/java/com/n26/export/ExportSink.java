@@ -0,0 +1,19 @@
+package com.n26.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of sealed buckets, called by the single writer thread of {@link AsyncExporter} only, so implementations
+ * need not be thread safe and may block on I/O.
+ *
+ * @author Andrew Polyakov
+ */
+public interface ExportSink extends Closeable {
+
+    /**
+     * Writes and flushes a batch. A failed batch is counted and dropped, the next one is tried regardless.
+     */
+    void write(List<ExportRecord> batch) throws IOException;
+}
@@ -0,0 +1,98 @@
+package com.n26.export;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Appends to a local file which is rolled over by size: {@code file} is renamed to {@code file.1}, {@code file.1} to
+ * {@code file.2} and so on, the oldest beyond the configured count is deleted. Every file starts with the header of
+ * the format.
+ *
+ * @author Andrew Polyakov
+ */
+public class RollingFileSink implements ExportSink {
+
+    private final File file;
+    private final ExportFormat format;
+    private final long maxBytes;
+    private final int maxFiles;
+
+    private Writer writer;
+    private long written;
+
+    /**
+     * @param maxBytes size after which the file is rolled over, it may be exceeded by one batch
+     * @param maxFiles number of rolled over files kept besides the current one
+     */
+    public RollingFileSink(File file, ExportFormat format, long maxBytes, int maxFiles) throws IOException {
+        if (maxBytes <= 0 || maxFiles < 0) {
+            throw new IllegalArgumentException("The maxBytes must be positive and maxFiles must not be negative");
+        }
+        this.file = file.getAbsoluteFile();
+        this.format = format;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        File parent = this.file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        open();
+    }
+
+    @Override
+    public void write(List<ExportRecord> batch) throws IOException {
+        if (written >= maxBytes) {
+            roll();
+        }
+        StringBuilder lines = new StringBuilder();
+        for (ExportRecord record : batch) {
+            lines.append(format.format(record)).append('\n');
+        }
+        writer.write(lines.toString());
+        writer.flush();
+        // records are ASCII
+        written += lines.length();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void open() throws IOException {
+        written = file.length();
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.US_ASCII));
+        if (written == 0 && format.header() != null) {
+            writer.write(format.header() + "\n");
+            written += format.header().length() + 1;
+        }
+    }
+
+    private void roll() throws IOException {
+        writer.close();
+        File oldest = rolled(maxFiles);
+        if (oldest.exists() && !oldest.delete()) {
+            throw new IOException("Cannot delete " + oldest);
+        }
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File f = rolled(i);
+            if (f.exists() && !f.renameTo(rolled(i + 1))) {
+                throw new IOException("Cannot rename " + f);
+            }
+        }
+        if (maxFiles > 0 && !file.renameTo(rolled(1))) {
+            throw new IOException("Cannot rename " + file);
+        }
+        open();
+    }
+
+    private File rolled(int n) {
+        return n == 0 ? file : new File(file.getPath() + "." + n);
+    }
+}
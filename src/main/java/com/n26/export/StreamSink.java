@@ -0,0 +1,41 @@
+package com.n26.export;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Writes to a stream, e.g. {@code System.out} for a log shipper picking up the container output.
+ *
+ * @author Andrew Polyakov
+ */
+public class StreamSink implements ExportSink {
+
+    private final PrintStream out;
+    private final ExportFormat format;
+    private boolean started;
+
+    public StreamSink(PrintStream out, ExportFormat format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    @Override
+    public void write(List<ExportRecord> batch) {
+        if (!started && format.header() != null) {
+            out.println(format.header());
+        }
+        started = true;
+        for (ExportRecord record : batch) {
+            out.println(format.format(record));
+        }
+        out.flush();
+    }
+
+    /**
+     * Leaves the stream open, it is not owned by the sink.
+     */
+    @Override
+    public void close() {
+        out.flush();
+    }
+}
@@ -0,0 +1,245 @@
+package com.n26.history;
+
+/**
+ * Fixed size block of points compressed the way Facebook's Gorilla does it. Timestamps are stored as delta of deltas,
+ * which costs a single bit for every point of a regular series, and every value column as the XOR with its previous
+ * value, which costs a single bit for a repeated value and only the meaningful bits of the XOR otherwise.
+ *
+ *<br>
+ * A point carries a timestamp and four double columns, all of it in one bit stream in append order. Blocks are
+ * append only and decoded sequentially from their start. Not thread safe, see {@link HistoryStore}.
+ *
+ * @author Andrew Polyakov
+ */
+public final class GorillaBlock {
+
+    /* timestamp: 4 bit header and 64 bits, every column: 2 bit header, 5 bits leading zeros, 6 bits length, 64 bits */
+    static final int MAX_POINT_BITS = 68 + 4 * 77;
+
+    static final int COLUMNS = 4;
+
+    private final long[] words;
+    private final int capacityInBits;
+    private int bits;
+    private int size;
+
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+    private final long[] lastValues = new long[COLUMNS];
+    private final int[] lastLeading = new int[COLUMNS];
+    private final int[] lastTrailing = new int[COLUMNS];
+
+    public GorillaBlock(int sizeInBytes) {
+        if (sizeInBytes * 8 < MAX_POINT_BITS) {
+            throw new IllegalArgumentException("A block must have room for at least one point");
+        }
+        this.words = new long[sizeInBytes / 8];
+        this.capacityInBits = words.length * 64;
+    }
+
+    /**
+     * Consumer of decoded points, see {@link #forEach(PointConsumer)}.
+     */
+    public interface PointConsumer {
+        void accept(long timestamp, double count, double sum, double min, double max);
+    }
+
+    /**
+     * @return false if the block is full, nothing was written then
+     */
+    public boolean append(long timestamp, double count, double sum, double min, double max) {
+        if (bits + MAX_POINT_BITS > capacityInBits) {
+            return false;
+        }
+        writeTimestamp(timestamp);
+        writeValue(0, count);
+        writeValue(1, sum);
+        writeValue(2, min);
+        writeValue(3, max);
+        size++;
+        return true;
+    }
+
+    public void forEach(PointConsumer consumer) {
+        Reader reader = new Reader();
+        for (int i = 0; i < size; i++) {
+            long timestamp = reader.readTimestamp(i);
+            double count = reader.readValue(0, i);
+            double sum = reader.readValue(1, i);
+            double min = reader.readValue(2, i);
+            double max = reader.readValue(3, i);
+            consumer.accept(timestamp, count, sum, min, max);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return timestamp of the first point, undefined for an empty block
+     */
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    /**
+     * @return timestamp of the last point, undefined for an empty block
+     */
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public int getSizeInBytes() {
+        return words.length * 8;
+    }
+
+    /**
+     * @return bits written so far, to tell the compression ratio
+     */
+    public int getUsedBits() {
+        return bits;
+    }
+
+    private void writeTimestamp(long timestamp) {
+        if (size == 0) {
+            write(timestamp, 64);
+            firstTimestamp = timestamp;
+            lastTimestamp = timestamp;
+            lastDelta = 0;
+            return;
+        }
+        long delta = timestamp - lastTimestamp;
+        long dod = delta - lastDelta;
+        if (dod == 0) {
+            write(0, 1);
+        } else if (dod >= -63 && dod <= 64) {
+            write(0b10, 2);
+            write(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            write(0b110, 3);
+            write(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            write(0b1110, 4);
+            write(dod + 2047, 12);
+        } else {
+            write(0b1111, 4);
+            write(dod, 64);
+        }
+        lastDelta = delta;
+        lastTimestamp = timestamp;
+    }
+
+    private void writeValue(int column, double value) {
+        long v = Double.doubleToRawLongBits(value);
+        if (size == 0) {
+            write(v, 64);
+            lastValues[column] = v;
+            lastLeading[column] = -1;
+            return;
+        }
+        long xor = v ^ lastValues[column];
+        lastValues[column] = v;
+        if (xor == 0) {
+            write(0, 1);
+            return;
+        }
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (lastLeading[column] >= 0 && leading >= lastLeading[column] && trailing >= lastTrailing[column]) {
+            // fits into the meaningful bits of the previous value
+            write(0b10, 2);
+            write(xor >>> lastTrailing[column], 64 - lastLeading[column] - lastTrailing[column]);
+        } else {
+            int significant = 64 - leading - trailing;
+            write(0b11, 2);
+            write(leading, 5);
+            write(significant - 1, 6);
+            write(xor >>> trailing, significant);
+            lastLeading[column] = leading;
+            lastTrailing[column] = trailing;
+        }
+    }
+
+    /**
+     * Appends the low n bits of the value, most significant first.
+     */
+    private void write(long value, int n) {
+        long v = n == 64 ? value : value & ((1L << n) - 1);
+        int index = bits >>> 6;
+        int free = 64 - (bits & 63);
+        if (n <= free) {
+            words[index] |= v << (free - n);
+        } else {
+            words[index] |= v >>> (n - free);
+            words[index + 1] |= v << (64 - (n - free));
+        }
+        bits += n;
+    }
+
+    /**
+     * Mirror of the writer state, walks the block from its start.
+     */
+    private final class Reader {
+        private int position;
+        private long timestamp;
+        private long delta;
+        private final long[] values = new long[COLUMNS];
+        private final int[] leading = new int[COLUMNS];
+        private final int[] trailing = new int[COLUMNS];
+
+        long readTimestamp(int i) {
+            if (i == 0) {
+                timestamp = read(64);
+                delta = 0;
+                return timestamp;
+            }
+            long dod;
+            if (read(1) == 0) {
+                dod = 0;
+            } else if (read(1) == 0) {
+                dod = read(7) - 63;
+            } else if (read(1) == 0) {
+                dod = read(9) - 255;
+            } else if (read(1) == 0) {
+                dod = read(12) - 2047;
+            } else {
+                dod = read(64);
+            }
+            delta += dod;
+            timestamp += delta;
+            return timestamp;
+        }
+
+        double readValue(int column, int i) {
+            if (i == 0) {
+                values[column] = read(64);
+                return Double.longBitsToDouble(values[column]);
+            }
+            if (read(1) != 0) {
+                if (read(1) != 0) {
+                    leading[column] = (int) read(5);
+                    int significant = (int) read(6) + 1;
+                    trailing[column] = 64 - leading[column] - significant;
+                }
+                int significant = 64 - leading[column] - trailing[column];
+                values[column] ^= read(significant) << trailing[column];
+            }
+            return Double.longBitsToDouble(values[column]);
+        }
+
+        private long read(int n) {
+            int index = position >>> 6;
+            int free = 64 - (position & 63);
+            long v;
+            if (n <= free) {
+                v = words[index] >>> (free - n);
+            } else {
+                v = (words[index] << (n - free)) | (words[index + 1] >>> (64 - (n - free)));
+            }
+            position += n;
+            return n == 64 ? v : v & ((1L << n) - 1);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.n26.history;
+
+import com.n26.N26RollingStatistics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * In process history of sealed buckets, kept long after they left the ring of {@link N26RollingStatistics}. Count,
+ * sum, min and max of every bucket are appended to {@link GorillaBlock}s of {@link #BLOCK_SIZE_IN_BYTES}, a regular
+ * series of idle or steady buckets costs a few bits per bucket, busy ones typically 15 to 25 bytes.
+ *
+ *<br>
+ * Memory is bounded by a budget in bytes: once it is used up, the oldest block is dropped for every new one. Appends
+ * happen on the rotation path, reads are ad hoc, both synchronize on the store.
+ *
+ * @author Andrew Polyakov
+ */
+public class HistoryStore implements N26RollingStatistics.SealedBucketListener {
+
+    static final int BLOCK_SIZE_IN_BYTES = 4096;
+
+    private final int maxBlocks;
+    private final Deque<GorillaBlock> blocks = new ArrayDeque<>();
+
+    public HistoryStore(long memoryBudgetInBytes) {
+        if (memoryBudgetInBytes < BLOCK_SIZE_IN_BYTES) {
+            throw new IllegalArgumentException("The memoryBudgetInBytes must hold at least one block of "
+                    + BLOCK_SIZE_IN_BYTES + " bytes");
+        }
+        this.maxBlocks = (int) Math.min(Integer.MAX_VALUE, memoryBudgetInBytes / BLOCK_SIZE_IN_BYTES);
+    }
+
+    @Override
+    public synchronized void onSealed(long windowStart, long windowEnd, N26RollingStatistics.AggregatedStatistics bucket) {
+        GorillaBlock last = blocks.peekLast();
+        if (last == null || !last.append(windowStart, bucket.getSize(), bucket.getSum(), bucket.getMin(), bucket.getMax())) {
+            if (blocks.size() == maxBlocks) {
+                blocks.removeFirst();
+            }
+            last = new GorillaBlock(BLOCK_SIZE_IN_BYTES);
+            last.append(windowStart, bucket.getSize(), bucket.getSum(), bucket.getMin(), bucket.getMax());
+            blocks.addLast(last);
+        }
+    }
+
+    /**
+     * Decodes the blocks overlapping the range only.
+     *
+     * @param from start of the range in epoch millis, inclusive
+     * @param to   end of the range in epoch millis, exclusive
+     * @return buckets starting within the range, the oldest first
+     */
+    public synchronized List<Point> range(long from, long to) {
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        List<Point> result = new ArrayList<>();
+        for (GorillaBlock block : blocks) {
+            if (block.getLastTimestamp() < from || block.getFirstTimestamp() >= to) {
+                continue;
+            }
+            block.forEach((timestamp, count, sum, min, max) -> {
+                if (timestamp >= from && timestamp < to) {
+                    result.add(new Point(timestamp, count < 1
+                            ? N26RollingStatistics.EMPTY
+                            : new N26RollingStatistics.AggregatedStatistics((long) count, sum, min, max)));
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * @return start of the oldest bucket still held, -1 if there is none
+     */
+    public synchronized long getOldest() {
+        GorillaBlock first = blocks.peekFirst();
+        return first == null ? -1 : first.getFirstTimestamp();
+    }
+
+    /**
+     * @return bytes allocated by the blocks, never more than the budget
+     */
+    public synchronized long getMemoryUsage() {
+        return (long) blocks.size() * BLOCK_SIZE_IN_BYTES;
+    }
+
+    /**
+     * Totals of a bucket from the history. Only count, sum, min, max and avg are kept.
+     */
+    public static class Point {
+        final long windowStart;
+        final N26RollingStatistics.AggregatedStatistics statistics;
+
+        public Point(long windowStart, N26RollingStatistics.AggregatedStatistics statistics) {
+            this.windowStart = windowStart;
+            this.statistics = statistics;
+        }
+
+        public long getWindowStart() {
+            return windowStart;
+        }
+
+        public N26RollingStatistics.AggregatedStatistics getStatistics() {
+            return statistics;
+        }
+    }
+}
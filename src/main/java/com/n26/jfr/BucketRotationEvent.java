@@ -0,0 +1,32 @@
+package com.n26.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timestamp;
+
+/**
+ * One pass of the rotation loop in {@code N26RollingStatistics.getCurrentBucket()}, spanning every bucket it added
+ * to catch up with the clock and the listeners of the buckets it sealed.
+ *
+ * @author Andrew Polyakov
+ */
+@Name("com.n26.BucketRotation")
+@Label("Bucket Rotation")
+@Category({"N26", "Rolling Statistics"})
+@Description("Buckets added to catch up with the clock, while holding the rotation lock")
+@StackTrace(false)
+public class BucketRotationEvent extends Event {
+
+    @Label("Buckets")
+    @Description("Buckets added, more than one after a quiet period")
+    public int buckets;
+
+    @Label("Window Start")
+    @Description("Start of the newest bucket")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    public long windowStart;
+}
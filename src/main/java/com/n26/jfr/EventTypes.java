@@ -0,0 +1,26 @@
+package com.n26.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+/**
+ * The only class outside the events which links {@code jdk.jfr}, initialized by {@link FlightEvents} once it knows
+ * the module is there.
+ *
+ * @author Andrew Polyakov
+ */
+final class EventTypes {
+
+    static final FlightEvents.Gate ROTATION = of(BucketRotationEvent.class);
+    static final FlightEvents.Gate RESET = of(ResetEvent.class);
+    static final FlightEvents.Gate LOCK_MISS = of(LockMissEvent.class);
+    static final FlightEvents.Gate EXPIRED = of(ExpiredTransactionEvent.class);
+    static final FlightEvents.Gate SLOW_ROLLING = of(SlowRollingEvent.class);
+
+    private EventTypes() {
+    }
+
+    private static FlightEvents.Gate of(Class<? extends Event> event) {
+        return EventType.getEventType(event)::isEnabled;
+    }
+}
@@ -0,0 +1,31 @@
+package com.n26.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+/**
+ * A transaction rejected for being older than the window.
+ *
+ * @author Andrew Polyakov
+ */
+@Name("com.n26.ExpiredTransaction")
+@Label("Expired Transaction")
+@Category({"N26", "Rolling Statistics"})
+@Description("Transaction older than the window, not accounted")
+@StackTrace(false)
+public class ExpiredTransactionEvent extends Event {
+
+    @Label("Transaction Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    public long transactionTime;
+
+    @Label("Age")
+    @Timespan(Timespan.MILLISECONDS)
+    public long age;
+}
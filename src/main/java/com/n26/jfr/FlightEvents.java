@@ -0,0 +1,48 @@
+package com.n26.jfr;
+
+/**
+ * Enablement checks of the Flight Recorder events of the engine. Check before creating an event: on a JVM with Flight
+ * Recorder the check is a plain field read of the event type and false unless a recording asks for the event, so the
+ * hot path neither allocates nor reads the clock when nothing is recorded.
+ *
+ *<br>
+ * Java 8 runtimes may come without {@code jdk.jfr}. There every check is false and no event class is ever loaded,
+ * the event types are only touched through {@link EventTypes} once the module was found.
+ *
+ *<br>
+ * Record with e.g. {@code -XX:StartFlightRecording=filename=n26.jfr}, the events show up under N26 in Mission Control.
+ *
+ * @author Andrew Polyakov
+ */
+public final class FlightEvents {
+
+    /* whether this runtime has jdk.jfr at all */
+    static final boolean AVAILABLE = isAvailable();
+
+    public static final Gate ROTATION = AVAILABLE ? EventTypes.ROTATION : Gate.OFF;
+    public static final Gate RESET = AVAILABLE ? EventTypes.RESET : Gate.OFF;
+    public static final Gate LOCK_MISS = AVAILABLE ? EventTypes.LOCK_MISS : Gate.OFF;
+    public static final Gate EXPIRED = AVAILABLE ? EventTypes.EXPIRED : Gate.OFF;
+    public static final Gate SLOW_ROLLING = AVAILABLE ? EventTypes.SLOW_ROLLING : Gate.OFF;
+
+    private FlightEvents() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.EventType", false, FlightEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Whether an event is recorded.
+     */
+    public interface Gate {
+        Gate OFF = () -> false;
+
+        boolean isEnabled();
+    }
+}
@@ -0,0 +1,28 @@
+package com.n26.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A caller of {@code N26RollingStatistics.getCurrentBucket()} lost the tryLock to the thread rotating and went on with
+ * the bucket which was current before.
+ *
+ * @author Andrew Polyakov
+ */
+@Name("com.n26.LockMiss")
+@Label("Rotation Lock Miss")
+@Category({"N26", "Rolling Statistics"})
+@Description("Rotation in progress elsewhere, the value went into the previous bucket")
+@StackTrace(false)
+public class LockMissEvent extends Event {
+
+    @Label("Stale")
+    @Description("How long the bucket used had been over, 0 while the very first bucket is created")
+    @Timespan(Timespan.MILLISECONDS)
+    public long stale;
+}
@@ -0,0 +1,27 @@
+package com.n26.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * All buckets dropped at once, either on request or because nothing rolled the window for longer than the window.
+ *
+ * @author Andrew Polyakov
+ */
+@Name("com.n26.Reset")
+@Label("Reset")
+@Category({"N26", "Rolling Statistics"})
+@Description("All buckets cleared, including the wait for the rotation lock")
+public class ResetEvent extends Event {
+
+    @Label("Buckets")
+    @Description("Buckets dropped")
+    public int buckets;
+
+    @Label("Idle")
+    @Description("Whether the window went by without a read or a write, rather than an explicit reset")
+    public boolean idle;
+}
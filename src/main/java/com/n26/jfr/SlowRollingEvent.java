@@ -0,0 +1,29 @@
+package com.n26.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A call of {@code N26RollingStatistics.getRolling()} which took longer than the threshold, 10 ms unless the
+ * recording says otherwise.
+ *
+ * @author Andrew Polyakov
+ */
+@Name("com.n26.SlowRolling")
+@Label("Slow Rolling Statistics")
+@Category({"N26", "Rolling Statistics"})
+@Description("Folding the window took longer than the threshold")
+@Threshold("10 ms")
+public class SlowRollingEvent extends Event {
+
+    @Label("Count")
+    @Description("Values in the window")
+    public long count;
+
+    @Label("Buckets")
+    public int buckets;
+}
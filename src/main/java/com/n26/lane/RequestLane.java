@@ -0,0 +1,141 @@
+package com.n26.lane;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed pool of threads with a bounded queue of its own, serving one class of requests. Giving reads and writes a
+ * lane each keeps a storm of one from queueing up the other: a full lane rejects at once instead of borrowing threads
+ * or growing its queue, see {@link #execute(Runnable)}.
+ *
+ *<br>
+ * Counts what it accepted, completed and rejected and how long tasks waited in the queue, so that a saturated lane
+ * shows up in the metrics before its callers time out.
+ *
+ * @author Andrew Polyakov
+ */
+public class RequestLane implements Closeable {
+
+    private final String name;
+    private final int threads;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+
+    public RequestLane(String name, int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("The threads and queueCapacity must be positive");
+        }
+        this.name = name;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new LaneThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+        executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Queues the task, never blocks.
+     *
+     * @return false if the queue is full or the lane is closed, the task will not run then
+     */
+    public boolean execute(Runnable task) {
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                queueWaitNanos.add(System.nanoTime() - queuedAt);
+                try {
+                    task.run();
+                } finally {
+                    completed.increment();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            return false;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return tasks waiting for a thread right now
+     */
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return tasks running right now
+     */
+    public int getActive() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return total time the started tasks waited in the queue, divide by {@link #getCompleted()} for a mean
+     */
+    public long getQueueWaitInMicroseconds() {
+        return TimeUnit.NANOSECONDS.toMicros(queueWaitNanos.sum());
+    }
+
+    /**
+     * Lets queued tasks finish for a moment, then interrupts what is still running.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class LaneThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        LaneThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + "-lane-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.n26.money;
+
+/**
+ * Exact decimal arithmetic on {@code long} minor units, e.g. cents for a scale of 2. Amounts are parsed straight
+ * from their decimal text without going through {@code double} or {@code BigDecimal}, digits beyond the scale are
+ * rounded half to even like a ledger would.
+ *
+ * @author Andrew Polyakov
+ */
+public final class FixedPoint {
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Parses a JSON style number such as {@code -12.345} or {@code 1.5E3} into minor units.
+     *
+     * @param text  decimal text
+     * @param scale number of decimal places of a minor unit
+     * @return amount in minor units, rounded half to even
+     * @throws NumberFormatException if the text is not a number
+     * @throws ArithmeticException   if the amount does not fit into a long
+     */
+    public static long parse(CharSequence text, int scale) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        // first pass: locate the exponent and count digits
+        int end = length;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean dot = false;
+        for (int j = i; j < length; j++) {
+            char c = text.charAt(j);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (dot) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else if ((c == 'e' || c == 'E') && digits > 0) {
+                end = j;
+                break;
+            } else {
+                throw new NumberFormatException("Not a number: " + text);
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Not a number: " + text);
+        }
+        int exponent = end < length ? parseExponent(text, end + 1, length) : 0;
+
+        // all digits as one integer D, the amount in minor units is D * 10^shift
+        long shift = (long) scale + exponent - fractionDigits;
+        long keep = digits + Math.min(0, shift);
+        long units = 0;
+        int roundingDigit = 0;
+        boolean sticky = false;
+        int k = 0;
+        for (int j = i; j < end; j++) {
+            char c = text.charAt(j);
+            if (c == '.') {
+                continue;
+            }
+            int d = c - '0';
+            if (k < keep) {
+                units = Math.addExact(Math.multiplyExact(units, 10), d);
+            } else if (k == keep) {
+                roundingDigit = d;
+            } else if (d != 0) {
+                sticky = true;
+            }
+            k++;
+        }
+        if (roundingDigit > 5 || roundingDigit == 5 && (sticky || (units & 1) == 1)) {
+            units = Math.addExact(units, 1);
+        }
+        if (shift > 0 && units != 0) {
+            if (shift >= POWERS_OF_TEN.length) {
+                throw new ArithmeticException("Amount out of range: " + text);
+            }
+            units = Math.multiplyExact(units, POWERS_OF_TEN[(int) shift]);
+        }
+        return negative ? -units : units;
+    }
+
+    private static int parseExponent(CharSequence text, int from, int to) {
+        boolean negative = false;
+        if (from < to && (text.charAt(from) == '-' || text.charAt(from) == '+')) {
+            negative = text.charAt(from) == '-';
+            from++;
+        }
+        if (from == to) {
+            throw new NumberFormatException("Not a number: " + text);
+        }
+        int exponent = 0;
+        for (int j = from; j < to; j++) {
+            char c = text.charAt(j);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a number: " + text);
+            }
+            // anything this large is out of range for a long anyway, just keep it from wrapping around
+            exponent = Math.min(exponent * 10 + (c - '0'), 10_000);
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    /**
+     * Renders minor units as an exact decimal, e.g. {@code 1234} at scale 2 becomes {@code 12.34}.
+     */
+    public static String format(long units, int scale) {
+        StringBuilder sb = new StringBuilder(24);
+        if (units < 0) {
+            sb.append('-');
+        }
+        // works for Long.MIN_VALUE too, since the text of the magnitude is taken from the negative value
+        String digits = Long.toString(units);
+        if (units < 0) {
+            digits = digits.substring(1);
+        }
+        if (scale <= 0) {
+            return sb.append(digits).toString();
+        }
+        if (digits.length() <= scale) {
+            sb.append("0.");
+            for (int i = digits.length(); i < scale; i++) {
+                sb.append('0');
+            }
+            return sb.append(digits).toString();
+        }
+        int point = digits.length() - scale;
+        return sb.append(digits, 0, point).append('.').append(digits, point, digits.length()).toString();
+    }
+
+    /**
+     * Divides minor units by a count, rounding half to even. Used for exact averages.
+     */
+    public static long divide(long units, long count) {
+        long quotient = units / count;
+        long remainder = units % count;
+        if (remainder == 0) {
+            return quotient;
+        }
+        long twice = Math.abs(remainder) * 2;
+        long direction = (units < 0) == (count < 0) ? 1 : -1;
+        if (twice > Math.abs(count) || twice == Math.abs(count) && (quotient & 1) == 1) {
+            quotient += direction;
+        }
+        return quotient;
+    }
+
+    public static double toDouble(long units, int scale) {
+        return scale < POWERS_OF_TEN.length ? units / (double) POWERS_OF_TEN[scale] : units / Math.pow(10, scale);
+    }
+}
@@ -0,0 +1,153 @@
+package com.n26.primitive;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+/**
+ * CAS based summation with Neumaier's compensation. Every stripe keeps a running sum together with the low order bits
+ * lost by it, both replaced at once by CAS on an immutable {@link Partial}. Stripes are folded with the same
+ * compensation on {@link #aggregate()}, so the result is as accurate as a sequential compensated sum no matter how
+ * the values were spread over the stripes.
+ *
+ * <br>
+ * Costs an allocation per update compared to {@link DoubleSum}.
+ *
+ * @author Andrew Polyakov
+ */
+public class CompensatedDoubleSum extends StripedValue<CompensatedDoubleSum.Partial> implements Serializable {
+
+    public CompensatedDoubleSum() {
+        super(Partial.ZERO);
+    }
+
+    /**
+     * Adds the given value to the sum.
+     *
+     * @param x the value to add
+     */
+    public void add(double x) {
+        update(x);
+    }
+
+    @Override
+    Partial fn(Partial current, double x) {
+        return current.add(x);
+    }
+
+    @Override
+    Partial identity() {
+        return Partial.ZERO;
+    }
+
+    /**
+     * @return the compensated sum, see {@link #partial()} for the NOT atomic snapshot caveat
+     */
+    public double aggregate() {
+        return partial().value();
+    }
+
+    /**
+     * Returns the sum together with its compensation, to be folded further without losing precision, e.g. across
+     * buckets. The returned value is <em>NOT</em> an atomic snapshot: concurrent updates that occur while the stripes
+     * are combined might not be incorporated.
+     *
+     * @return combined partial sum
+     */
+    public Partial partial() {
+        Partial result = cast(base);
+        Cell[] as = cells;
+        if (as != null) {
+            for (Cell a : as) {
+                if (a != null) {
+                    result = result.combine(cast(a.value));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Folds the stripes into the base and drops the cell table, see {@link N26DoublePrimitive#compact()}.
+     */
+    public void compact() {
+        compact(partial());
+    }
+
+    public void reset() {
+        Cell[] as = cells;
+        base = Partial.ZERO;
+        if (as != null) {
+            for (Cell a : as) {
+                if (a != null)
+                    a.value = Partial.ZERO;
+            }
+        }
+    }
+
+    public String toString() {
+        return Double.toString(aggregate());
+    }
+
+    private void writeObject(java.io.ObjectOutputStream s) throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeObject(partial());
+    }
+
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        busy = 0;
+        cells = null;
+        base = s.readObject();
+    }
+
+    /**
+     * Immutable running sum and the compensation for the rounding errors it has accumulated.
+     */
+    public static final class Partial implements Serializable {
+
+        public static final Partial ZERO = new Partial(0.0, 0.0);
+
+        private final double sum;
+        private final double compensation;
+
+        public Partial(double sum, double compensation) {
+            this.sum = sum;
+            this.compensation = compensation;
+        }
+
+        /**
+         * Neumaier's variant of Kahan summation, which stays exact also when the added value is larger than the sum.
+         */
+        public Partial add(double x) {
+            double t = sum + x;
+            double c;
+            if (Math.abs(sum) >= Math.abs(x)) {
+                c = (sum - t) + x;
+            } else {
+                c = (x - t) + sum;
+            }
+            return new Partial(t, compensation + c);
+        }
+
+        public Partial combine(Partial other) {
+            Partial result = add(other.sum);
+            return new Partial(result.sum, result.compensation + other.compensation);
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public double getCompensation() {
+            return compensation;
+        }
+
+        /**
+         * @return the sum corrected by the compensation
+         */
+        public double value() {
+            return sum + compensation;
+        }
+    }
+}
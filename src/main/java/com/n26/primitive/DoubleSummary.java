@@ -0,0 +1,92 @@
+package com.n26.primitive;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+/**
+ * CAS based accumulator of a whole {@link Summary}. Where {@link DoubleSum}, {@link DoubleMin}, {@link DoubleMax}
+ * and a count are updated one after the other and can be read half way through an update, here every stripe holds
+ * one immutable summary replaced by a single CAS. {@link #aggregate()} therefore never sees a value in the count but
+ * not yet in the sum, min or max.
+ *
+ * <br>
+ * Costs an allocation per update, in exchange for one CAS instead of four or five.
+ *
+ * @author Andrew Polyakov
+ */
+public class DoubleSummary extends StripedValue<Summary> implements Serializable {
+
+    public DoubleSummary() {
+        super(Summary.EMPTY);
+    }
+
+    /**
+     * Adds the given value to the set.
+     *
+     * @param x the value to add
+     */
+    public void add(double x) {
+        update(x);
+    }
+
+    @Override
+    Summary fn(Summary current, double x) {
+        return current.add(x);
+    }
+
+    @Override
+    Summary identity() {
+        return Summary.EMPTY;
+    }
+
+    /**
+     * Returns the summary of all values added so far. Like the other primitives this is <em>NOT</em> an atomic
+     * snapshot, a concurrent update of a stripe which was read already is missed. Unlike them it is coherent: every
+     * value is accounted in all fields or in none.
+     *
+     * @return combined summary
+     */
+    public Summary aggregate() {
+        Summary result = cast(base);
+        Cell[] as = cells;
+        if (as != null) {
+            for (Cell a : as) {
+                if (a != null) {
+                    result = result.combine(cast(a.value));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Folds the stripes into the base and drops the cell table, see {@link N26DoublePrimitive#compact()}.
+     */
+    public void compact() {
+        compact(aggregate());
+    }
+
+    public void reset() {
+        Cell[] as = cells;
+        base = Summary.EMPTY;
+        if (as != null) {
+            for (Cell a : as) {
+                if (a != null)
+                    a.value = Summary.EMPTY;
+            }
+        }
+    }
+
+    private void writeObject(java.io.ObjectOutputStream s) throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeObject(aggregate());
+    }
+
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        busy = 0;
+        cells = null;
+        base = s.readObject();
+    }
+}
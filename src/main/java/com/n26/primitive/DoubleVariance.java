@@ -0,0 +1,87 @@
+package com.n26.primitive;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+/**
+ * CAS based accumulator of count, mean and M2, from which variance and standard deviation follow. Every stripe keeps
+ * its own {@link Moments}, stripes are combined with Chan's formula on {@link #aggregate()}.
+ *
+ * @author Andrew Polyakov
+ */
+public class DoubleVariance extends StripedValue<Moments> implements Serializable {
+
+    public DoubleVariance() {
+        super(Moments.EMPTY);
+    }
+
+    /**
+     * Adds the given value to the set.
+     *
+     * @param x the value to add
+     */
+    public void add(double x) {
+        update(x);
+    }
+
+    @Override
+    Moments fn(Moments current, double x) {
+        return current.add(x);
+    }
+
+    @Override
+    Moments identity() {
+        return Moments.EMPTY;
+    }
+
+    /**
+     * Returns the moments of all values added so far. The returned value is <em>NOT</em> an atomic snapshot:
+     * concurrent updates that occur while the stripes are combined might not be incorporated, but every stripe on
+     * its own is consistent.
+     *
+     * @return combined moments
+     */
+    public Moments aggregate() {
+        Moments result = cast(base);
+        Cell[] as = cells;
+        if (as != null) {
+            for (Cell a : as) {
+                if (a != null) {
+                    result = result.combine(cast(a.value));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Folds the stripes into the base and drops the cell table, see {@link N26DoublePrimitive#compact()}.
+     */
+    public void compact() {
+        compact(aggregate());
+    }
+
+    public void reset() {
+        Cell[] as = cells;
+        base = Moments.EMPTY;
+        if (as != null) {
+            for (Cell a : as) {
+                if (a != null)
+                    a.value = Moments.EMPTY;
+            }
+        }
+    }
+
+    private void writeObject(java.io.ObjectOutputStream s) throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeObject(aggregate());
+    }
+
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        busy = 0;
+        cells = null;
+        base = s.readObject();
+    }
+}
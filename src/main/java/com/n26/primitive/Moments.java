@@ -0,0 +1,74 @@
+package com.n26.primitive;
+
+import java.io.Serializable;
+
+/**
+ * Immutable count, mean and sum of squared deviations (M2) of a set of values. Single values are folded in with
+ * Welford's update and partial results are combined with Chan's parallel formula, both avoid the catastrophic
+ * cancellation of the naive {@code sumOfSquares / n - mean^2}.
+ *
+ * @author Andrew Polyakov
+ */
+public final class Moments implements Serializable {
+
+    public static final Moments EMPTY = new Moments(0, 0.0, 0.0);
+
+    private final long count;
+    private final double mean;
+    private final double m2;
+
+    public Moments(long count, double mean, double m2) {
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    public Moments add(double x) {
+        long n = count + 1;
+        double delta = x - mean;
+        double newMean = mean + delta / n;
+        return new Moments(n, newMean, m2 + delta * (x - newMean));
+    }
+
+    public Moments combine(Moments other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        long n = count + other.count;
+        double delta = other.mean - mean;
+        return new Moments(n,
+                mean + delta * other.count / n,
+                m2 + other.m2 + delta * delta * ((double) count * other.count / n));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getM2() {
+        return m2;
+    }
+
+    /**
+     * @return population variance, 0 for an empty set
+     */
+    public double variance() {
+        return count == 0 ? 0.0 : Math.max(0.0, m2 / count);
+    }
+
+    public double stddev() {
+        return Math.sqrt(variance());
+    }
+
+    @Override
+    public String toString() {
+        return "Moments{count=" + count + ", mean=" + mean + ", m2=" + m2 + '}';
+    }
+}
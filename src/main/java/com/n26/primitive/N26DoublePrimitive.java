@@ -81,6 +81,15 @@ public abstract class N26DoublePrimitive extends Striped64 implements Serializab
      */
     public abstract double getThenReset();
 
+    /**
+     * Folds the cells into the base and drops the cell table, to be called once the primitive is no longer contended.
+     * Updates racing with this call may be lost, later updates simply go to the base again.
+     */
+    public final void compact() {
+        base = aggregate();
+        cells = null;
+    }
+
     /**
      * This method may be a useful alternative to creating a new
      * updater, but is only effective if there are no concurrent
@@ -0,0 +1,176 @@
+package com.n26.primitive;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Counterpart of {@link Striped64} for state that does not fit into a single double, e.g. a (count, mean, M2) triple.
+ * Every cell holds an immutable value which is replaced as a whole by CAS, so a cell is always consistent in itself.
+ * Striping, table growth and rehashing on collisions follow {@link Striped64#retryUpdate} step by step, including the
+ * shared per thread hash codes, so contention behaves the same as for {@link DoubleSum} and friends.
+ *
+ * @param <V> immutable cell value
+ * @author Andrew Polyakov
+ */
+abstract class StripedValue<V> implements Serializable {
+
+    /**
+     * Padded cell holding a single immutable value.
+     */
+    static final class Cell {
+        volatile long p0, p1, p2, p3, p4, p5, p6;
+        volatile Object value;
+        volatile long q0, q1, q2, q3, q4, q5, q6;
+
+        Cell(Object x) {
+            value = x;
+        }
+
+        final boolean cas(Object cmp, Object val) {
+            return VALUE.compareAndSet(this, cmp, val);
+        }
+
+        private static final AtomicReferenceFieldUpdater<Cell, Object> VALUE =
+                AtomicReferenceFieldUpdater.newUpdater(Cell.class, Object.class, "value");
+    }
+
+    transient volatile Cell[] cells;
+
+    transient volatile Object base;
+
+    transient volatile int busy;
+
+    StripedValue(V initial) {
+        base = initial;
+    }
+
+    /**
+     * Folds a new value into the current state of a cell or the base.
+     */
+    abstract V fn(V current, double x);
+
+    final void update(double x) {
+        Cell[] as; Object b, v; Striped64.HashCode hc; Cell a; int n;
+        if ((as = cells) != null || !casBase(b = base, fn(cast(b), x))) {
+            boolean uncontended = true;
+            int h = (hc = Striped64.threadHashCode.get()).code;
+            if (as == null || (n = as.length) < 1 ||
+                    (a = as[(n - 1) & h]) == null ||
+                    !(uncontended = a.cas(v = a.value, fn(cast(v), x))))
+                retryUpdate(x, hc, uncontended);
+        }
+    }
+
+    /**
+     * Same as {@link Striped64#retryUpdate} with the update function applied to immutable values.
+     */
+    final void retryUpdate(double x, Striped64.HashCode hc, boolean wasUncontended) {
+        int h = hc.code;
+        boolean collide = false;                // True if last slot nonempty
+        for (;;) {
+            Cell[] as; Cell a; int n; Object v;
+            if ((as = cells) != null && (n = as.length) > 0) {
+                if ((a = as[(n - 1) & h]) == null) {
+                    if (busy == 0) {            // Try to attach new Cell
+                        Cell r = new Cell(fn(identity(), x));   // Optimistically create
+                        if (busy == 0 && casBusy()) {
+                            boolean created = false;
+                            try {               // Recheck under lock
+                                Cell[] rs; int m, j;
+                                if ((rs = cells) != null &&
+                                    (m = rs.length) > 0 &&
+                                    rs[j = (m - 1) & h] == null) {
+                                    rs[j] = r;
+                                    created = true;
+                                }
+                            } finally {
+                                busy = 0;
+                            }
+                            if (created)
+                                break;
+                            continue;           // Slot is now non-empty
+                        }
+                    }
+                    collide = false;
+                }
+                else if (!wasUncontended)       // CAS already known to fail
+                    wasUncontended = true;      // Continue after rehash
+                else if (a.cas(v = a.value, fn(cast(v), x)))
+                    break;
+                else if (n >= Striped64.NCPU || cells != as)
+                    collide = false;            // At max size or stale
+                else if (!collide)
+                    collide = true;
+                else if (busy == 0 && casBusy()) {
+                    try {
+                        if (cells == as) {      // Expand table unless stale
+                            Cell[] rs = new Cell[n << 1];
+                            for (int i = 0; i < n; ++i)
+                                rs[i] = as[i];
+                            cells = rs;
+                        }
+                    } finally {
+                        busy = 0;
+                    }
+                    collide = false;
+                    continue;                   // Retry with expanded table
+                }
+                h ^= h << 13;                   // Rehash
+                h ^= h >>> 17;
+                h ^= h << 5;
+            }
+            else if (busy == 0 && cells == as && casBusy()) {
+                boolean init = false;
+                try {                           // Initialize table
+                    if (cells == as) {
+                        Cell[] rs = new Cell[2];
+                        rs[h & 1] = new Cell(fn(identity(), x));
+                        cells = rs;
+                        init = true;
+                    }
+                } finally {
+                    busy = 0;
+                }
+                if (init)
+                    break;
+            }
+            else if (casBase(v = base, fn(cast(v), x)))
+                break;                          // Fall back on using base
+        }
+        hc.code = h;                            // Record index for next time
+    }
+
+    /**
+     * Same as {@link N26DoublePrimitive#compact()}, the caller passes the combined value of all cells.
+     */
+    final void compact(V combined) {
+        base = combined;
+        cells = null;
+    }
+
+    /**
+     * State of a cell which has not seen any value yet.
+     */
+    abstract V identity();
+
+    @SuppressWarnings("unchecked")
+    static <V> V cast(Object v) {
+        return (V) v;
+    }
+
+    final boolean casBase(Object cmp, Object val) {
+        return BASE.compareAndSet(this, cmp, val);
+    }
+
+    final boolean casBusy() {
+        return BUSY.compareAndSet(this, 0, 1);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<StripedValue, Object> BASE =
+            AtomicReferenceFieldUpdater.newUpdater(StripedValue.class, Object.class, "base");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<StripedValue> BUSY =
+            AtomicIntegerFieldUpdater.newUpdater(StripedValue.class, "busy");
+}
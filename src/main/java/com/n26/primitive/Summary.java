@@ -0,0 +1,98 @@
+package com.n26.primitive;
+
+import java.io.Serializable;
+
+/**
+ * Immutable count, sum, min, max and moments of one set of values. All fields always describe the same values, which
+ * is what {@link DoubleSummary} is for. The sum carries Neumaier's compensation as in {@link CompensatedDoubleSum},
+ * the moments follow {@link Moments}.
+ *
+ * @author Andrew Polyakov
+ */
+public final class Summary implements Serializable {
+
+    public static final Summary EMPTY = new Summary(0, 0.0, 0.0, Double.MAX_VALUE, -Double.MAX_VALUE, 0.0, 0.0);
+
+    private final long count;
+    private final double sum;
+    private final double compensation;
+    private final double min;
+    private final double max;
+    private final double mean;
+    private final double m2;
+
+    public Summary(long count, double sum, double compensation, double min, double max, double mean, double m2) {
+        this.count = count;
+        this.sum = sum;
+        this.compensation = compensation;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    public Summary add(double x) {
+        long n = count + 1;
+        double t = sum + x;
+        double c = Math.abs(sum) >= Math.abs(x) ? (sum - t) + x : (x - t) + sum;
+        double delta = x - mean;
+        double newMean = mean + delta / n;
+        return new Summary(n, t, compensation + c, Math.min(min, x), Math.max(max, x),
+                newMean, m2 + delta * (x - newMean));
+    }
+
+    public Summary combine(Summary other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        long n = count + other.count;
+        double t = sum + other.sum;
+        double c = Math.abs(sum) >= Math.abs(other.sum) ? (sum - t) + other.sum : (other.sum - t) + sum;
+        double delta = other.mean - mean;
+        return new Summary(n, t, compensation + other.compensation + c,
+                Math.min(min, other.min), Math.max(max, other.max),
+                mean + delta * other.count / n,
+                m2 + other.m2 + delta * delta * ((double) count * other.count / n));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the plain sum, without the compensation
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    public double getCompensation() {
+        return compensation;
+    }
+
+    /**
+     * @return {@code Double.MAX_VALUE} for an empty set
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return {@code -Double.MAX_VALUE} for an empty set
+     */
+    public double getMax() {
+        return max;
+    }
+
+    public Moments getMoments() {
+        return count == 0 ? Moments.EMPTY : new Moments(count, mean, m2);
+    }
+
+    @Override
+    public String toString() {
+        return "Summary{count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max + '}';
+    }
+}
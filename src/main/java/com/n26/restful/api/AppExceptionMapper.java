@@ -1,5 +1,6 @@
 package com.n26.restful.api;
 
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
@@ -14,6 +15,19 @@ public class AppExceptionMapper implements ExceptionMapper<Exception> {
 
     @Override
     public Response toResponse(Exception ex) {
+        // 404, 400 and friends raised on purpose by the endpoints keep their status
+        if (ex instanceof WebApplicationException) {
+            Response response = ((WebApplicationException) ex).getResponse();
+            return Response.status(response.getStatus())
+                    .entity(new ErrorPojo(ex.getLocalizedMessage()))
+                    .type(MediaType.APPLICATION_JSON).build();
+        }
+        // malformed or out of range amounts
+        if (ex instanceof IllegalArgumentException || ex instanceof ArithmeticException) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ErrorPojo(ex.getLocalizedMessage()))
+                    .type(MediaType.APPLICATION_JSON).build();
+        }
         if (ex instanceof RuntimeException) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity(new ErrorPojo("Failed to process this request. Details: " + ex.getLocalizedMessage()))
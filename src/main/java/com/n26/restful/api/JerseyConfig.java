@@ -1,6 +1,8 @@
 package com.n26.restful.api;
 
+import com.n26.restful.api.binary.BinaryMessageBodyProvider;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -11,10 +13,16 @@ import org.springframework.stereotype.Component;
 @Component
 public class JerseyConfig extends ResourceConfig {
 
-	public JerseyConfig() {
+	public JerseyConfig(@Value("${read-port}") int readPort,
+						@Value("${binary-max-body-bytes}") int binaryMaxBodyBytes) {
 		register(StatisticsEndpoint.class);
 		register(TransactionsEndpoint.class);
+		register(MetricsEndpoint.class);
 		register(new AppExceptionMapper());
+		register(new BinaryMessageBodyProvider(binaryMaxBodyBytes));
+		if (readPort > 0) {
+			register(new ReadPortFilter(readPort));
+		}
 	}
 
 }
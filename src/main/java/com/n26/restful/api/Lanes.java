@@ -0,0 +1,40 @@
+package com.n26.restful.api;
+
+import com.n26.lane.RequestLane;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs the work of a suspended request on a {@link RequestLane}, so the container thread returns to its pool right
+ * after the body was read.
+ *
+ * @author Andrew Polyakov
+ */
+final class Lanes {
+
+    /* seconds a client is asked to back off when a lane is full */
+    static final int RETRY_AFTER = 1;
+
+    private Lanes() {
+    }
+
+    /**
+     * Resumes the request with the result of the call, with whatever it throws, or with 503 if the lane is full.
+     */
+    static void submit(RequestLane lane, AsyncResponse async, Callable<?> call) {
+        boolean queued = lane.execute(() -> {
+            try {
+                async.resume(call.call());
+            } catch (Exception ex) {
+                async.resume(ex); // mapped by AppExceptionMapper
+            }
+        });
+        if (!queued) {
+            async.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", RETRY_AFTER)
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.n26.restful.api;
+
+import com.n26.OutlierDetector;
+import com.n26.lane.RequestLane;
+import com.n26.restful.api.dto.LaneDto;
+import com.n26.restful.api.dto.MetricsDto;
+import com.n26.restful.api.dto.OutliersDto;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the load of the service. Answered on the container thread rather than on a lane, so it still works when
+ * both lanes are saturated, which is when it is needed most.
+ *
+ * @author Andrew Polyakov
+ */
+@Component
+@Path("/metrics")
+public class MetricsEndpoint {
+
+    private final RequestLane reads;
+
+    private final RequestLane writes;
+
+    private final OutlierDetector outliers;
+
+    @Inject
+    public MetricsEndpoint(@Qualifier("readLane") RequestLane reads,
+                           @Qualifier("writeLane") RequestLane writes,
+                           @Qualifier("outlierDetector") OutlierDetector outliers) {
+        this.reads = reads;
+        this.writes = writes;
+        this.outliers = outliers;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public MetricsDto get() {
+        Map<String, LaneDto> lanes = new LinkedHashMap<>();
+        lanes.put(reads.getName(), toDto(reads));
+        lanes.put(writes.getName(), toDto(writes));
+        return new MetricsDto(lanes,
+                new OutliersDto(outliers.getZThreshold(), outliers.getScored(), outliers.getFlagged()));
+    }
+
+    static LaneDto toDto(RequestLane lane) {
+        return new LaneDto(lane.getThreads(), lane.getQueueCapacity(), lane.getQueued(), lane.getActive(),
+                lane.getCompleted(), lane.getRejected(), lane.getQueueWaitInMicroseconds());
+    }
+}
@@ -0,0 +1,34 @@
+package com.n26.restful.api;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+
+/**
+ * Answers anything but GET on the read port with 405, so writers cannot take the threads of its connector.
+ *
+ * @author Andrew Polyakov
+ */
+class ReadPortFilter implements ContainerRequestFilter {
+
+    private final int readPort;
+
+    @Context
+    private HttpServletRequest request;
+
+    ReadPortFilter(int readPort) {
+        this.readPort = readPort;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext context) {
+        if (request.getLocalPort() == readPort && !HttpMethod.GET.equals(context.getMethod())) {
+            context.abortWith(Response.status(Response.Status.METHOD_NOT_ALLOWED)
+                    .header("Allow", HttpMethod.GET)
+                    .build());
+        }
+    }
+}
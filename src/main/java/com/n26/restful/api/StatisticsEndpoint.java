@@ -1,47 +1,109 @@
 package com.n26.restful.api;
 
 
+import com.n26.KeyedRollingStatistics;
 import com.n26.N26RollingStatistics;
+import com.n26.OutlierDetector;
+import com.n26.RateMeter;
+import com.n26.StatisticsEngine;
+import com.n26.TumblingWindows;
+import com.n26.history.HistoryStore;
+import com.n26.lane.RequestLane;
+import com.n26.restful.api.binary.BinaryMediaType;
+import com.n26.restful.api.dto.Amount;
+import com.n26.restful.api.dto.HeavyHitterDto;
+import com.n26.restful.api.dto.RateDto;
+import com.n26.restful.api.dto.RatesDto;
+import com.n26.restful.api.dto.SeriesColumnsDto;
+import com.n26.restful.api.dto.SeriesPointDto;
 import com.n26.restful.api.dto.StatisticsDto;
+import com.n26.restful.api.dto.TopKeysDto;
+import com.n26.restful.api.dto.TumblingWindowDto;
+import com.n26.shm.SharedMemoryPublisher;
+import com.n26.sketch.HeavyHitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This component exposes rolling statistics via Restful interface. There is a worker constantly refreshing
  * response to be returned. This is why get() method runs in O(1).
  *
+ *<br>
+ * get() and the rates are answered inline, a handoff would cost more than the read. The reads which compute on every
+ * call run on the read {@link RequestLane}, so a storm of transactions can neither take their threads nor queue ahead
+ * of them; a full lane answers 503 right away. Keeping container threads free for readers is what {@code read-port} is
+ * for.
+ *
  * @author Andrew Polyakov
  */
 @Component
 @Path("/statistics")
 public class StatisticsEndpoint {
 
+    private static final Logger LOG = LoggerFactory.getLogger(StatisticsEndpoint.class);
+
     private final ExecutorService e = Executors.newSingleThreadExecutor();
 
     public Deque<StatisticsDto> response =  new ConcurrentLinkedDeque<>();
 
+    private final KeyedRollingStatistics keyed;
+
+    /* rendered points of sealed buckets by identity, dropped once their bucket leaves the window */
+    private final Map<N26RollingStatistics.SeriesPoint, SeriesPointDto> rendered = new ConcurrentHashMap<>();
+
+    private final StatisticsEngine engine;
+
+    /* null unless the bucketed engine is configured */
+    private final N26RollingStatistics rs;
+
+    /* all reads run here, never queued behind writes */
+    private final RequestLane reads;
+
+    /* gets a fresh baseline with every refresh */
+    private final OutlierDetector outliers;
+
     /**
      * The smaller the refreshInterval the sooner worker replaces data. Set this to something positive significantly
      * smaller than your window for optimal performance.
      */
     @Inject
-    public StatisticsEndpoint(final Integer refreshInterval, @Qualifier("rollingStatistics") final N26RollingStatistics rs) {
-        N26RollingStatistics.AggregatedStatistics initial = rs.getRolling();
-        response.offerFirst(new StatisticsDto(initial.getSize(), // this is to ensure there is at least one value at all times
-                initial.getMin(),
-                initial.getMax(),
-                initial.getAvg(),
-                initial.getSum()));
+    public StatisticsEndpoint(final Integer refreshInterval,
+                              @Qualifier("statisticsEngine") final StatisticsEngine engine,
+                              @Qualifier("keyedStatistics") final KeyedRollingStatistics keyed,
+                              @Qualifier("sharedMemoryPublisher") final SharedMemoryPublisher shm,
+                              @Qualifier("readLane") final RequestLane reads,
+                              @Qualifier("outlierDetector") final OutlierDetector outliers) {
+        this.keyed = keyed;
+        this.reads = reads;
+        this.engine = engine;
+        this.rs = engine.unwrap(N26RollingStatistics.class);
+        this.outliers = outliers;
+        refresh(shm); // this is to ensure there is at least one value at all times
         e.submit(() -> {
                 while(true) {
                     /**
@@ -49,24 +111,229 @@ public class StatisticsEndpoint {
                      * statistics. Queue is required to maintain visibility and ensure there is always a value.
                      */
                     Thread.sleep(refreshInterval);
-                    N26RollingStatistics.AggregatedStatistics rollOut = rs.getRolling();
-                    response.offerFirst(new StatisticsDto(rollOut.getSize(), // put the latest data at the first position
-                            rollOut.getMin(),
-                            rollOut.getMax(),
-                            rollOut.getAvg(),
-                            rollOut.getSum()));
-                    response.removeLast(); // remove outdated object
+                    try {
+                        refresh(shm); // put the latest data at the first position
+                    } catch (RuntimeException ex) {
+                        // keep serving the last statistics and retry on the next tick, the worker must not die
+                        LOG.error("Failed to refresh statistics", ex);
+                    }
+                    while (response.size() > 1) {
+                        response.removeLast(); // remove outdated object
+                    }
                 }
         });
     }
 
+    /**
+     * Computes the latest statistics once for HTTP readers, readers of the shared memory file and outlier scoring, and
+     * evicts idle keys.
+     */
+    private void refresh(SharedMemoryPublisher shm) {
+        N26RollingStatistics.AggregatedStatistics statistics = engine.getRolling();
+        response.offerFirst(toDto(statistics));
+        shm.publish(statistics);
+        outliers.update(statistics);
+        keyed.evictIdleIfDue(); // keeps the scan off the request threads
+    }
+
     /**
      * This method exposes statistics to readers.
      * @return latest computed result, not necessarily an up to date snapshot though.
      */
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, BinaryMediaType.APPLICATION_CBOR, BinaryMediaType.APPLICATION_MSGPACK})
     public StatisticsDto get() {
         return response.getFirst(); // This runs in O(1) as everything is precomputed.
     }
+
+    /**
+     * Heaviest keys over the window by sum and by count. Merges the per bucket summaries on every call.
+     * @param async resumed with the estimated top keys, see {@link HeavyHitterDto} for the error bounds
+     * @param limit maximum number of keys per ranking
+     */
+    @GET
+    @Path("top")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void top(@Suspended AsyncResponse async, @QueryParam("limit") @DefaultValue("20") int limit) {
+        Lanes.submit(reads, async, () -> top(limit));
+    }
+
+    private TopKeysDto top(int limit) {
+        if (rs == null) {
+            throw new NotFoundException("Top keys need the bucketed engine");
+        }
+        N26RollingStatistics.TopKeys top = rs.getTopKeys(limit);
+        return new TopKeysDto(toDto(top.getBySum()), toDto(top.getByCount()));
+    }
+
+    /**
+     * Closed per minute, hour or day totals aligned to UTC, computed once when the window closes.
+     * @param async resumed with the closed windows, the most recent first
+     * @param unit minute, hour or day
+     */
+    @GET
+    @Path("tumbling")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void tumbling(@Suspended AsyncResponse async, @QueryParam("unit") @DefaultValue("minute") String unit) {
+        Lanes.submit(reads, async, () -> tumbling(unit));
+    }
+
+    private List<TumblingWindowDto> tumbling(String unit) {
+        TumblingWindows windows = rs == null ? null : rs.getTumblingWindows();
+        if (windows == null) {
+            throw new NotFoundException("Tumbling windows are disabled");
+        }
+        TimeUnit timeUnit;
+        try {
+            timeUnit = TumblingWindows.parseUnit(unit);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException(ex.getMessage());
+        }
+        List<TumblingWindowDto> result = new ArrayList<>();
+        for (TumblingWindows.Window w : windows.getClosed(timeUnit)) {
+            result.add(new TumblingWindowDto(w.getStart(), w.getEnd(), toDto(w.getStatistics())));
+        }
+        return result;
+    }
+
+    /**
+     * Per bucket totals of the window for charting, the oldest bucket first. Sealed buckets are rendered once, repeated
+     * polls only render the live ones.
+     * @param async resumed with the series in the requested format
+     * @param format {@code rows} for one object per bucket, {@code columns} for one array per field
+     */
+    @GET
+    @Path("series")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void series(@Suspended AsyncResponse async, @QueryParam("format") @DefaultValue("rows") String format) {
+        Lanes.submit(reads, async, () -> series(format));
+    }
+
+    private Response series(String format) {
+        if (!"rows".equals(format) && !"columns".equals(format)) {
+            throw new BadRequestException("Unknown format " + format + ", expected rows or columns");
+        }
+        if (rs == null) {
+            throw new NotFoundException("The series needs the bucketed engine");
+        }
+        List<N26RollingStatistics.SeriesPoint> series = rs.getSeries();
+        List<SeriesPointDto> points = new ArrayList<>(series.size());
+        for (N26RollingStatistics.SeriesPoint p : series) {
+            points.add(p.isSealed() ? rendered.computeIfAbsent(p, StatisticsEndpoint::toDto) : toDto(p));
+        }
+        if (!series.isEmpty()) {
+            long oldest = series.get(0).getWindowStart();
+            rendered.keySet().removeIf(p -> p.getWindowStart() < oldest);
+        }
+        if ("columns".equals(format)) {
+            return Response.ok(SeriesColumnsDto.of((long) rs.getBucketSizeInMilliseconds(), points)).build();
+        }
+        return Response.ok(points).build();
+    }
+
+    /**
+     * Per bucket totals from the compressed history, reaching back as far as its memory budget allows.
+     * @param async resumed with the buckets which started within the range, the oldest first
+     * @param from start in epoch millis, inclusive, an hour before {@code to} by default
+     * @param to   end in epoch millis, exclusive, now by default
+     */
+    @GET
+    @Path("history")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void history(@Suspended AsyncResponse async, @QueryParam("from") Long from, @QueryParam("to") Long to) {
+        Lanes.submit(reads, async, () -> history(from, to));
+    }
+
+    private List<SeriesPointDto> history(Long from, Long to) {
+        HistoryStore history = rs == null ? null : rs.getHistory();
+        if (history == null) {
+            throw new NotFoundException("History is disabled");
+        }
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - TimeUnit.HOURS.toMillis(1);
+        List<SeriesPointDto> result = new ArrayList<>();
+        for (HistoryStore.Point p : history.range(start, end)) {
+            N26RollingStatistics.AggregatedStatistics statistics = p.getStatistics();
+            result.add(new SeriesPointDto(p.getWindowStart(), statistics.getSize(), Amount.valueOf(statistics.getSum()),
+                    Amount.valueOf(statistics.getMin()), Amount.valueOf(statistics.getMax())));
+        }
+        return result;
+    }
+
+    /**
+     * Transactions and amount per second of the most recently sealed bucket and their 1, 5 and 15 minute moving
+     * averages. Precomputed on rotation, this runs in O(1).
+     * @return the rates, lagging the live bucket by a couple of buckets
+     */
+    @GET
+    @Path("rates")
+    @Produces(MediaType.APPLICATION_JSON)
+    public RatesDto rates() {
+        RateMeter meter = rs == null ? null : rs.getRateMeter();
+        if (meter == null) {
+            throw new NotFoundException("Rates are disabled");
+        }
+        RateMeter.Rates rates = meter.getRates();
+        return new RatesDto(rates.getAsOf(), toDto(rates.getTransactions()), toDto(rates.getAmount()));
+    }
+
+    /**
+     * Statistics of a single merchant, currency or account, under keys/ so that no key is shadowed by the other
+     * resources. Unlike {@link #get()} this is computed on every call, in O(number of buckets).
+     * @param async resumed with the statistics of the key, zeroes for unknown or evicted keys
+     */
+    @GET
+    @Path("keys/{key}")
+    @Produces({MediaType.APPLICATION_JSON, BinaryMediaType.APPLICATION_CBOR, BinaryMediaType.APPLICATION_MSGPACK})
+    public void get(@Suspended AsyncResponse async, @PathParam("key") String key) {
+        Lanes.submit(reads, async, () -> toDto(keyed.getRolling(key)));
+    }
+
+    static StatisticsDto toDto(N26RollingStatistics.AggregatedStatistics statistics) {
+        if (statistics.isExact()) {
+            int scale = statistics.getScale();
+            return toDto(statistics,
+                    Amount.valueOf(statistics.getMinUnits(), scale),
+                    Amount.valueOf(statistics.getMaxUnits(), scale),
+                    Amount.valueOf(statistics.getAvgUnits(), scale),
+                    Amount.valueOf(statistics.getSumUnits(), scale));
+        }
+        return toDto(statistics,
+                Amount.valueOf(statistics.getMin()),
+                Amount.valueOf(statistics.getMax()),
+                Amount.valueOf(statistics.getAvg()),
+                Amount.valueOf(statistics.getSum()));
+    }
+
+    private static StatisticsDto toDto(N26RollingStatistics.AggregatedStatistics statistics,
+                                       Amount min, Amount max, Amount avg, Amount sum) {
+        return new StatisticsDto(statistics.getSize(),
+                min,
+                max,
+                avg,
+                sum,
+                statistics.getVariance(),
+                statistics.getStddev(),
+                statistics.getP50(),
+                statistics.getP90(),
+                statistics.getP99());
+    }
+
+    static SeriesPointDto toDto(N26RollingStatistics.SeriesPoint point) {
+        StatisticsDto statistics = toDto(point.getStatistics());
+        return new SeriesPointDto(point.getWindowStart(), statistics.getCount(), statistics.getSum(),
+                statistics.getMin(), statistics.getMax());
+    }
+
+    static RateDto toDto(RateMeter.Rate rate) {
+        return new RateDto(rate.getCurrent(), rate.getOneMinute(), rate.getFiveMinutes(), rate.getFifteenMinutes());
+    }
+
+    static List<HeavyHitterDto> toDto(List<HeavyHitter> hitters) {
+        List<HeavyHitterDto> result = new ArrayList<>(hitters.size());
+        for (HeavyHitter h : hitters) {
+            result.add(new HeavyHitterDto(h.getKey(), h.getEstimate(), h.getError()));
+        }
+        return result;
+    }
 }
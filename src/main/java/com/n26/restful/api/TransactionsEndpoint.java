@@ -1,6 +1,14 @@
 package com.n26.restful.api;
 
+import com.n26.KeyedRollingStatistics;
 import com.n26.N26RollingStatistics;
+import com.n26.OutlierDetector;
+import com.n26.StatisticsEngine;
+import com.n26.lane.RequestLane;
+import com.n26.money.FixedPoint;
+import com.n26.restful.api.binary.BinaryMediaType;
+import com.n26.restful.api.dto.Amount;
+import com.n26.restful.api.dto.OutlierScoreDto;
 import com.n26.restful.api.dto.TransactionDto;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
@@ -8,10 +16,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * API for other services to push transactions.
@@ -21,21 +36,133 @@ import javax.ws.rs.core.Response;
 @Path("/transactions")
 public class TransactionsEndpoint {
 
+	private StatisticsEngine engine;
+
+	/* null unless the bucketed engine is configured */
 	private N26RollingStatistics rs;
 
+	private KeyedRollingStatistics keyed;
+
+	/* all writes run here, a full lane answers 503 instead of taking threads from the readers */
+	private RequestLane writes;
+
+	private OutlierDetector outliers;
+
+	/* amounts go straight from their text to minor units, a double is derived only where one is needed */
+	private boolean moneyMode;
+
 	@Inject
-	public TransactionsEndpoint(@Qualifier("rollingStatistics") N26RollingStatistics rs) {
-		this.rs = rs;
+	public TransactionsEndpoint(@Qualifier("statisticsEngine") StatisticsEngine engine,
+								@Qualifier("keyedStatistics") KeyedRollingStatistics keyed,
+								@Qualifier("writeLane") RequestLane writes,
+								@Qualifier("outlierDetector") OutlierDetector outliers) {
+		this.engine = engine;
+		this.rs = engine.unwrap(N26RollingStatistics.class);
+		this.moneyMode = rs != null && rs.isMoneyMode();
+		this.keyed = keyed;
+		this.writes = writes;
+		this.outliers = outliers;
 	}
 
+	/**
+	 * @param async resumed with 201 if accounted, 204 if too old, 200 for a retry
+	 * @param score whether to answer 201 and 200 with an {@link OutlierScoreDto} of the amount against the window
+	 */
 	@POST
-	@Consumes(MediaType.APPLICATION_JSON)
-	public Response postTransaction(@RequestBody TransactionDto input) {
-		if (rs.addValue(input.getAmount(), input.getTimestamp())) {
-			return Response.status(201).build();
-		} else {
-			return Response.status(204).build();
+	@Consumes({MediaType.APPLICATION_JSON, BinaryMediaType.APPLICATION_CBOR, BinaryMediaType.APPLICATION_MSGPACK})
+	@Produces({MediaType.APPLICATION_JSON, BinaryMediaType.APPLICATION_CBOR, BinaryMediaType.APPLICATION_MSGPACK})
+	public void postTransaction(@Suspended AsyncResponse async, @RequestBody TransactionDto input,
+								@QueryParam("score") @DefaultValue("false") boolean score) {
+		Lanes.submit(writes, async, () -> {
+			int status = accept(input);
+			if (!score || status == 204) {
+				return Response.status(status).build();
+			}
+			// against the snapshot of the statistics worker, a few flops on this thread
+			OutlierDetector.Score s = outliers.score(input.getAmount().doubleValue());
+			return Response.status(status).entity(new OutlierScoreDto(s.getZScore(), s.isAboveP99(), s.isFlagged())).build();
+		});
+	}
+
+	/**
+	 * Many transactions in one request, e.g. from a sender draining its own queue. Transactions with neither key nor
+	 * id go to the engine as a single batch, so the clock is read once for all of them.
+	 * @param async resumed with 201 if any transaction was accounted, 204 if all were too old or retries
+	 */
+	@POST
+	@Path("batch")
+	@Consumes({MediaType.APPLICATION_JSON, BinaryMediaType.APPLICATION_CBOR, BinaryMediaType.APPLICATION_MSGPACK})
+	public void postTransactions(@Suspended AsyncResponse async, @RequestBody List<TransactionDto> input) {
+		Lanes.submit(writes, async, () -> postTransactions(input));
+	}
+
+	private Response postTransactions(List<TransactionDto> input) {
+		// all amounts first, so that an out of range one rejects the batch before anything is accounted
+		long[] units = new long[input.size()];
+		double[] values = new double[input.size()];
+		for (int i = 0; i < input.size(); i++) {
+			Amount amount = input.get(i).getAmount();
+			if (moneyMode) {
+				units[i] = amount.toMinorUnits(rs.getMoneyScale());
+			} else {
+				values[i] = amount.doubleValue();
+			}
+		}
+		int accepted = 0;
+		long[] timestamps = new long[input.size()];
+		int plain = 0;
+		for (int i = 0; i < input.size(); i++) {
+			TransactionDto transaction = input.get(i);
+			if (moneyMode || transaction.getKey() != null || transaction.getId() != null) {
+				if (accept(transaction, units[i], values[i]) == 201) {
+					accepted++;
+				}
+			} else {
+				values[plain] = values[i];
+				timestamps[plain] = transaction.getTimestamp();
+				plain++;
+			}
+		}
+		if (plain > 0) {
+			accepted += engine.addValues(Arrays.copyOf(values, plain), Arrays.copyOf(timestamps, plain));
+		}
+		return Response.status(accepted > 0 ? 201 : 204).build();
+	}
+
+	/**
+	 * @return 201 if accounted, 204 if too old, 200 for a retry
+	 */
+	private int accept(TransactionDto input) {
+		Amount amount = input.getAmount();
+		return moneyMode
+				? accept(input, amount.toMinorUnits(rs.getMoneyScale()), 0.0)
+				: accept(input, 0L, amount.doubleValue());
+	}
+
+	/**
+	 * @param units amount in minor units, only in money mode
+	 * @param value amount, only outside of money mode
+	 */
+	private int accept(TransactionDto input, long units, double value) {
+		boolean dedup = input.getId() != null && rs != null;
+		if (dedup && rs.seen(input.getId())) {
+			return 200; // a retry, accounted already
+		}
+		if (input.getKey() != null) {
+			keyed.addValue(input.getKey(), moneyMode ? FixedPoint.toDouble(units, rs.getMoneyScale()) : value,
+					input.getTimestamp());
+		}
+		boolean added = moneyMode
+				? rs.addMinorUnits(units, input.getTimestamp(), input.getKey())
+				: engine.addValue(value, input.getTimestamp(), input.getKey());
+		if (!added) {
+			return 204;
+		}
+		if (dedup) {
+			// only once accounted, so that a retry of a rejected first delivery is not taken for a duplicate
+			rs.markSeen(input.getId());
 		}
+		return 201;
 	}
 
 }
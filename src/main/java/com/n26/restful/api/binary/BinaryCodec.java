@@ -0,0 +1,275 @@
+package com.n26.restful.api.binary;
+
+import com.n26.restful.api.dto.Amount;
+import com.n26.restful.api.dto.OutlierScoreDto;
+import com.n26.restful.api.dto.StatisticsDto;
+import com.n26.restful.api.dto.TransactionDto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps the DTOs onto maps keyed by the same names as their JSON, field by field and without reflection. Amounts are
+ * written as doubles when that is lossless and as their decimal text otherwise, so money mode stays exact. Unknown
+ * keys are skipped when reading, missing ones are left null as with JSON.
+ *
+ * @author Andrew Polyakov
+ */
+public final class BinaryCodec {
+
+    private BinaryCodec() {
+    }
+
+    public static void writeStatistics(BinaryWriter writer, StatisticsDto dto) throws IOException {
+        writer.writeMapHeader(10);
+        writer.writeString("count");
+        writeLong(writer, dto.getCount());
+        writer.writeString("min");
+        writeAmount(writer, dto.getMin());
+        writer.writeString("max");
+        writeAmount(writer, dto.getMax());
+        writer.writeString("avg");
+        writeAmount(writer, dto.getAvg());
+        writer.writeString("sum");
+        writeAmount(writer, dto.getSum());
+        writer.writeString("variance");
+        writeDouble(writer, dto.getVariance());
+        writer.writeString("stddev");
+        writeDouble(writer, dto.getStddev());
+        writer.writeString("p50");
+        writeDouble(writer, dto.getP50());
+        writer.writeString("p90");
+        writeDouble(writer, dto.getP90());
+        writer.writeString("p99");
+        writeDouble(writer, dto.getP99());
+    }
+
+    public static StatisticsDto readStatistics(BinaryReader reader) {
+        Long count = null;
+        Amount min = null;
+        Amount max = null;
+        Amount avg = null;
+        Amount sum = null;
+        Double variance = null;
+        Double stddev = null;
+        Double p50 = null;
+        Double p90 = null;
+        Double p99 = null;
+        for (int i = reader.readMapHeader(); i > 0; i--) {
+            switch (reader.readString()) {
+                case "count":
+                    count = readLong(reader);
+                    break;
+                case "min":
+                    min = readAmount(reader);
+                    break;
+                case "max":
+                    max = readAmount(reader);
+                    break;
+                case "avg":
+                    avg = readAmount(reader);
+                    break;
+                case "sum":
+                    sum = readAmount(reader);
+                    break;
+                case "variance":
+                    variance = readDouble(reader);
+                    break;
+                case "stddev":
+                    stddev = readDouble(reader);
+                    break;
+                case "p50":
+                    p50 = readDouble(reader);
+                    break;
+                case "p90":
+                    p90 = readDouble(reader);
+                    break;
+                case "p99":
+                    p99 = readDouble(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        return new StatisticsDto(count, min, max, avg, sum, variance, stddev, p50, p90, p99);
+    }
+
+    public static void writeScore(BinaryWriter writer, OutlierScoreDto dto) throws IOException {
+        writer.writeMapHeader(3);
+        writer.writeString("score");
+        writeDouble(writer, dto.getScore());
+        writer.writeString("aboveP99");
+        writeBoolean(writer, dto.getAboveP99());
+        writer.writeString("flagged");
+        writeBoolean(writer, dto.getFlagged());
+    }
+
+    public static OutlierScoreDto readScore(BinaryReader reader) {
+        Double score = null;
+        Boolean aboveP99 = null;
+        Boolean flagged = null;
+        for (int i = reader.readMapHeader(); i > 0; i--) {
+            switch (reader.readString()) {
+                case "score":
+                    score = readDouble(reader);
+                    break;
+                case "aboveP99":
+                    aboveP99 = readBoolean(reader);
+                    break;
+                case "flagged":
+                    flagged = readBoolean(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        return new OutlierScoreDto(score, aboveP99, flagged);
+    }
+
+    public static void writeTransaction(BinaryWriter writer, TransactionDto dto) throws IOException {
+        int size = 2 + (dto.getKey() != null ? 1 : 0) + (dto.getId() != null ? 1 : 0);
+        writer.writeMapHeader(size);
+        writer.writeString("amount");
+        writeAmount(writer, dto.getAmount());
+        writer.writeString("timestamp");
+        writeLong(writer, dto.getTimestamp());
+        if (dto.getKey() != null) {
+            writer.writeString("key");
+            writer.writeString(dto.getKey());
+        }
+        if (dto.getId() != null) {
+            writer.writeString("id");
+            writer.writeString(dto.getId());
+        }
+    }
+
+    public static TransactionDto readTransaction(BinaryReader reader) {
+        TransactionDto dto = new TransactionDto();
+        for (int i = reader.readMapHeader(); i > 0; i--) {
+            switch (reader.readString()) {
+                case "amount":
+                    dto.setAmount(readAmount(reader));
+                    break;
+                case "timestamp":
+                    dto.setTimestamp(readLong(reader));
+                    break;
+                case "key":
+                    dto.setKey(readString(reader));
+                    break;
+                case "id":
+                    dto.setId(readString(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        return dto;
+    }
+
+    public static void writeTransactions(BinaryWriter writer, List<TransactionDto> dtos) throws IOException {
+        writer.writeArrayHeader(dtos.size());
+        for (TransactionDto dto : dtos) {
+            writeTransaction(writer, dto);
+        }
+    }
+
+    public static List<TransactionDto> readTransactions(BinaryReader reader) {
+        int size = reader.readArrayHeader();
+        List<TransactionDto> dtos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            dtos.add(readTransaction(reader));
+        }
+        return dtos;
+    }
+
+    private static void writeAmount(BinaryWriter writer, Amount amount) throws IOException {
+        if (amount == null) {
+            writer.writeNull();
+            return;
+        }
+        double value = amount.doubleValue();
+        if (Double.toString(value).equals(amount.toString())) {
+            writer.writeDouble(value);
+        } else {
+            // e.g. "10.10" in money mode, the double would lose the scale
+            writer.writeString(amount.toString());
+        }
+    }
+
+    private static Amount readAmount(BinaryReader reader) {
+        switch (reader.peekType()) {
+            case NULL:
+                reader.readNull();
+                return null;
+            case STRING:
+                return Amount.parse(reader.readString().trim());
+            case INTEGER:
+                return Amount.parse(Long.toString(reader.readLong()));
+            case FLOAT:
+                double value = reader.readDouble();
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    throw new IllegalArgumentException("Amount must be a finite number");
+                }
+                return Amount.valueOf(value);
+            default:
+                throw new IllegalArgumentException("Amount must be a number");
+        }
+    }
+
+    private static void writeLong(BinaryWriter writer, Long value) throws IOException {
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            writer.writeLong(value);
+        }
+    }
+
+    private static void writeDouble(BinaryWriter writer, Double value) throws IOException {
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            writer.writeDouble(value);
+        }
+    }
+
+    private static void writeBoolean(BinaryWriter writer, Boolean value) throws IOException {
+        if (value == null) {
+            writer.writeNull();
+        } else {
+            writer.writeBoolean(value);
+        }
+    }
+
+    private static Boolean readBoolean(BinaryReader reader) {
+        if (reader.peekType() == BinaryReader.Type.NULL) {
+            reader.readNull();
+            return null;
+        }
+        return reader.readBoolean();
+    }
+
+    private static Long readLong(BinaryReader reader) {
+        if (reader.peekType() == BinaryReader.Type.NULL) {
+            reader.readNull();
+            return null;
+        }
+        return reader.readLong();
+    }
+
+    private static Double readDouble(BinaryReader reader) {
+        if (reader.peekType() == BinaryReader.Type.NULL) {
+            reader.readNull();
+            return null;
+        }
+        return reader.readDouble();
+    }
+
+    private static String readString(BinaryReader reader) {
+        if (reader.peekType() == BinaryReader.Type.NULL) {
+            reader.readNull();
+            return null;
+        }
+        return reader.readString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.n26.restful.api.binary;
+
+import javax.ws.rs.core.MediaType;
+import java.io.OutputStream;
+
+/**
+ * The binary encodings the API speaks besides JSON.
+ *
+ * @author Andrew Polyakov
+ */
+public enum BinaryFormat {
+
+    CBOR(BinaryMediaType.APPLICATION_CBOR_TYPE) {
+        @Override
+        public BinaryWriter newWriter(OutputStream out) {
+            return new CborWriter(out);
+        }
+
+        @Override
+        public BinaryReader newReader(byte[] data) {
+            return new CborReader(data);
+        }
+    },
+
+    MSGPACK(BinaryMediaType.APPLICATION_MSGPACK_TYPE) {
+        @Override
+        public BinaryWriter newWriter(OutputStream out) {
+            return new MessagePackWriter(out);
+        }
+
+        @Override
+        public BinaryReader newReader(byte[] data) {
+            return new MessagePackReader(data);
+        }
+    };
+
+    private final MediaType mediaType;
+
+    BinaryFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public abstract BinaryWriter newWriter(OutputStream out);
+
+    public abstract BinaryReader newReader(byte[] data);
+
+    /**
+     * @return the format of the media type, ignoring parameters, or null if it is not a binary one
+     */
+    public static BinaryFormat of(MediaType mediaType) {
+        for (BinaryFormat format : values()) {
+            if (format.mediaType.isCompatible(mediaType) && !mediaType.isWildcardType() && !mediaType.isWildcardSubtype()) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.n26.restful.api.binary;
+
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Media types of the binary encodings, see {@link BinaryMessageBodyProvider}.
+ *
+ * @author Andrew Polyakov
+ */
+public final class BinaryMediaType {
+
+    public static final String APPLICATION_CBOR = "application/cbor";
+    public static final MediaType APPLICATION_CBOR_TYPE = new MediaType("application", "cbor");
+
+    public static final String APPLICATION_MSGPACK = "application/x-msgpack";
+    public static final MediaType APPLICATION_MSGPACK_TYPE = new MediaType("application", "x-msgpack");
+
+    private BinaryMediaType() {
+    }
+}
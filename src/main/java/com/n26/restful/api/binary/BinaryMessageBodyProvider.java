@@ -0,0 +1,113 @@
+package com.n26.restful.api.binary;
+
+import com.n26.restful.api.dto.OutlierScoreDto;
+import com.n26.restful.api.dto.StatisticsDto;
+import com.n26.restful.api.dto.TransactionDto;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Reads and writes the statistics and transaction DTOs as CBOR or MessagePack, chosen by Jersey from the
+ * {@code Content-Type} and {@code Accept} headers. JSON stays the default, the binary encodings are only picked when
+ * a client asks for them. Bodies are read into memory, up to a configured size.
+ *
+ * @author Andrew Polyakov
+ */
+@Provider
+@Consumes({BinaryMediaType.APPLICATION_CBOR, BinaryMediaType.APPLICATION_MSGPACK})
+@Produces({BinaryMediaType.APPLICATION_CBOR, BinaryMediaType.APPLICATION_MSGPACK})
+public class BinaryMessageBodyProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    private final int maxBodyBytes;
+
+    /**
+     * @param maxBodyBytes size from which on a body is answered with 413
+     */
+    public BinaryMessageBodyProvider(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return BinaryFormat.of(mediaType) != null && (type == TransactionDto.class || isTransactionList(type, genericType));
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        BinaryReader reader = BinaryFormat.of(mediaType).newReader(readAll(entityStream, maxBodyBytes));
+        Object result = TransactionDto.class.equals(type)
+                ? BinaryCodec.readTransaction(reader)
+                : BinaryCodec.readTransactions(reader);
+        if (!reader.isAtEnd()) {
+            throw new IllegalArgumentException("Trailing bytes after the body");
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return BinaryFormat.of(mediaType) != null
+                && (type == StatisticsDto.class || type == TransactionDto.class || type == OutlierScoreDto.class
+                    || isTransactionList(type, genericType));
+    }
+
+    @Override
+    public long getSize(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void writeTo(Object o, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException, WebApplicationException {
+        BinaryWriter writer = BinaryFormat.of(mediaType).newWriter(entityStream);
+        if (o instanceof StatisticsDto) {
+            BinaryCodec.writeStatistics(writer, (StatisticsDto) o);
+        } else if (o instanceof OutlierScoreDto) {
+            BinaryCodec.writeScore(writer, (OutlierScoreDto) o);
+        } else if (o instanceof TransactionDto) {
+            BinaryCodec.writeTransaction(writer, (TransactionDto) o);
+        } else {
+            BinaryCodec.writeTransactions(writer, (List<TransactionDto>) o);
+        }
+        writer.flush();
+    }
+
+    private static boolean isTransactionList(Class<?> type, Type genericType) {
+        if (!List.class.isAssignableFrom(type) || !(genericType instanceof ParameterizedType)) {
+            return false;
+        }
+        Type[] arguments = ((ParameterizedType) genericType).getActualTypeArguments();
+        return arguments.length == 1 && arguments[0] == TransactionDto.class;
+    }
+
+    static byte[] readAll(InputStream in, int maxBytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            if (n > maxBytes - out.size()) {
+                throw new WebApplicationException("Body larger than " + maxBytes + " bytes", 413);
+            }
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
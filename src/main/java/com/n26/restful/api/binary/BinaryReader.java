@@ -0,0 +1,167 @@
+package com.n26.restful.api.binary;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decoder counterpart of {@link BinaryWriter}, over a request body read into memory. Malformed or truncated input is
+ * reported as an {@link IllegalArgumentException}, which the API answers with 400.
+ *
+ * @author Andrew Polyakov
+ */
+public abstract class BinaryReader {
+
+    /**
+     * Kinds of values as far as the DTOs are concerned.
+     */
+    public enum Type {
+        NULL, BOOLEAN, INTEGER, FLOAT, STRING, BINARY, ARRAY, MAP
+    }
+
+    /* nesting of arrays and maps which is skipped, deeper input would only serve to exhaust the stack */
+    static final int MAX_DEPTH = 32;
+
+    private final byte[] data;
+    private int position;
+
+    protected BinaryReader(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * @return type of the next value, without consuming it
+     */
+    public abstract Type peekType();
+
+    public abstract void readNull();
+
+    public abstract boolean readBoolean();
+
+    public abstract long readLong();
+
+    /**
+     * @return the next value, integers are accepted as well
+     */
+    public abstract double readDouble();
+
+    public abstract String readString();
+
+    public abstract int readArrayHeader();
+
+    public abstract int readMapHeader();
+
+    /**
+     * @return length of the byte string which follows
+     */
+    protected abstract int readBinaryHeader();
+
+    /**
+     * Skips the next value, e.g. of an unknown key.
+     *
+     * @throws IllegalArgumentException if it nests arrays and maps deeper than {@link #MAX_DEPTH}
+     */
+    public void skipValue() {
+        skipValue(0);
+    }
+
+    private void skipValue(int depth) {
+        switch (peekType()) {
+            case NULL:
+                readNull();
+                break;
+            case BOOLEAN:
+                readBoolean();
+                break;
+            case INTEGER:
+                readLong();
+                break;
+            case FLOAT:
+                readDouble();
+                break;
+            case STRING:
+                readString();
+                break;
+            case BINARY:
+                skip(readBinaryHeader());
+                break;
+            case ARRAY:
+                checkDepth(depth);
+                for (int i = readArrayHeader(); i > 0; i--) {
+                    skipValue(depth + 1);
+                }
+                break;
+            case MAP:
+                checkDepth(depth);
+                for (int i = readMapHeader(); i > 0; i--) {
+                    skipValue(depth + 1);
+                    skipValue(depth + 1);
+                }
+                break;
+        }
+    }
+
+    public boolean isAtEnd() {
+        return position == data.length;
+    }
+
+    protected int peek() {
+        if (position >= data.length) {
+            throw new IllegalArgumentException("Truncated input");
+        }
+        return data[position] & 0xff;
+    }
+
+    protected int u8() {
+        int b = peek();
+        position++;
+        return b;
+    }
+
+    protected int u16() {
+        return u8() << 8 | u8();
+    }
+
+    protected long u32() {
+        return (long) u16() << 16 | u16();
+    }
+
+    protected long u64() {
+        return u32() << 32 | u32();
+    }
+
+    protected String utf8(long length) {
+        checkLength(length);
+        String s = new String(data, position, (int) length, StandardCharsets.UTF_8);
+        position += (int) length;
+        return s;
+    }
+
+    protected void skip(long length) {
+        checkLength(length);
+        position += (int) length;
+    }
+
+    /**
+     * @return the length as an int, for the headers of arrays and maps
+     */
+    protected int length(long length) {
+        // every element takes at least a byte, anything longer than the input is a lie
+        checkLength(length);
+        return (int) length;
+    }
+
+    protected static IllegalArgumentException unexpected(int b, String expected) {
+        return new IllegalArgumentException(String.format("Unexpected 0x%02x, expected %s", b, expected));
+    }
+
+    private static void checkDepth(int depth) {
+        if (depth >= MAX_DEPTH) {
+            throw new IllegalArgumentException("Nested deeper than " + MAX_DEPTH);
+        }
+    }
+
+    private void checkLength(long length) {
+        if (length < 0 || length > data.length - position) {
+            throw new IllegalArgumentException("Truncated input");
+        }
+    }
+}
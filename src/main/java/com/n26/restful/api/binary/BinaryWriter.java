@@ -0,0 +1,82 @@
+package com.n26.restful.api.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoder of the handful of primitives the DTOs are made of. Bytes are collected in a small buffer which is written
+ * to the stream whenever it fills up and on {@link #flush()}, so no intermediate tree or string is built.
+ *
+ * @author Andrew Polyakov
+ */
+public abstract class BinaryWriter {
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[512];
+    private int position;
+
+    protected BinaryWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public abstract void writeMapHeader(int size) throws IOException;
+
+    public abstract void writeArrayHeader(int size) throws IOException;
+
+    public abstract void writeNull() throws IOException;
+
+    public abstract void writeBoolean(boolean value) throws IOException;
+
+    public abstract void writeLong(long value) throws IOException;
+
+    public abstract void writeDouble(double value) throws IOException;
+
+    public abstract void writeString(String value) throws IOException;
+
+    /**
+     * Writes what is buffered to the stream, without flushing the stream itself.
+     */
+    public void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    protected void u8(int b) throws IOException {
+        if (position == buffer.length) {
+            flush();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    protected void u16(int v) throws IOException {
+        u8(v >>> 8);
+        u8(v);
+    }
+
+    protected void u32(long v) throws IOException {
+        u16((int) (v >>> 16) & 0xffff);
+        u16((int) v & 0xffff);
+    }
+
+    protected void u64(long v) throws IOException {
+        u32(v >>> 32);
+        u32(v & 0xffffffffL);
+    }
+
+    protected static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    protected void bytes(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flush();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+}
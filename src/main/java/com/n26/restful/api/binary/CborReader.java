@@ -0,0 +1,152 @@
+package com.n26.restful.api.binary;
+
+import static com.n26.restful.api.binary.CborWriter.*;
+
+/**
+ * CBOR (RFC 7049) decoder, definite lengths only. Tags are not expected and rejected.
+ *
+ * @author Andrew Polyakov
+ */
+public class CborReader extends BinaryReader {
+
+    public CborReader(byte[] data) {
+        super(data);
+    }
+
+    @Override
+    public Type peekType() {
+        int b = peek();
+        switch (b >>> 5) {
+            case UNSIGNED:
+            case NEGATIVE:
+                return Type.INTEGER;
+            case BYTES:
+                return Type.BINARY;
+            case TEXT:
+                return Type.STRING;
+            case ARRAY:
+                return Type.ARRAY;
+            case MAP:
+                return Type.MAP;
+            case SIMPLE:
+                if (b == NULL) {
+                    return Type.NULL;
+                }
+                if (b == FALSE || b == TRUE) {
+                    return Type.BOOLEAN;
+                }
+                if (b == FLOAT16 || b == FLOAT32 || b == FLOAT64) {
+                    return Type.FLOAT;
+                }
+                throw unexpected(b, "a value");
+            default:
+                throw unexpected(b, "a value");
+        }
+    }
+
+    @Override
+    public void readNull() {
+        int b = u8();
+        if (b != NULL) {
+            throw unexpected(b, "null");
+        }
+    }
+
+    @Override
+    public boolean readBoolean() {
+        int b = u8();
+        if (b != FALSE && b != TRUE) {
+            throw unexpected(b, "a boolean");
+        }
+        return b == TRUE;
+    }
+
+    @Override
+    public long readLong() {
+        int b = peek();
+        int major = b >>> 5;
+        if (major != UNSIGNED && major != NEGATIVE) {
+            throw unexpected(b, "an integer");
+        }
+        long argument = argument(major);
+        if (argument < 0) {
+            throw new IllegalArgumentException("Integer out of range");
+        }
+        return major == UNSIGNED ? argument : -1 - argument;
+    }
+
+    @Override
+    public double readDouble() {
+        int b = peek();
+        switch (b) {
+            case FLOAT64:
+                u8();
+                return Double.longBitsToDouble(u64());
+            case FLOAT32:
+                u8();
+                return Float.intBitsToFloat((int) u32());
+            case FLOAT16:
+                u8();
+                return halfToDouble(u16());
+            default:
+                return readLong();
+        }
+    }
+
+    @Override
+    public String readString() {
+        return utf8(argument(TEXT));
+    }
+
+    @Override
+    public int readArrayHeader() {
+        return length(argument(ARRAY));
+    }
+
+    @Override
+    public int readMapHeader() {
+        return length(argument(MAP));
+    }
+
+    @Override
+    protected int readBinaryHeader() {
+        return length(argument(BYTES));
+    }
+
+    private long argument(int major) {
+        int b = u8();
+        if (b >>> 5 != major) {
+            throw unexpected(b, "major type " + major);
+        }
+        int info = b & 0x1f;
+        if (info < 24) {
+            return info;
+        }
+        switch (info) {
+            case 24:
+                return u8();
+            case 25:
+                return u16();
+            case 26:
+                return u32();
+            case 27:
+                return u64();
+            default:
+                throw unexpected(b, "a definite length");
+        }
+    }
+
+    private static double halfToDouble(int half) {
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+        double value;
+        if (exponent == 0) {
+            value = mantissa * Math.pow(2, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        } else {
+            value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+}
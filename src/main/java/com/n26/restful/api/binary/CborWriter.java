@@ -0,0 +1,92 @@
+package com.n26.restful.api.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * CBOR (RFC 7049) encoder, definite lengths only.
+ *
+ * @author Andrew Polyakov
+ */
+public class CborWriter extends BinaryWriter {
+
+    static final int UNSIGNED = 0;
+    static final int NEGATIVE = 1;
+    static final int BYTES = 2;
+    static final int TEXT = 3;
+    static final int ARRAY = 4;
+    static final int MAP = 5;
+    static final int SIMPLE = 7;
+
+    static final int FALSE = 0xf4;
+    static final int TRUE = 0xf5;
+    static final int NULL = 0xf6;
+    static final int FLOAT16 = 0xf9;
+    static final int FLOAT32 = 0xfa;
+    static final int FLOAT64 = 0xfb;
+
+    public CborWriter(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void writeMapHeader(int size) throws IOException {
+        header(MAP, size);
+    }
+
+    @Override
+    public void writeArrayHeader(int size) throws IOException {
+        header(ARRAY, size);
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        u8(NULL);
+    }
+
+    @Override
+    public void writeBoolean(boolean value) throws IOException {
+        u8(value ? TRUE : FALSE);
+    }
+
+    @Override
+    public void writeLong(long value) throws IOException {
+        if (value >= 0) {
+            header(UNSIGNED, value);
+        } else {
+            header(NEGATIVE, -1 - value);
+        }
+    }
+
+    @Override
+    public void writeDouble(double value) throws IOException {
+        u8(FLOAT64);
+        u64(Double.doubleToLongBits(value));
+    }
+
+    @Override
+    public void writeString(String value) throws IOException {
+        byte[] bytes = utf8(value);
+        header(TEXT, bytes.length);
+        bytes(bytes);
+    }
+
+    private void header(int major, long argument) throws IOException {
+        int type = major << 5;
+        if (argument < 24) {
+            u8(type | (int) argument);
+        } else if (argument <= 0xff) {
+            u8(type | 24);
+            u8((int) argument);
+        } else if (argument <= 0xffff) {
+            u8(type | 25);
+            u16((int) argument);
+        } else if (argument <= 0xffffffffL) {
+            u8(type | 26);
+            u32(argument);
+        } else {
+            u8(type | 27);
+            u64(argument);
+        }
+    }
+}
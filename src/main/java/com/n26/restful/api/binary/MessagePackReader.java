@@ -0,0 +1,198 @@
+package com.n26.restful.api.binary;
+
+import static com.n26.restful.api.binary.MessagePackWriter.*;
+
+/**
+ * MessagePack decoder. Extension types are not expected and rejected.
+ *
+ * @author Andrew Polyakov
+ */
+public class MessagePackReader extends BinaryReader {
+
+    public MessagePackReader(byte[] data) {
+        super(data);
+    }
+
+    @Override
+    public Type peekType() {
+        int b = peek();
+        if (b <= 0x7f || b >= 0xe0) {
+            return Type.INTEGER;
+        }
+        if (b <= 0x8f) {
+            return Type.MAP;
+        }
+        if (b <= 0x9f) {
+            return Type.ARRAY;
+        }
+        if (b <= 0xbf) {
+            return Type.STRING;
+        }
+        switch (b) {
+            case NIL:
+                return Type.NULL;
+            case FALSE:
+            case TRUE:
+                return Type.BOOLEAN;
+            case BIN8:
+            case BIN16:
+            case BIN32:
+                return Type.BINARY;
+            case FLOAT32:
+            case FLOAT64:
+                return Type.FLOAT;
+            case UINT8:
+            case UINT16:
+            case UINT32:
+            case UINT64:
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+                return Type.INTEGER;
+            case STR8:
+            case STR16:
+            case STR32:
+                return Type.STRING;
+            case ARRAY16:
+            case ARRAY32:
+                return Type.ARRAY;
+            case MAP16:
+            case MAP32:
+                return Type.MAP;
+            default:
+                throw unexpected(b, "a value");
+        }
+    }
+
+    @Override
+    public void readNull() {
+        int b = u8();
+        if (b != NIL) {
+            throw unexpected(b, "nil");
+        }
+    }
+
+    @Override
+    public boolean readBoolean() {
+        int b = u8();
+        if (b != FALSE && b != TRUE) {
+            throw unexpected(b, "a boolean");
+        }
+        return b == TRUE;
+    }
+
+    @Override
+    public long readLong() {
+        int b = u8();
+        if (b <= 0x7f) {
+            return b;
+        }
+        if (b >= 0xe0) {
+            return (byte) b;
+        }
+        switch (b) {
+            case UINT8:
+                return u8();
+            case UINT16:
+                return u16();
+            case UINT32:
+                return u32();
+            case UINT64:
+                long value = u64();
+                if (value < 0) {
+                    throw new IllegalArgumentException("Integer out of range");
+                }
+                return value;
+            case INT8:
+                return (byte) u8();
+            case INT16:
+                return (short) u16();
+            case INT32:
+                return (int) u32();
+            case INT64:
+                return u64();
+            default:
+                throw unexpected(b, "an integer");
+        }
+    }
+
+    @Override
+    public double readDouble() {
+        int b = peek();
+        if (b == FLOAT64) {
+            u8();
+            return Double.longBitsToDouble(u64());
+        }
+        if (b == FLOAT32) {
+            u8();
+            return Float.intBitsToFloat((int) u32());
+        }
+        return readLong();
+    }
+
+    @Override
+    public String readString() {
+        int b = u8();
+        if (b >= 0xa0 && b <= 0xbf) {
+            return utf8(b & 0x1f);
+        }
+        switch (b) {
+            case STR8:
+                return utf8(u8());
+            case STR16:
+                return utf8(u16());
+            case STR32:
+                return utf8(u32());
+            default:
+                throw unexpected(b, "a string");
+        }
+    }
+
+    @Override
+    public int readArrayHeader() {
+        int b = u8();
+        if (b >= 0x90 && b <= 0x9f) {
+            return b & 0x0f;
+        }
+        switch (b) {
+            case ARRAY16:
+                return length(u16());
+            case ARRAY32:
+                return length(u32());
+            default:
+                throw unexpected(b, "an array");
+        }
+    }
+
+    @Override
+    public int readMapHeader() {
+        int b = u8();
+        if (b >= 0x80 && b <= 0x8f) {
+            return b & 0x0f;
+        }
+        switch (b) {
+            case MAP16:
+                return length(u16());
+            case MAP32:
+                return length(u32());
+            default:
+                throw unexpected(b, "a map");
+        }
+    }
+
+    @Override
+    protected int readBinaryHeader() {
+        int b = u8();
+        switch (b) {
+            case BIN8:
+                return length(u8());
+            case BIN16:
+                return length(u16());
+            case BIN32:
+                return length(u32());
+            default:
+                throw unexpected(b, "a byte string");
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.n26.restful.api.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * MessagePack encoder, integers in the smallest representation that holds them.
+ *
+ * @author Andrew Polyakov
+ */
+public class MessagePackWriter extends BinaryWriter {
+
+    static final int NIL = 0xc0;
+    static final int FALSE = 0xc2;
+    static final int TRUE = 0xc3;
+    static final int BIN8 = 0xc4;
+    static final int BIN16 = 0xc5;
+    static final int BIN32 = 0xc6;
+    static final int FLOAT32 = 0xca;
+    static final int FLOAT64 = 0xcb;
+    static final int UINT8 = 0xcc;
+    static final int UINT16 = 0xcd;
+    static final int UINT32 = 0xce;
+    static final int UINT64 = 0xcf;
+    static final int INT8 = 0xd0;
+    static final int INT16 = 0xd1;
+    static final int INT32 = 0xd2;
+    static final int INT64 = 0xd3;
+    static final int STR8 = 0xd9;
+    static final int STR16 = 0xda;
+    static final int STR32 = 0xdb;
+    static final int ARRAY16 = 0xdc;
+    static final int ARRAY32 = 0xdd;
+    static final int MAP16 = 0xde;
+    static final int MAP32 = 0xdf;
+
+    public MessagePackWriter(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void writeMapHeader(int size) throws IOException {
+        if (size < 16) {
+            u8(0x80 | size);
+        } else if (size <= 0xffff) {
+            u8(MAP16);
+            u16(size);
+        } else {
+            u8(MAP32);
+            u32(size);
+        }
+    }
+
+    @Override
+    public void writeArrayHeader(int size) throws IOException {
+        if (size < 16) {
+            u8(0x90 | size);
+        } else if (size <= 0xffff) {
+            u8(ARRAY16);
+            u16(size);
+        } else {
+            u8(ARRAY32);
+            u32(size);
+        }
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        u8(NIL);
+    }
+
+    @Override
+    public void writeBoolean(boolean value) throws IOException {
+        u8(value ? TRUE : FALSE);
+    }
+
+    @Override
+    public void writeLong(long value) throws IOException {
+        if (value >= 0) {
+            if (value < 128) {
+                u8((int) value);
+            } else if (value <= 0xff) {
+                u8(UINT8);
+                u8((int) value);
+            } else if (value <= 0xffff) {
+                u8(UINT16);
+                u16((int) value);
+            } else if (value <= 0xffffffffL) {
+                u8(UINT32);
+                u32(value);
+            } else {
+                u8(UINT64);
+                u64(value);
+            }
+        } else if (value >= -32) {
+            u8((int) value & 0xff);
+        } else if (value >= Byte.MIN_VALUE) {
+            u8(INT8);
+            u8((int) value & 0xff);
+        } else if (value >= Short.MIN_VALUE) {
+            u8(INT16);
+            u16((int) value & 0xffff);
+        } else if (value >= Integer.MIN_VALUE) {
+            u8(INT32);
+            u32(value & 0xffffffffL);
+        } else {
+            u8(INT64);
+            u64(value);
+        }
+    }
+
+    @Override
+    public void writeDouble(double value) throws IOException {
+        u8(FLOAT64);
+        u64(Double.doubleToLongBits(value));
+    }
+
+    @Override
+    public void writeString(String value) throws IOException {
+        byte[] bytes = utf8(value);
+        int length = bytes.length;
+        if (length < 32) {
+            u8(0xa0 | length);
+        } else if (length <= 0xff) {
+            u8(STR8);
+            u8(length);
+        } else if (length <= 0xffff) {
+            u8(STR16);
+            u16(length);
+        } else {
+            u8(STR32);
+            u32(length);
+        }
+        bytes(bytes);
+    }
+}
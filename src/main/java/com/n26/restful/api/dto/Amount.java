@@ -0,0 +1,179 @@
+package com.n26.restful.api.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.n26.money.FixedPoint;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Monetary amount, checked once when it arrives and kept as its decimal text. Readers decide whether they want a
+ * {@code double} ({@link #doubleValue()}), derived on first use, or exact minor units ({@link #toMinorUnits(int)}),
+ * parsed straight from the text, so that money mode never goes through binary floating point. Written back to JSON as
+ * a plain number.
+ *
+ * @author Andrew Polyakov
+ */
+@JsonSerialize(using = Amount.Serializer.class)
+@JsonDeserialize(using = Amount.Deserializer.class)
+public final class Amount extends Number {
+
+    /* NaN until derived from the text, a parsed amount is never NaN */
+    private volatile double value;
+    /* exact decimal text, null if made of a double */
+    private final String text;
+
+    private Amount(double value, String text) {
+        this.value = value;
+        this.text = text;
+    }
+
+    public static Amount valueOf(double value) {
+        return new Amount(value, null);
+    }
+
+    /**
+     * @param units minor units, e.g. cents
+     * @param scale decimal places of a minor unit
+     */
+    public static Amount valueOf(long units, int scale) {
+        return new Amount(FixedPoint.toDouble(units, scale), FixedPoint.format(units, scale));
+    }
+
+    /**
+     * @param text a plain decimal number such as {@code -12.34} or {@code 1.5E3}
+     * @throws NumberFormatException if the text is not such a number
+     */
+    public static Amount parse(String text) {
+        // a JSON style number, rules out NaN, Infinity, hexadecimal and type suffixes which Double.parseDouble takes
+        int i = skipSign(text, 0);
+        int digits = 0;
+        boolean dot = false;
+        for (; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (digits > 0 && i < text.length() && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            int exponent = skipSign(text, i + 1);
+            for (i = exponent; i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++) {
+                // exponent digits
+            }
+            if (i == exponent) {
+                digits = 0;
+            }
+        }
+        if (digits == 0 || i < text.length()) {
+            throw new NumberFormatException("Not a number: " + text);
+        }
+        return new Amount(Double.NaN, text);
+    }
+
+    private static int skipSign(String text, int i) {
+        return i < text.length() && (text.charAt(i) == '-' || text.charAt(i) == '+') ? i + 1 : i;
+    }
+
+    /**
+     * @throws NumberFormatException if the amount is out of the range of a double
+     */
+    @Override
+    public double doubleValue() {
+        double v = value;
+        if (Double.isNaN(v) && text != null) {
+            v = Double.parseDouble(text);
+            if (Double.isInfinite(v)) {
+                throw new NumberFormatException("Out of range: " + text);
+            }
+            value = v;
+        }
+        return v;
+    }
+
+    /**
+     * @throws ArithmeticException if the amount does not fit into a long of minor units
+     */
+    public long toMinorUnits(int scale) {
+        return FixedPoint.parse(toString(), scale);
+    }
+
+    @Override
+    public float floatValue() {
+        return (float) doubleValue();
+    }
+
+    @Override
+    public long longValue() {
+        return (long) doubleValue();
+    }
+
+    @Override
+    public int intValue() {
+        return (int) doubleValue();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Amount)) {
+            return false;
+        }
+        Amount other = (Amount) o;
+        if (text != null || other.text != null) {
+            return Objects.equals(text, other.text);
+        }
+        return Double.compare(value, other.value) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return text != null ? text.hashCode() : Double.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        return text != null ? text : Double.toString(value);
+    }
+
+    public static class Serializer extends JsonSerializer<Amount> {
+        @Override
+        public void serialize(Amount value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            if (value.text != null) {
+                gen.writeNumber(value.text);
+            } else {
+                // quotes NaN and Infinity, e.g. of an overflowed sum, so that the JSON stays valid
+                gen.writeNumber(value.value);
+            }
+        }
+    }
+
+    /**
+     * Takes the raw text of the number token and checks it once. Anything which is not a number is a mapping error,
+     * answered with 400.
+     */
+    public static class Deserializer extends JsonDeserializer<Amount> {
+        @Override
+        public Amount deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken token = p.getCurrentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_STRING) {
+                try {
+                    return parse(p.getText().trim());
+                } catch (NumberFormatException ex) {
+                    throw ctxt.mappingException("Amount must be a number");
+                }
+            }
+            throw ctxt.mappingException("Amount must be a number");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.n26.restful.api.dto;
+
+/**
+ * Data transfer object for a single top key. The true value lies within {@code [value - error, value]}.
+ *
+ * @author Andrew Polyakov
+ */
+public class HeavyHitterDto {
+
+    private final String key;
+    private final Double value;
+    private final Double error;
+
+    public HeavyHitterDto() {
+        this.key = null;
+        this.value = 0.0;
+        this.error = 0.0;
+    }
+
+    public HeavyHitterDto(String key, Double value, Double error) {
+        this.key = key;
+        this.value = value;
+        this.error = error;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Double getValue() {
+        return value;
+    }
+
+    public Double getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "HeavyHitterDto{" +
+                "key='" + key + '\'' +
+                ", value=" + value +
+                ", error=" + error +
+                '}';
+    }
+}
@@ -0,0 +1,75 @@
+package com.n26.restful.api.dto;
+
+/**
+ * Data transfer object for the load of a request lane.
+ *
+ * @author Andrew Polyakov
+ */
+public class LaneDto {
+
+    private final Integer threads;
+    private final Integer queueCapacity;
+    private final Integer queued;
+    private final Integer active;
+    private final Long completed;
+    private final Long rejected;
+    private final Long queueWaitMicros;
+
+    public LaneDto() {
+        this(0, 0, 0, 0, 0L, 0L, 0L);
+    }
+
+    public LaneDto(Integer threads, Integer queueCapacity, Integer queued, Integer active,
+                   Long completed, Long rejected, Long queueWaitMicros) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.queued = queued;
+        this.active = active;
+        this.completed = completed;
+        this.rejected = rejected;
+        this.queueWaitMicros = queueWaitMicros;
+    }
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public Integer getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return requests waiting for a thread right now
+     */
+    public Integer getQueued() {
+        return queued;
+    }
+
+    /**
+     * @return requests being served right now
+     */
+    public Integer getActive() {
+        return active;
+    }
+
+    /**
+     * @return requests served since start
+     */
+    public Long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return requests answered with 503 since start because the queue was full
+     */
+    public Long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return total time requests waited in the queue since start, divide by completed for a mean
+     */
+    public Long getQueueWaitMicros() {
+        return queueWaitMicros;
+    }
+}
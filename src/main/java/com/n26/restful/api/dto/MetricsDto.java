@@ -0,0 +1,36 @@
+package com.n26.restful.api.dto;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Data transfer object for the health of the service itself, as opposed to the statistics it serves.
+ *
+ * @author Andrew Polyakov
+ */
+public class MetricsDto {
+
+    private final Map<String, LaneDto> lanes;
+    private final OutliersDto outliers;
+
+    public MetricsDto() {
+        this.lanes = Collections.emptyMap();
+        this.outliers = new OutliersDto();
+    }
+
+    public MetricsDto(Map<String, LaneDto> lanes, OutliersDto outliers) {
+        this.lanes = lanes;
+        this.outliers = outliers;
+    }
+
+    /**
+     * @return load of the request lanes by name, {@code read} and {@code write}
+     */
+    public Map<String, LaneDto> getLanes() {
+        return lanes;
+    }
+
+    public OutliersDto getOutliers() {
+        return outliers;
+    }
+}
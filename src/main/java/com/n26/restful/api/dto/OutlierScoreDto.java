@@ -0,0 +1,41 @@
+package com.n26.restful.api.dto;
+
+/**
+ * Data transfer object for the verdict on a single transaction.
+ *
+ * @author Andrew Polyakov
+ */
+public class OutlierScoreDto {
+
+    private final Double score;
+    private final Boolean aboveP99;
+    private final Boolean flagged;
+
+    public OutlierScoreDto() {
+        this(0.0, false, false);
+    }
+
+    public OutlierScoreDto(Double score, Boolean aboveP99, Boolean flagged) {
+        this.score = score;
+        this.aboveP99 = aboveP99;
+        this.flagged = flagged;
+    }
+
+    /**
+     * @return z-score, the distance to the mean of the window in standard deviations, 0 without a baseline
+     */
+    public Double getScore() {
+        return score;
+    }
+
+    public Boolean getAboveP99() {
+        return aboveP99;
+    }
+
+    /**
+     * @return whether the z-score reached the configured threshold
+     */
+    public Boolean getFlagged() {
+        return flagged;
+    }
+}
@@ -0,0 +1,44 @@
+package com.n26.restful.api.dto;
+
+/**
+ * Data transfer object for the outlier scoring counters.
+ *
+ * @author Andrew Polyakov
+ */
+public class OutliersDto {
+
+    private final Double threshold;
+    private final Long scored;
+    private final Long flagged;
+
+    public OutliersDto() {
+        this(0.0, 0L, 0L);
+    }
+
+    public OutliersDto(Double threshold, Long scored, Long flagged) {
+        this.threshold = threshold;
+        this.scored = scored;
+        this.flagged = flagged;
+    }
+
+    /**
+     * @return absolute z-score from which on a transaction is flagged
+     */
+    public Double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return transactions scored since start
+     */
+    public Long getScored() {
+        return scored;
+    }
+
+    /**
+     * @return transactions flagged since start, divide by scored for the flagged rate
+     */
+    public Long getFlagged() {
+        return flagged;
+    }
+}
@@ -0,0 +1,47 @@
+package com.n26.restful.api.dto;
+
+/**
+ * Data transfer object for a per second rate and its moving averages.
+ *
+ * @author Andrew Polyakov
+ */
+public class RateDto {
+
+    private final Double current;
+    private final Double oneMinute;
+    private final Double fiveMinutes;
+    private final Double fifteenMinutes;
+
+    public RateDto() {
+        this.current = 0.0;
+        this.oneMinute = 0.0;
+        this.fiveMinutes = 0.0;
+        this.fifteenMinutes = 0.0;
+    }
+
+    public RateDto(Double current, Double oneMinute, Double fiveMinutes, Double fifteenMinutes) {
+        this.current = current;
+        this.oneMinute = oneMinute;
+        this.fiveMinutes = fiveMinutes;
+        this.fifteenMinutes = fifteenMinutes;
+    }
+
+    /**
+     * @return rate within the most recently sealed bucket
+     */
+    public Double getCurrent() {
+        return current;
+    }
+
+    public Double getOneMinute() {
+        return oneMinute;
+    }
+
+    public Double getFiveMinutes() {
+        return fiveMinutes;
+    }
+
+    public Double getFifteenMinutes() {
+        return fifteenMinutes;
+    }
+}
@@ -0,0 +1,40 @@
+package com.n26.restful.api.dto;
+
+/**
+ * Data transfer object for transactions and amount per second.
+ *
+ * @author Andrew Polyakov
+ */
+public class RatesDto {
+
+    private final Long asOf;
+    private final RateDto transactions;
+    private final RateDto amount;
+
+    public RatesDto() {
+        this.asOf = 0L;
+        this.transactions = new RateDto();
+        this.amount = new RateDto();
+    }
+
+    public RatesDto(Long asOf, RateDto transactions, RateDto amount) {
+        this.asOf = asOf;
+        this.transactions = transactions;
+        this.amount = amount;
+    }
+
+    /**
+     * @return end of the most recently sealed bucket in epoch millis
+     */
+    public Long getAsOf() {
+        return asOf;
+    }
+
+    public RateDto getTransactions() {
+        return transactions;
+    }
+
+    public RateDto getAmount() {
+        return amount;
+    }
+}
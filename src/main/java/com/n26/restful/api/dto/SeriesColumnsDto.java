@@ -0,0 +1,78 @@
+package com.n26.restful.api.dto;
+
+import java.util.List;
+
+/**
+ * Columnar rendering of the per bucket series, one array per field instead of one object per bucket. Field names are
+ * written once, which keeps the payload small for large bucket counts and maps straight onto chart libraries.
+ *
+ * @author Andrew Polyakov
+ */
+public class SeriesColumnsDto {
+
+    private final Long bucketSize;
+    private final long[] windowStarts;
+    private final long[] counts;
+    private final Amount[] sums;
+    private final Amount[] mins;
+    private final Amount[] maxes;
+
+    public SeriesColumnsDto() {
+        this(0L, new long[0], new long[0], new Amount[0], new Amount[0], new Amount[0]);
+    }
+
+    public SeriesColumnsDto(Long bucketSize, long[] windowStarts, long[] counts, Amount[] sums, Amount[] mins,
+                            Amount[] maxes) {
+        this.bucketSize = bucketSize;
+        this.windowStarts = windowStarts;
+        this.counts = counts;
+        this.sums = sums;
+        this.mins = mins;
+        this.maxes = maxes;
+    }
+
+    public static SeriesColumnsDto of(Long bucketSize, List<SeriesPointDto> points) {
+        int n = points.size();
+        long[] windowStarts = new long[n];
+        long[] counts = new long[n];
+        Amount[] sums = new Amount[n];
+        Amount[] mins = new Amount[n];
+        Amount[] maxes = new Amount[n];
+        for (int i = 0; i < n; i++) {
+            SeriesPointDto p = points.get(i);
+            windowStarts[i] = p.getWindowStart();
+            counts[i] = p.getCount();
+            sums[i] = p.getSum();
+            mins[i] = p.getMin();
+            maxes[i] = p.getMax();
+        }
+        return new SeriesColumnsDto(bucketSize, windowStarts, counts, sums, mins, maxes);
+    }
+
+    /**
+     * @return length of a bucket in millis
+     */
+    public Long getBucketSize() {
+        return bucketSize;
+    }
+
+    public long[] getWindowStarts() {
+        return windowStarts;
+    }
+
+    public long[] getCounts() {
+        return counts;
+    }
+
+    public Amount[] getSums() {
+        return sums;
+    }
+
+    public Amount[] getMins() {
+        return mins;
+    }
+
+    public Amount[] getMaxes() {
+        return maxes;
+    }
+}
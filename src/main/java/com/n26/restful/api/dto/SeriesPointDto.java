@@ -0,0 +1,54 @@
+package com.n26.restful.api.dto;
+
+/**
+ * Data transfer object for the totals of one bucket of the window.
+ *
+ * @author Andrew Polyakov
+ */
+public class SeriesPointDto {
+
+    private final Long windowStart;
+    private final Long count;
+    private final Amount sum;
+    private final Amount min;
+    private final Amount max;
+
+    public SeriesPointDto() {
+        this.windowStart = 0L;
+        this.count = 0L;
+        this.sum = Amount.valueOf(0.0);
+        this.min = Amount.valueOf(0.0);
+        this.max = Amount.valueOf(0.0);
+    }
+
+    public SeriesPointDto(Long windowStart, Long count, Amount sum, Amount min, Amount max) {
+        this.windowStart = windowStart;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @return start of the bucket in epoch millis, inclusive
+     */
+    public Long getWindowStart() {
+        return windowStart;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public Amount getSum() {
+        return sum;
+    }
+
+    public Amount getMin() {
+        return min;
+    }
+
+    public Amount getMax() {
+        return max;
+    }
+}
@@ -8,47 +8,90 @@ package com.n26.restful.api.dto;
 public class StatisticsDto {
 
     private final Long count;
-    private final Double min;
-    private final Double max;
-    private final Double avg;
-    private final Double sum;
+    private final Amount min;
+    private final Amount max;
+    private final Amount avg;
+    private final Amount sum;
+    private final Double variance;
+    private final Double stddev;
+    private final Double p50;
+    private final Double p90;
+    private final Double p99;
 
     public StatisticsDto() {
         this.count = 0l;
-        this.min = 0.0;
-        this.max = 0.0;
-        this.avg = 0.0;
-        this.sum = 0.0;
+        this.min = Amount.valueOf(0.0);
+        this.max = Amount.valueOf(0.0);
+        this.avg = Amount.valueOf(0.0);
+        this.sum = Amount.valueOf(0.0);
+        this.variance = 0.0;
+        this.stddev = 0.0;
+        this.p50 = 0.0;
+        this.p90 = 0.0;
+        this.p99 = 0.0;
     }
 
     public StatisticsDto(Long count, Double min, Double max, Double avg, Double sum) {
+        this(count, Amount.valueOf(min), Amount.valueOf(max), Amount.valueOf(avg), Amount.valueOf(sum), 0.0, 0.0, 0.0, 0.0, 0.0);
+    }
+
+    /**
+     * Amounts are exact decimals in money mode and plain doubles otherwise.
+     */
+    public StatisticsDto(Long count, Amount min, Amount max, Amount avg, Amount sum,
+                         Double variance, Double stddev, Double p50, Double p90, Double p99) {
         this.count = count;
         this.min = min;
         this.max = max;
         this.avg = avg;
         this.sum = sum;
+        this.variance = variance;
+        this.stddev = stddev;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
     }
 
     public Long getCount() {
         return count;
     }
 
-    public Double getMin() {
+    public Amount getMin() {
         return min;
     }
 
-    public Double getMax() {
+    public Amount getMax() {
         return max;
     }
 
-    public Double getAvg() {
+    public Amount getAvg() {
         return avg;
     }
 
-    public Double getSum() {
+    public Amount getSum() {
         return sum;
     }
 
+    public Double getVariance() {
+        return variance;
+    }
+
+    public Double getStddev() {
+        return stddev;
+    }
+
+    public Double getP50() {
+        return p50;
+    }
+
+    public Double getP90() {
+        return p90;
+    }
+
+    public Double getP99() {
+        return p99;
+    }
+
     @Override
     public String toString() {
         return "StatisticsDto{" +
@@ -57,6 +100,11 @@ public class StatisticsDto {
                 ", max=" + max +
                 ", avg=" + avg +
                 ", sum=" + sum +
+                ", variance=" + variance +
+                ", stddev=" + stddev +
+                ", p50=" + p50 +
+                ", p90=" + p90 +
+                ", p99=" + p99 +
                 '}';
     }
 }
@@ -0,0 +1,41 @@
+package com.n26.restful.api.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data transfer object for the heaviest keys over the window.
+ *
+ * @author Andrew Polyakov
+ */
+public class TopKeysDto {
+
+    private final List<HeavyHitterDto> bySum;
+    private final List<HeavyHitterDto> byCount;
+
+    public TopKeysDto() {
+        this.bySum = Collections.emptyList();
+        this.byCount = Collections.emptyList();
+    }
+
+    public TopKeysDto(List<HeavyHitterDto> bySum, List<HeavyHitterDto> byCount) {
+        this.bySum = bySum;
+        this.byCount = byCount;
+    }
+
+    public List<HeavyHitterDto> getBySum() {
+        return bySum;
+    }
+
+    public List<HeavyHitterDto> getByCount() {
+        return byCount;
+    }
+
+    @Override
+    public String toString() {
+        return "TopKeysDto{" +
+                "bySum=" + bySum +
+                ", byCount=" + byCount +
+                '}';
+    }
+}
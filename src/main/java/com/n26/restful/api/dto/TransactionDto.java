@@ -11,19 +11,37 @@ public class TransactionDto {
     }
 
     public TransactionDto(Double amount, Long timestamp) {
-        this.amount = amount;
+        this.amount = Amount.valueOf(amount);
         this.timestamp = timestamp;
     }
 
-    private Double amount;
+    public TransactionDto(Double amount, Long timestamp, String key) {
+        this(amount, timestamp);
+        this.key = key;
+    }
+
+    /**
+     * Kept as text so that money mode can take exact minor units from it.
+     */
+    private Amount amount;
 
     private Long timestamp;
 
-    public Double getAmount() {
+    /**
+     * Optional merchant, currency or account the transaction belongs to.
+     */
+    private String key;
+
+    /**
+     * Optional id the sender keeps across retries, repeated ids within the window are accounted once.
+     */
+    private String id;
+
+    public Amount getAmount() {
         return amount;
     }
 
-    public void setAmount(Double amount) {
+    public void setAmount(Amount amount) {
         this.amount = amount;
     }
 
@@ -34,4 +52,20 @@ public class TransactionDto {
     public void setTimestamp(Long timestamp) {
         this.timestamp = timestamp;
     }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
 }
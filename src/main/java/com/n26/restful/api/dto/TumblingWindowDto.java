@@ -0,0 +1,43 @@
+package com.n26.restful.api.dto;
+
+/**
+ * Data transfer object for a closed calendar aligned window.
+ *
+ * @author Andrew Polyakov
+ */
+public class TumblingWindowDto {
+
+    private final Long start;
+    private final Long end;
+    private final StatisticsDto statistics;
+
+    public TumblingWindowDto() {
+        this.start = 0L;
+        this.end = 0L;
+        this.statistics = new StatisticsDto();
+    }
+
+    public TumblingWindowDto(Long start, Long end, StatisticsDto statistics) {
+        this.start = start;
+        this.end = end;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return start in epoch millis, inclusive
+     */
+    public Long getStart() {
+        return start;
+    }
+
+    /**
+     * @return end in epoch millis, exclusive
+     */
+    public Long getEnd() {
+        return end;
+    }
+
+    public StatisticsDto getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,48 @@
+package com.n26.shm;
+
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Layout of the statistics file shared between {@link SharedMemoryPublisher} and {@link SharedMemoryReader}. All
+ * fields are 8 bytes in native byte order, readers are on the same host by definition.
+ * <pre>
+ *  0 magic       8 sequence     16 version     24 published at (epoch millis)
+ * 32 count      40 sum          48 min         56 max         64 avg
+ * </pre>
+ * The sequence is odd while a write is in progress, the version counts completed publications.
+ *
+ * @author Andrew Polyakov
+ */
+final class SharedMemoryLayout {
+
+    static final long MAGIC = 0x4e3236535441545aL; // "N26STATZ"
+    static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    static final int MAGIC_OFFSET = 0;
+    static final int SEQUENCE_OFFSET = 8;
+    static final int VERSION_OFFSET = 16;
+    static final int PUBLISHED_AT_OFFSET = 24;
+    static final int COUNT_OFFSET = 32;
+    static final int SUM_OFFSET = 40;
+    static final int MIN_OFFSET = 48;
+    static final int MAX_OFFSET = 56;
+    static final int AVG_OFFSET = 64;
+
+    /* two cache lines, leaves room for more fields */
+    static final int SIZE = 128;
+
+    private static final AtomicLong FENCE = new AtomicLong();
+
+    private SharedMemoryLayout() {
+    }
+
+    /**
+     * Keeps the accesses to the mapping on either side of the call in order. The other process is outside the Java
+     * memory model and Java 8 has no public fence, so this leans on an atomic read-modify-write, which HotSpot compiles
+     * to a full fence on every platform. Called a few times per publication, contention is not a concern.
+     */
+    static void fence() {
+        FENCE.incrementAndGet();
+    }
+}
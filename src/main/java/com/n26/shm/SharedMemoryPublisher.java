@@ -0,0 +1,94 @@
+package com.n26.shm;
+
+import com.n26.N26RollingStatistics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.n26.shm.SharedMemoryLayout.*;
+
+/**
+ * Publishes the latest rolling statistics into a small memory mapped file, so that other processes on the host can
+ * read them with {@link SharedMemoryReader} instead of polling HTTP. Every publication is written under a sequence
+ * lock, a reader never sees a half written snapshot.
+ *
+ *<br>
+ * There must be a single publishing thread per file, which is the refresh worker of the statistics endpoint.
+ *
+ * @author Andrew Polyakov
+ */
+public class SharedMemoryPublisher implements Closeable {
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private long sequence;
+    private long version;
+
+    /**
+     * Creates or takes over the file. A previous publisher of the same file must be gone.
+     */
+    public SharedMemoryPublisher(File path) throws IOException {
+        File parent = path.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        file = new RandomAccessFile(path, "rw");
+        file.setLength(SIZE);
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+        buffer.order(ORDER);
+        // carry on from where a restarted publisher left off so that readers keep seeing increasing versions
+        if (buffer.getLong(MAGIC_OFFSET) == MAGIC) {
+            sequence = buffer.getLong(SEQUENCE_OFFSET) + 1 & ~1L;
+            version = buffer.getLong(VERSION_OFFSET);
+        }
+        buffer.putLong(SEQUENCE_OFFSET, sequence);
+        buffer.putLong(MAGIC_OFFSET, MAGIC);
+    }
+
+    /**
+     * Publisher which does nothing, when shared memory is not configured.
+     */
+    private SharedMemoryPublisher() {
+        file = null;
+        buffer = null;
+    }
+
+    public static SharedMemoryPublisher disabled() {
+        return new SharedMemoryPublisher();
+    }
+
+    public boolean isEnabled() {
+        return buffer != null;
+    }
+
+    public void publish(N26RollingStatistics.AggregatedStatistics statistics) {
+        if (buffer == null) {
+            return;
+        }
+        buffer.putLong(SEQUENCE_OFFSET, ++sequence);
+        fence();
+        buffer.putLong(VERSION_OFFSET, ++version);
+        buffer.putLong(PUBLISHED_AT_OFFSET, System.currentTimeMillis());
+        buffer.putLong(COUNT_OFFSET, statistics.getSize());
+        buffer.putDouble(SUM_OFFSET, statistics.getSum());
+        buffer.putDouble(MIN_OFFSET, statistics.getMin());
+        buffer.putDouble(MAX_OFFSET, statistics.getMax());
+        buffer.putDouble(AVG_OFFSET, statistics.getAvg());
+        fence();
+        buffer.putLong(SEQUENCE_OFFSET, ++sequence);
+    }
+
+    /**
+     * Closes the file, the mapping itself lives until the buffer is collected.
+     */
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+        }
+    }
+}
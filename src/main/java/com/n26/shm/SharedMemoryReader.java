@@ -0,0 +1,78 @@
+package com.n26.shm;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static com.n26.shm.SharedMemoryLayout.*;
+
+/**
+ * Reads the statistics published by {@link SharedMemoryPublisher} from another JVM on the same host. A read is a
+ * handful of loads from the page cache, no system call and no socket involved.
+ *
+ * <pre>
+ * try (SharedMemoryReader reader = new SharedMemoryReader(new File("/dev/shm/n26-statistics"))) {
+ *     SharedSnapshot snapshot = reader.read();
+ * }
+ * </pre>
+ *
+ * @author Andrew Polyakov
+ */
+public class SharedMemoryReader implements Closeable {
+
+    /* a write takes nanoseconds, spinning this long means the publisher died half way */
+    static final int MAX_ATTEMPTS = 1 << 20;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+
+    public SharedMemoryReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        if (file.length() < SIZE) {
+            file.close();
+            throw new IOException(path + " is not a statistics file");
+        }
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, SIZE);
+        buffer.order(ORDER);
+        if (buffer.getLong(MAGIC_OFFSET) != MAGIC) {
+            file.close();
+            throw new IOException(path + " is not a statistics file");
+        }
+    }
+
+    /**
+     * @return consistent snapshot of the last publication
+     * @throws IllegalStateException if the publisher appears to have stopped in the middle of a write
+     */
+    public SharedSnapshot read() {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            long before = buffer.getLong(SEQUENCE_OFFSET);
+            if ((before & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            fence();
+            SharedSnapshot snapshot = new SharedSnapshot(
+                    buffer.getLong(VERSION_OFFSET),
+                    buffer.getLong(PUBLISHED_AT_OFFSET),
+                    buffer.getLong(COUNT_OFFSET),
+                    buffer.getDouble(SUM_OFFSET),
+                    buffer.getDouble(MIN_OFFSET),
+                    buffer.getDouble(MAX_OFFSET),
+                    buffer.getDouble(AVG_OFFSET));
+            fence();
+            if (buffer.getLong(SEQUENCE_OFFSET) == before) {
+                return snapshot;
+            }
+        }
+        throw new IllegalStateException("No consistent snapshot after " + MAX_ATTEMPTS + " attempts");
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
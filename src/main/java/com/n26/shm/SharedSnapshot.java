@@ -0,0 +1,61 @@
+package com.n26.shm;
+
+/**
+ * Consistent copy of the statistics last published to shared memory.
+ *
+ * @author Andrew Polyakov
+ */
+public final class SharedSnapshot {
+
+    private final long version;
+    private final long publishedAt;
+    private final long count;
+    private final double sum;
+    private final double min;
+    private final double max;
+    private final double avg;
+
+    SharedSnapshot(long version, long publishedAt, long count, double sum, double min, double max, double avg) {
+        this.version = version;
+        this.publishedAt = publishedAt;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.avg = avg;
+    }
+
+    /**
+     * @return number of publications so far, 0 if nothing was published yet
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return wall clock time of the publication in epoch millis
+     */
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getAvg() {
+        return avg;
+    }
+}
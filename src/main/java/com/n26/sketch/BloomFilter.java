@@ -0,0 +1,113 @@
+package com.n26.sketch;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size, lock free Bloom filter over pre-hashed keys. Bits live in an {@link AtomicLongArray} and are only ever
+ * set, with a CAS which is skipped if the bit is already there, so concurrent writers and readers never block each
+ * other. The k probe positions are derived from one 64 bit hash by double hashing (Kirsch and Mitzenmacher), hash the
+ * key once with {@link #hash(String)} and probe as many filters as needed with it.
+ *
+ *<br>
+ * Sized for a number of keys and a false positive probability up front. Putting more keys than that keeps the memory
+ * bounded, only the false positive rate degrades.
+ *
+ * @author Andrew Polyakov
+ */
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+
+    public BloomFilter(int expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("The expectedInsertions must be positive");
+        }
+        if (!(falsePositiveProbability > 0.0 && falsePositiveProbability < 1.0)) {
+            throw new IllegalArgumentException("The falsePositiveProbability must be between 0 and 1");
+        }
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (LN2 * LN2));
+        int words = (int) Math.max(1, (m + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * LN2));
+    }
+
+    /**
+     * 64 bit FNV-1a of the chars, finished with the MurmurHash3 mixer so that all bits depend on all chars.
+     */
+    public static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * @return false if the key was definitely never put, true if it probably was
+     */
+    public boolean mightContain(long hash) {
+        long h2 = secondHash(hash);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(hash + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the bits of the key. Two threads putting the same absent key at the same time may both get true.
+     *
+     * @return true if any bit changed, i.e. the key was definitely not there before
+     */
+    public boolean put(long hash) {
+        long h2 = secondHash(hash);
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(hash + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0) {
+                if (bits.compareAndSet(word, current, current | mask)) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    private long index(long combined) {
+        return Long.remainderUnsigned(combined, bitSize);
+    }
+
+    private static long secondHash(long hash) {
+        // never zero, so that the probes of a key do not all land on one position
+        return mix(hash + 0x9E3779B97F4A7C15L) | 1;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,32 @@
+package com.n26.sketch;
+
+/**
+ * A key reported by {@link SpaceSaving} together with its estimated weight. The estimate never undercounts, the true
+ * weight lies within {@code [estimate - error, estimate]}.
+ *
+ * @author Andrew Polyakov
+ */
+public class HeavyHitter {
+
+    private final String key;
+    private final double estimate;
+    private final double error;
+
+    public HeavyHitter(String key, double estimate, double error) {
+        this.key = key;
+        this.estimate = estimate;
+        this.error = error;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public double getEstimate() {
+        return estimate;
+    }
+
+    public double getError() {
+        return error;
+    }
+}
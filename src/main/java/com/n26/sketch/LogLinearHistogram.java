@@ -0,0 +1,106 @@
+package com.n26.sketch;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free, fixed size histogram for streaming percentiles in the spirit of HdrHistogram. Every power of two is split
+ * into {@link #SUB_BUCKETS} linear sub-buckets, so the bin of a value is read straight off the exponent and the top
+ * mantissa bits of its IEEE 754 representation, no logarithm needed. Relative error of a reported percentile is
+ * bounded by {@code 1 / (2 * SUB_BUCKETS)}, about 3%.
+ *
+ *<br>
+ * Magnitudes between {@code 2^MIN_EXPONENT} and {@code 2^(MAX_EXPONENT + 1)} are tracked, smaller ones count as zero
+ * and larger ones end up in the top bin. Negative values are mirrored so that bin order matches value order.
+ *
+ *<br>
+ * Recording is a single atomic increment without any allocation. Histograms of different buckets are merged by
+ * adding their bins, see {@link #addTo(long[])}.
+ *
+ * @author Andrew Polyakov
+ */
+public class LogLinearHistogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int MIN_EXPONENT = -7;
+    static final int MAX_EXPONENT = 39;
+    static final int BINS_PER_SIGN = (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+    static final int ZERO = BINS_PER_SIGN;
+    public static final int BINS = 2 * BINS_PER_SIGN + 1;
+
+    private final AtomicLongArray bins = new AtomicLongArray(BINS);
+
+    public void record(double value) {
+        bins.incrementAndGet(binOf(value));
+    }
+
+    /**
+     * Adds all bins to the given accumulator of {@link #BINS} elements. Not an atomic snapshot, concurrent updates
+     * may or may not be included.
+     */
+    public void addTo(long[] accumulator) {
+        for (int i = 0; i < BINS; i++) {
+            accumulator[i] += bins.get(i);
+        }
+    }
+
+    public static long[] newAccumulator() {
+        return new long[BINS];
+    }
+
+    /**
+     * @param accumulator merged bins, see {@link #addTo(long[])}
+     * @param quantile    between 0 and 1
+     * @return approximate value at the quantile, 0 if nothing was recorded
+     */
+    public static double valueAt(long[] accumulator, double quantile) {
+        long total = 0;
+        for (long c : accumulator) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < accumulator.length; i++) {
+            seen += accumulator[i];
+            if (seen >= rank) {
+                return valueOf(i);
+            }
+        }
+        return valueOf(accumulator.length - 1);
+    }
+
+    static int binOf(double value) {
+        if (!(value != 0.0)) {
+            return ZERO; // zero and NaN
+        }
+        long bits = Double.doubleToRawLongBits(value);
+        int exponent = (int) ((bits >>> 52) & 0x7ff) - 1023;
+        int magnitude;
+        if (exponent < MIN_EXPONENT) {
+            return ZERO;
+        } else if (exponent > MAX_EXPONENT) {
+            magnitude = BINS_PER_SIGN - 1;
+        } else {
+            int sub = (int) ((bits >>> (52 - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+            magnitude = (exponent - MIN_EXPONENT) * SUB_BUCKETS + sub;
+        }
+        return value > 0 ? ZERO + 1 + magnitude : ZERO - 1 - magnitude;
+    }
+
+    /**
+     * Midpoint of a bin, the value reported for everything recorded into it.
+     */
+    static double valueOf(int bin) {
+        if (bin == ZERO) {
+            return 0.0;
+        }
+        int magnitude = bin > ZERO ? bin - ZERO - 1 : ZERO - 1 - bin;
+        int exponent = magnitude / SUB_BUCKETS + MIN_EXPONENT;
+        int sub = magnitude % SUB_BUCKETS;
+        double value = Math.scalb(1.0 + (sub + 0.5) / SUB_BUCKETS, exponent);
+        return bin > ZERO ? value : -value;
+    }
+}
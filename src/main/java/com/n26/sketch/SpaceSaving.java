@@ -0,0 +1,155 @@
+package com.n26.sketch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted Space-Saving summary (Metwally et al.) tracking at most {@code capacity} keys. When full, a new key
+ * replaces the key with the smallest weight and inherits that weight as its error, so memory stays bounded no matter
+ * how many distinct keys flow through. Counters live in an indexed min-heap, every update costs O(log capacity).
+ *
+ *<br>
+ * Not thread safe, see {@link StripedSpaceSaving}. Weights must be positive.
+ *
+ * @author Andrew Polyakov
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final String[] keys;
+    private final double[] weights;
+    private final double[] errors;
+    // heap positions stay below 128 for the default capacity, so boxing them hits the Integer cache
+    private final Map<String, Integer> positions;
+    private int size;
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.keys = new String[capacity];
+        this.weights = new double[capacity];
+        this.errors = new double[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    private SpaceSaving(SpaceSaving source) {
+        this.capacity = source.capacity;
+        this.keys = source.keys.clone();
+        this.weights = source.weights.clone();
+        this.errors = source.errors.clone();
+        this.positions = new HashMap<>(source.positions);
+        this.size = source.size;
+    }
+
+    public void offer(String key, double weight) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            weights[position] += weight;
+            siftDown(position);
+        } else if (size < capacity) {
+            keys[size] = key;
+            weights[size] = weight;
+            errors[size] = 0.0;
+            positions.put(key, size);
+            siftUp(size++);
+        } else {
+            // evict the smallest counter, the newcomer may have been seen up to that many times before
+            positions.remove(keys[0]);
+            keys[0] = key;
+            errors[0] = weights[0];
+            weights[0] += weight;
+            positions.put(key, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Weight any key not present in the summary may have at most.
+     */
+    public double floor() {
+        return size < capacity ? 0.0 : weights[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public SpaceSaving copy() {
+        return new SpaceSaving(this);
+    }
+
+    /**
+     * Merges summaries and returns the heaviest keys. A key missing from a full summary may still have been seen there
+     * up to {@link #floor()} times, that is added to both its estimate and its error so that estimates remain upper
+     * bounds.
+     *
+     * @param summaries summaries to merge, typically one per bucket and stripe
+     * @param limit     maximum number of keys to return
+     * @return keys ordered by descending estimate
+     */
+    public static List<HeavyHitter> top(Collection<SpaceSaving> summaries, int limit) {
+        double floors = 0.0;
+        Map<String, double[]> merged = new HashMap<>();
+        for (SpaceSaving s : summaries) {
+            double floor = s.floor();
+            floors += floor;
+            for (int i = 0; i < s.size; i++) {
+                double[] acc = merged.get(s.keys[i]);
+                if (acc == null) {
+                    acc = new double[2];
+                    merged.put(s.keys[i], acc);
+                }
+                acc[0] += s.weights[i] - floor;
+                acc[1] += s.errors[i] - floor;
+            }
+        }
+        List<HeavyHitter> result = new ArrayList<>(merged.size());
+        for (Map.Entry<String, double[]> e : merged.entrySet()) {
+            result.add(new HeavyHitter(e.getKey(), e.getValue()[0] + floors, e.getValue()[1] + floors));
+        }
+        result.sort((a, b) -> Double.compare(b.getEstimate(), a.getEstimate()));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (weights[parent] <= weights[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int smallest = left + 1 < size && weights[left + 1] < weights[left] ? left + 1 : left;
+            if (weights[i] <= weights[smallest]) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        String k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+        double w = weights[i];
+        weights[i] = weights[j];
+        weights[j] = w;
+        double e = errors[i];
+        errors[i] = errors[j];
+        errors[j] = e;
+        positions.put(keys[i], i);
+        positions.put(keys[j], j);
+    }
+}
@@ -0,0 +1,50 @@
+package com.n26.sketch;
+
+import java.util.Collection;
+
+/**
+ * Concurrent front for {@link SpaceSaving}. Writers are spread over a few independent summaries by thread, each
+ * guarded by its own monitor, so that ingest threads rarely meet. Summaries are mergeable, readers simply merge all
+ * stripes together with the stripes of other buckets.
+ *
+ * @author Andrew Polyakov
+ */
+public class StripedSpaceSaving {
+
+    /** Number of CPUS, to place bound on the number of stripes */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    private final SpaceSaving[] stripes;
+
+    public StripedSpaceSaving(int capacity) {
+        int n = 1;
+        while (n < NCPU && n < 8) {
+            n <<= 1;
+        }
+        stripes = new SpaceSaving[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new SpaceSaving(capacity);
+        }
+    }
+
+    public void offer(String key, double weight) {
+        long id = Thread.currentThread().getId();
+        SpaceSaving stripe = stripes[(int) (id ^ (id >>> 16)) & (stripes.length - 1)];
+        synchronized (stripe) {
+            stripe.offer(key, weight);
+        }
+    }
+
+    /**
+     * Adds a private copy of every non empty stripe to the given collection.
+     */
+    public void snapshot(Collection<SpaceSaving> into) {
+        for (SpaceSaving stripe : stripes) {
+            synchronized (stripe) {
+                if (stripe.size() > 0) {
+                    into.add(stripe.copy());
+                }
+            }
+        }
+    }
+}
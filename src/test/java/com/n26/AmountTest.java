@@ -0,0 +1,57 @@
+package com.n26;
+
+import com.n26.restful.api.dto.Amount;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AmountTest {
+
+    @Test
+    public void testParsedOnce() {
+        Amount amount = Amount.parse("10.10");
+        assertEquals(10.1, amount.doubleValue(), 0.0);
+        assertEquals("10.10", amount.toString());
+        assertEquals(1010L, amount.toMinorUnits(2));
+        assertEquals(Amount.valueOf(1010L, 2), amount);
+        assertEquals(Amount.valueOf(10.1), Amount.valueOf(10.1));
+    }
+
+    @Test
+    public void testMinorUnitsFromText() {
+        Amount amount = Amount.parse("0.30000000000000000001");
+        assertEquals(30L, amount.toMinorUnits(2));
+        assertEquals("0.30000000000000000001", amount.toString());
+        assertEquals(0.3, amount.doubleValue(), 0.0);
+        assertEquals("10.10", Amount.valueOf(1010L, 2).toString());
+    }
+
+    @Test
+    public void testRejected() {
+        for (String text : new String[]{"", "abc", "NaN", "Infinity", "-Infinity", "0x1p3", "1f", "1d", "1.2.3", "--1", "1e", "e5", "."}) {
+            try {
+                Amount.parse(text);
+                fail(text);
+            } catch (NumberFormatException expected) {
+                // answered with 400
+            }
+        }
+    }
+
+    @Test
+    public void testOutOfRange() {
+        Amount amount = Amount.parse("1e400");
+        try {
+            amount.doubleValue();
+            fail();
+        } catch (NumberFormatException expected) {
+            // answered with 400 outside of money mode
+        }
+        try {
+            amount.toMinorUnits(2);
+            fail();
+        } catch (ArithmeticException expected) {
+            // answered with 400 in money mode
+        }
+    }
+}
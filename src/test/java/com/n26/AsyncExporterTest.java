@@ -0,0 +1,148 @@
+package com.n26;
+
+import com.n26.export.AsyncExporter;
+import com.n26.export.ExportFormat;
+import com.n26.export.ExportRecord;
+import com.n26.export.ExportSink;
+import com.n26.export.RollingFileSink;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class AsyncExporterTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("n26-export").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testExportsSealedBuckets() throws Exception {
+        File file = new File(dir, "statistics.csv");
+        AsyncExporter exporter = new AsyncExporter(new RollingFileSink(file, ExportFormat.CSV, 1 << 20, 2), 100, 4, 10);
+        AtomicLong time = new AtomicLong();
+        N26RollingStatistics counter = new N26RollingStatistics(time::get, 200, 10);
+        counter.addSealedBucketListener(exporter);
+
+        for (int i = 0; i < 10; i++) {
+            counter.addValue(i + 0.5);
+            time.addAndGet(counter.bucketSizeInMilliseconds);
+        }
+        counter.getRolling();
+        exporter.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        assertEquals(ExportFormat.CSV.header(), lines.get(0));
+        // buckets 0 to 8 are sealed, 9 and 10 are still live
+        assertEquals(10, lines.size());
+        assertEquals("0,20,1,0.5,0.5,0.5,0.5", lines.get(1));
+        assertEquals("160,180,1,8.5,8.5,8.5,8.5", lines.get(9));
+        assertEquals(9, exporter.getExported());
+        assertEquals(0, exporter.getDropped());
+    }
+
+    @Test
+    public void testDropsOnOverflow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<ExportRecord> written = new ArrayList<>();
+        ExportSink blocking = new ExportSink() {
+            @Override
+            public void write(List<ExportRecord> batch) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                written.addAll(batch);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        AsyncExporter exporter = new AsyncExporter(blocking, 2, 1, 10);
+        N26RollingStatistics.AggregatedStatistics bucket = new N26RollingStatistics.AggregatedStatistics(1, 1.0, 1.0, 1.0);
+
+        // the writer takes the first record and blocks, two more fit into the queue
+        exporter.onSealed(0, 20, bucket);
+        while (exporter.getDropped() == 0) {
+            exporter.onSealed(20, 40, bucket);
+        }
+        for (int i = 0; i < 10; i++) {
+            exporter.onSealed(40, 60, bucket);
+        }
+        release.countDown();
+        exporter.close();
+
+        assertEquals(exporter.getExported(), written.size());
+        assertTrue(exporter.getDropped() >= 10);
+        assertTrue(exporter.getExported() >= 1);
+        assertEquals(0, exporter.getFailed());
+    }
+
+    @Test
+    public void testCountsFailedWrites() throws Exception {
+        ExportSink failing = new ExportSink() {
+            @Override
+            public void write(List<ExportRecord> batch) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        AsyncExporter exporter = new AsyncExporter(failing, 10, 10, 10);
+        for (int i = 0; i < 5; i++) {
+            exporter.onSealed(i * 20, i * 20 + 20, N26RollingStatistics.EMPTY);
+        }
+        exporter.close();
+
+        assertEquals(5, exporter.getFailed());
+        assertEquals(0, exporter.getExported());
+    }
+
+    @Test
+    public void testRollsFilesOver() throws Exception {
+        File file = new File(dir, "statistics.lp");
+        RollingFileSink sink = new RollingFileSink(file, ExportFormat.LINE_PROTOCOL, 100, 2);
+        N26RollingStatistics.AggregatedStatistics bucket = new N26RollingStatistics.AggregatedStatistics(2, 3.0, 1.0, 2.0);
+        for (int i = 0; i < 20; i++) {
+            List<ExportRecord> batch = new ArrayList<>();
+            batch.add(new ExportRecord(i * 1000L, i * 1000L + 1000, bucket));
+            sink.write(batch);
+        }
+        sink.close();
+
+        assertTrue(file.exists());
+        assertTrue(new File(dir, "statistics.lp.1").exists());
+        assertTrue(new File(dir, "statistics.lp.2").exists());
+        assertFalse(new File(dir, "statistics.lp.3").exists());
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        assertEquals("n26_statistics count=2i,sum=3.0,min=1.0,max=2.0,avg=1.5 19000000000", lines.get(lines.size() - 1));
+    }
+}
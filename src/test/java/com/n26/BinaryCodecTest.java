@@ -0,0 +1,277 @@
+package com.n26;
+
+import com.n26.restful.api.binary.BinaryCodec;
+import com.n26.restful.api.binary.BinaryFormat;
+import com.n26.restful.api.binary.BinaryMediaType;
+import com.n26.restful.api.binary.BinaryMessageBodyProvider;
+import com.n26.restful.api.binary.BinaryReader;
+import com.n26.restful.api.binary.BinaryWriter;
+import com.n26.restful.api.binary.CborReader;
+import com.n26.restful.api.binary.CborWriter;
+import com.n26.restful.api.binary.MessagePackReader;
+import com.n26.restful.api.binary.MessagePackWriter;
+import com.n26.restful.api.dto.Amount;
+import com.n26.restful.api.dto.OutlierScoreDto;
+import com.n26.restful.api.dto.StatisticsDto;
+import com.n26.restful.api.dto.TransactionDto;
+import org.junit.Test;
+
+import javax.ws.rs.WebApplicationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest {
+
+    static final long[] INTEGERS = {0, 1, 23, 24, 127, 128, 255, 256, 65535, 65536, 4294967295L, 4294967296L,
+            Long.MAX_VALUE, -1, -24, -25, -32, -33, -128, -129, -32768, -32769, Integer.MIN_VALUE,
+            Integer.MIN_VALUE - 1L, Long.MIN_VALUE};
+
+    @Test
+    public void testPrimitivesRoundTrip() throws IOException {
+        String longString = new String(new char[70000]).replace('\0', 'x');
+        for (BinaryFormat format : BinaryFormat.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryWriter writer = format.newWriter(out);
+            writer.writeArrayHeader(INTEGERS.length + 5);
+            for (long value : INTEGERS) {
+                writer.writeLong(value);
+            }
+            writer.writeDouble(-0.1);
+            writer.writeString("");
+            writer.writeString("\u00fcmlaut \u20ac");
+            writer.writeString(longString);
+            writer.writeNull();
+            writer.flush();
+
+            BinaryReader reader = format.newReader(out.toByteArray());
+            assertEquals(INTEGERS.length + 5, reader.readArrayHeader());
+            for (long value : INTEGERS) {
+                assertEquals(format + " " + value, value, reader.readLong());
+            }
+            assertEquals(-0.1, reader.readDouble(), 0.0);
+            assertEquals("", reader.readString());
+            assertEquals("\u00fcmlaut \u20ac", reader.readString());
+            assertEquals(longString, reader.readString());
+            assertEquals(BinaryReader.Type.NULL, reader.peekType());
+            reader.readNull();
+            assertTrue(reader.isAtEnd());
+        }
+    }
+
+    @Test
+    public void testWireFormat() throws IOException {
+        // examples from RFC 7049 appendix A and the MessagePack spec
+        assertArrayEquals(bytes(0x19, 0x03, 0xe8), cbor(w -> w.writeLong(1000)));
+        assertArrayEquals(bytes(0x38, 0x63), cbor(w -> w.writeLong(-100)));
+        assertArrayEquals(bytes(0x62, 0x49, 0x45), cbor(w -> w.writeString("IE")));
+        assertArrayEquals(bytes(0xa1, 0x61, 0x61, 0x01), cbor(w -> {
+            w.writeMapHeader(1);
+            w.writeString("a");
+            w.writeLong(1);
+        }));
+        assertArrayEquals(bytes(0xcd, 0x03, 0xe8), msgpack(w -> w.writeLong(1000)));
+        assertArrayEquals(bytes(0xd0, 0x9c), msgpack(w -> w.writeLong(-100)));
+        assertArrayEquals(bytes(0xe0), msgpack(w -> w.writeLong(-32)));
+        assertArrayEquals(bytes(0x81, 0xa1, 0x61, 0x01), msgpack(w -> {
+            w.writeMapHeader(1);
+            w.writeString("a");
+            w.writeLong(1);
+        }));
+
+        // floats of other widths written by other encoders
+        assertEquals(1.5, new CborReader(bytes(0xf9, 0x3e, 0x00)).readDouble(), 0.0);
+        assertEquals(100000.0, new CborReader(bytes(0xfa, 0x47, 0xc3, 0x50, 0x00)).readDouble(), 0.0);
+        assertEquals(1.5, new MessagePackReader(bytes(0xca, 0x3f, 0xc0, 0x00, 0x00)).readDouble(), 0.0);
+    }
+
+    @Test
+    public void testTransactionsRoundTrip() throws IOException {
+        List<TransactionDto> transactions = new ArrayList<>();
+        transactions.add(new TransactionDto(12.3, 1000L));
+        transactions.add(new TransactionDto(-4.0, 2000L, "merchant"));
+        TransactionDto exact = new TransactionDto();
+        exact.setAmount(Amount.parse("10.10"));
+        exact.setTimestamp(3000L);
+        exact.setId("retry-1");
+        transactions.add(exact);
+
+        for (BinaryFormat format : BinaryFormat.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryWriter writer = format.newWriter(out);
+            BinaryCodec.writeTransactions(writer, transactions);
+            writer.flush();
+
+            List<TransactionDto> read = BinaryCodec.readTransactions(format.newReader(out.toByteArray()));
+            assertEquals(transactions.size(), read.size());
+            for (int i = 0; i < read.size(); i++) {
+                assertEquals(transactions.get(i).getAmount(), read.get(i).getAmount());
+                assertEquals(transactions.get(i).getTimestamp(), read.get(i).getTimestamp());
+                assertEquals(transactions.get(i).getKey(), read.get(i).getKey());
+                assertEquals(transactions.get(i).getId(), read.get(i).getId());
+            }
+            // the scale of money mode amounts survives
+            assertEquals(1010L, read.get(2).getAmount().toMinorUnits(2));
+        }
+    }
+
+    @Test
+    public void testStatisticsRoundTrip() throws IOException {
+        StatisticsDto statistics = new StatisticsDto(3L, Amount.valueOf(1.0), Amount.valueOf(5.0),
+                Amount.valueOf(3.0), Amount.valueOf(9.0), 4.0, 2.0, 3.0, 5.0, 5.0);
+        for (BinaryFormat format : BinaryFormat.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryWriter writer = format.newWriter(out);
+            BinaryCodec.writeStatistics(writer, statistics);
+            writer.flush();
+
+            StatisticsDto read = BinaryCodec.readStatistics(format.newReader(out.toByteArray()));
+            assertEquals(statistics.toString(), read.toString());
+        }
+    }
+
+    @Test
+    public void testScoreRoundTrip() throws IOException {
+        OutlierScoreDto score = new OutlierScoreDto(-3.5, false, true);
+        for (BinaryFormat format : BinaryFormat.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryWriter writer = format.newWriter(out);
+            BinaryCodec.writeScore(writer, score);
+            writer.flush();
+
+            OutlierScoreDto read = BinaryCodec.readScore(format.newReader(out.toByteArray()));
+            assertEquals(score.getScore(), read.getScore());
+            assertEquals(score.getAboveP99(), read.getAboveP99());
+            assertEquals(score.getFlagged(), read.getFlagged());
+        }
+        assertArrayEquals(bytes(0xf5), cbor(w -> w.writeBoolean(true)));
+        assertArrayEquals(bytes(0xc2), msgpack(w -> w.writeBoolean(false)));
+    }
+
+    @Test
+    public void testLenientReading() throws IOException {
+        // unknown keys are skipped, integer amounts accepted, as with JSON
+        byte[] body = cbor(w -> {
+            w.writeMapHeader(4);
+            w.writeString("comment");
+            w.writeArrayHeader(2);
+            w.writeString("ignored");
+            w.writeNull();
+            w.writeString("amount");
+            w.writeLong(7);
+            w.writeString("timestamp");
+            w.writeLong(1000);
+            w.writeString("key");
+            w.writeNull();
+        });
+        CborReader reader = new CborReader(body);
+        TransactionDto read = BinaryCodec.readTransaction(reader);
+        assertTrue(reader.isAtEnd());
+        assertEquals(Amount.parse("7"), read.getAmount());
+        assertEquals(Long.valueOf(1000), read.getTimestamp());
+        assertNull(read.getKey());
+    }
+
+    @Test
+    public void testMalformedInput() throws IOException {
+        byte[] body = msgpack(w -> {
+            w.writeMapHeader(1);
+            w.writeString("timestamp");
+            w.writeLong(Long.MAX_VALUE);
+        });
+        for (int length = 0; length < body.length; length++) {
+            byte[] truncated = new byte[length];
+            System.arraycopy(body, 0, truncated, 0, length);
+            try {
+                BinaryCodec.readTransaction(new MessagePackReader(truncated));
+                fail("Truncated to " + length);
+            } catch (IllegalArgumentException expected) {
+                // answered with 400
+            }
+        }
+        try {
+            // a map claiming more entries than there are bytes
+            BinaryCodec.readTransaction(new CborReader(bytes(0xba, 0x7f, 0xff, 0xff, 0xff)));
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Truncated input", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testDeepNesting() throws IOException {
+        // an unknown key holding arrays in arrays, as deep as still skipped and one deeper
+        for (int depth : new int[]{32, 33}) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            body.write(cbor(w -> {
+                w.writeMapHeader(1);
+                w.writeString("comment");
+            }));
+            for (int i = 0; i < depth; i++) {
+                body.write(0x81);
+            }
+            body.write(0xf6);
+            try {
+                BinaryCodec.readTransaction(new CborReader(body.toByteArray()));
+                assertEquals(32, depth);
+            } catch (IllegalArgumentException expected) {
+                // answered with 400 rather than a StackOverflowError
+                assertEquals(33, depth);
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBodyTooLarge() throws IOException {
+        BinaryMessageBodyProvider provider = new BinaryMessageBodyProvider(1024);
+        try {
+            provider.readFrom((Class) TransactionDto.class, TransactionDto.class, new Annotation[0],
+                    BinaryMediaType.APPLICATION_CBOR_TYPE, null, new ByteArrayInputStream(new byte[1025]));
+            fail();
+        } catch (WebApplicationException expected) {
+            // answered with 413
+        }
+    }
+
+    @Test
+    public void testMediaTypes() {
+        assertSame(BinaryFormat.CBOR, BinaryFormat.of(BinaryMediaType.APPLICATION_CBOR_TYPE));
+        assertSame(BinaryFormat.MSGPACK, BinaryFormat.of(BinaryMediaType.APPLICATION_MSGPACK_TYPE));
+        assertNull(BinaryFormat.of(javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE));
+        assertNull(BinaryFormat.of(new javax.ws.rs.core.MediaType()));
+    }
+
+    private interface Encoding {
+        void write(BinaryWriter writer) throws IOException;
+    }
+
+    private static byte[] cbor(Encoding encoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryWriter writer = new CborWriter(out);
+        encoding.write(writer);
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    private static byte[] msgpack(Encoding encoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryWriter writer = new MessagePackWriter(out);
+        encoding.write(writer);
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,127 @@
+package com.n26;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Hunts for torn reads of {@link N26RollingStatistics#getRolling()}. Writers add two values only, {@link #A} and
+ * {@link #B}, so from a coherent count and sum follows how many of each were added, and from that what min and max
+ * must be. A read which mixes instants, e.g. a count which already includes a value the sum does not, breaks that.
+ * The clock is advanced meanwhile so that buckets start empty, get sealed and fall out of the window.
+ */
+public class ConsistentReadsStressTest {
+
+    static final double A = 1.0;
+    /* sums of up to 2^33 values stay exact */
+    static final double B = 1 << 20;
+    static final long DURATION_MILLIS = 2000;
+
+    @Test
+    public void testNoTornReads() throws InterruptedException {
+        long[] result = stress(new N26RollingStatistics.Options().consistentReads(true));
+        assertTrue("No reads", result[0] > 0);
+        assertEquals("Torn reads out of " + result[0], 0, result[1]);
+    }
+
+    @Test
+    public void testNoTornReadsWithVariance() throws InterruptedException {
+        long[] result = stress(new N26RollingStatistics.Options().consistentReads(true).variance(true));
+        assertTrue("No reads", result[0] > 0);
+        assertEquals("Torn reads out of " + result[0], 0, result[1]);
+    }
+
+    /**
+     * Negative control: the separately striped count, sum, min and max do tear, so the check above can see it.
+     */
+    @Test
+    public void testTornReadsWithoutConsistentReads() throws InterruptedException {
+        Assume.assumeTrue("Needs writers running alongside the reader",
+                Runtime.getRuntime().availableProcessors() > 1);
+        long[] result = stress(new N26RollingStatistics.Options());
+        assertTrue("No torn reads out of " + result[0], result[1] > 0);
+    }
+
+    /**
+     * @return number of reads and of torn ones among them
+     */
+    static long[] stress(N26RollingStatistics.Options options) throws InterruptedException {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics statistics = new N26RollingStatistics(time, 1000, 10, options);
+        int writers = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong torn = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(writers + 2);
+
+        for (int i = 0; i < writers; i++) {
+            start(done, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    statistics.addValue(random.nextInt(32) == 0 ? B : A);
+                }
+            });
+        }
+        start(done, () -> {
+            while (running.get()) {
+                N26RollingStatistics.AggregatedStatistics s = statistics.getRolling();
+                reads.incrementAndGet();
+                if (isTorn(s)) {
+                    torn.incrementAndGet();
+                }
+            }
+        });
+        start(done, () -> {
+            while (running.get()) {
+                time.addValue(10);
+                sleep(1);
+            }
+        });
+
+        Thread.sleep(DURATION_MILLIS);
+        running.set(false);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        return new long[]{reads.get(), torn.get()};
+    }
+
+    static boolean isTorn(N26RollingStatistics.AggregatedStatistics s) {
+        long count = s.getSize();
+        if (count == 0) {
+            return s.getSum() != 0.0;
+        }
+        // sum = a + b * B and count = a + b, both exact
+        double b = (s.getSum() - count) / (B - A);
+        if (b != Math.rint(b) || b < 0 || b > count) {
+            return true;
+        }
+        long a = count - (long) b;
+        return s.getMax() != (b > 0 ? B : A) || s.getMin() != (a > 0 ? A : B);
+    }
+
+    private static void start(CountDownLatch done, Runnable task) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
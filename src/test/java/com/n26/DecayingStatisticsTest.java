@@ -0,0 +1,101 @@
+package com.n26;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DecayingStatisticsTest {
+
+    @Test
+    public void testSteadyStream() {
+        MockedTime time = new MockedTime(1000);
+        DecayingStatistics statistics = new DecayingStatistics(time, 1000);
+
+        for (int i = 0; i < 100; i++) {
+            statistics.addValue(4.0);
+            statistics.addValue(6.0);
+            time.addValue(10);
+        }
+        N26RollingStatistics.AggregatedStatistics rollOut = statistics.getRolling();
+        assertEquals(5.0, rollOut.getAvg(), 1e-9);
+        assertEquals(4.0, rollOut.getMin(), 0.0);
+        assertEquals(6.0, rollOut.getMax(), 0.0);
+        assertEquals(rollOut.getSum() / 5.0, rollOut.getSize(), 1.0);
+    }
+
+    @Test
+    public void testDecay() {
+        MockedTime time = new MockedTime(1000);
+        DecayingStatistics statistics = new DecayingStatistics(time, 1000);
+
+        for (int i = 0; i < 1000; i++) {
+            statistics.addValue(1.0);
+        }
+        assertEquals(1000, statistics.getRolling().getSize());
+
+        time.addValue(1000);
+        assertEquals(1000 / Math.E, statistics.getRolling().getSum(), 1e-6);
+        assertEquals(368, statistics.getRolling().getSize());
+
+        // recent values dominate the mean
+        for (int i = 0; i < 1000; i++) {
+            statistics.addValue(3.0);
+        }
+        assertEquals((1000 / Math.E + 3000) / (1000 / Math.E + 1000), statistics.getRolling().getAvg(), 1e-9);
+    }
+
+    @Test
+    public void testOldValuesRejected() {
+        MockedTime time = new MockedTime(100000);
+        DecayingStatistics statistics = new DecayingStatistics(time, 1000);
+
+        assertFalse(statistics.addValue(1.0, 100000L - 10 * 1000));
+        assertTrue(statistics.addValue(1.0, 100000L - 1000));
+        assertEquals(1 / Math.E, statistics.getRolling().getSum(), 1e-9);
+    }
+
+    @Test
+    public void testFutureValuesTakenAsNow() {
+        MockedTime time = new MockedTime(100000);
+        DecayingStatistics statistics = new DecayingStatistics(time, 1000);
+
+        assertTrue(statistics.addValue(2.0, 100000L + 24 * 60 * 60 * 1000));
+        statistics.addValues(new double[]{2.0}, new long[]{100000L + 60 * 60 * 1000});
+        N26RollingStatistics.AggregatedStatistics rollOut = statistics.getRolling();
+        assertEquals(2, rollOut.getSize());
+        assertEquals(4.0, rollOut.getSum(), 1e-9);
+        assertEquals(2.0, rollOut.getAvg(), 1e-9);
+
+        time.addValue(1000);
+        assertEquals(4.0 / Math.E, statistics.getRolling().getSum(), 1e-9);
+    }
+
+    @Test
+    public void testRenormalization() {
+        MockedTime time = new MockedTime(0);
+        DecayingStatistics statistics = new DecayingStatistics(time, 1000);
+
+        statistics.addValue(1e6);
+        // far enough for two renormalizations, the weight of the first value would overflow without them
+        for (int i = 0; i < 3; i++) {
+            time.addValue(DecayingStatistics.RENORMALIZE_LIFETIMES * 1000 + 1);
+            statistics.addValue(2.0);
+        }
+        time.addValue(1000);
+        N26RollingStatistics.AggregatedStatistics rollOut = statistics.getRolling();
+        assertFalse(Double.isNaN(rollOut.getSum()));
+        assertEquals(2.0 / Math.E, rollOut.getSum(), 1e-9);
+        assertEquals(2.0, rollOut.getAvg(), 1e-9);
+        assertEquals(2.0, rollOut.getMax(), 0.0);
+    }
+
+    @Test
+    public void testReset() {
+        MockedTime time = new MockedTime(0);
+        DecayingStatistics statistics = new DecayingStatistics(time, 1000);
+
+        statistics.addValue(1.0);
+        statistics.reset();
+        assertSame(N26RollingStatistics.EMPTY, statistics.getRolling());
+    }
+}
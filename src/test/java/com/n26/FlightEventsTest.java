@@ -0,0 +1,85 @@
+package com.n26;
+
+import com.n26.jfr.BucketRotationEvent;
+import com.n26.jfr.ExpiredTransactionEvent;
+import com.n26.jfr.FlightEvents;
+import com.n26.jfr.ResetEvent;
+import com.n26.jfr.SlowRollingEvent;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class FlightEventsTest {
+
+    @Test
+    public void testDisabledWithoutRecording() {
+        assertFalse(FlightEvents.ROTATION.isEnabled());
+        assertFalse(FlightEvents.EXPIRED.isEnabled());
+        assertFalse(FlightEvents.SLOW_ROLLING.isEnabled());
+    }
+
+    @Test
+    public void testEvents() throws IOException {
+        MockedTime time = new MockedTime(100000);
+        N26RollingStatistics statistics = new N26RollingStatistics(time, 1000, 10);
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(BucketRotationEvent.class);
+            recording.enable(ResetEvent.class);
+            recording.enable(ExpiredTransactionEvent.class);
+            recording.enable(SlowRollingEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+
+            statistics.addValue(1.0);
+            time.addValue(300);
+            statistics.addValue(1.0, time.getCurrentTimeInMillis());
+            assertFalse(statistics.addValue(1.0, time.getCurrentTimeInMillis() - 1500));
+            statistics.getRolling();
+            // longer than the window, everything is dropped
+            time.addValue(5000);
+            statistics.getRolling();
+            statistics.reset();
+
+            recording.stop();
+            Path file = Files.createTempFile("n26", ".jfr");
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.delete(file);
+            }
+        }
+
+        List<RecordedEvent> rotations = named(events, "com.n26.BucketRotation");
+        assertEquals(1, rotations.size());
+        assertEquals(3, rotations.get(0).getInt("buckets"));
+
+        List<RecordedEvent> expired = named(events, "com.n26.ExpiredTransaction");
+        assertEquals(1, expired.size());
+        assertEquals(1500, expired.get(0).getDuration("age").toMillis());
+
+        List<RecordedEvent> resets = named(events, "com.n26.Reset");
+        assertEquals(2, resets.size());
+        assertTrue(resets.get(0).getBoolean("idle"));
+        assertFalse(resets.get(1).getBoolean("idle"));
+
+        assertEquals(2, named(events, "com.n26.SlowRolling").size());
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .collect(Collectors.toList());
+    }
+}
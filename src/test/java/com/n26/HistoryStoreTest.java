@@ -0,0 +1,112 @@
+package com.n26;
+
+import com.n26.history.GorillaBlock;
+import com.n26.history.HistoryStore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class HistoryStoreTest {
+
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random(42);
+        GorillaBlock block = new GorillaBlock(64 * 1024);
+        List<double[]> written = new ArrayList<>();
+        long timestamp = 1_500_000_000_000L;
+        double[] specials = {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.MIN_VALUE, Double.MAX_VALUE, 0.1, 1e-300};
+        for (int i = 0; i < 1000; i++) {
+            // regular ticks, small jitter, and now and then a gap of any size
+            int kind = random.nextInt(10);
+            timestamp += kind < 6 ? 1000 : kind < 8 ? 1000 + random.nextInt(5000) - 2500 : random.nextInt(Integer.MAX_VALUE);
+            double[] point = {timestamp,
+                    random.nextInt(3) == 0 ? 0 : random.nextInt(1000),
+                    random.nextDouble() * 1e6,
+                    specials[random.nextInt(specials.length)],
+                    i % 7 == 0 ? written.isEmpty() ? 1.0 : written.get(written.size() - 1)[4] : random.nextGaussian()};
+            assertTrue(block.append(timestamp, point[1], point[2], point[3], point[4]));
+            written.add(point);
+        }
+
+        List<double[]> read = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        block.forEach((t, count, sum, min, max) -> {
+            timestamps.add(t);
+            read.add(new double[]{t, count, sum, min, max});
+        });
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals((long) written.get(i)[0], (long) timestamps.get(i));
+            for (int c = 1; c < 5; c++) {
+                assertEquals(Double.doubleToRawLongBits(written.get(i)[c]), Double.doubleToRawLongBits(read.get(i)[c]));
+            }
+        }
+    }
+
+    @Test
+    public void testCompressesRegularSeries() {
+        GorillaBlock block = new GorillaBlock(4096);
+        int n = 0;
+        while (block.append(1000L * n, 10, 123.45, 1.5, 20.0)) {
+            n++;
+        }
+        // one bit for the timestamp and every column of a repeated point
+        assertTrue("points " + n, n > 5000);
+    }
+
+    @Test
+    public void testRangeAndEviction() {
+        HistoryStore store = new HistoryStore(2 * 4096);
+        N26RollingStatistics.AggregatedStatistics bucket = new N26RollingStatistics.AggregatedStatistics(2, 3.0, 1.0, 2.0);
+        long t = 0;
+        for (; t < 100_000; t += 1000) {
+            store.onSealed(t, t + 1000, t == 5000 ? N26RollingStatistics.EMPTY : bucket);
+        }
+
+        List<HistoryStore.Point> range = store.range(3000, 7000);
+        assertEquals(4, range.size());
+        assertEquals(3000, range.get(0).getWindowStart());
+        assertEquals(6000, range.get(3).getWindowStart());
+        assertEquals(2, range.get(0).getStatistics().getSize());
+        assertEquals(3.0, range.get(0).getStatistics().getSum(), 0.0);
+        assertEquals(1.5, range.get(0).getStatistics().getAvg(), 0.0);
+        assertEquals(0, range.get(2).getStatistics().getSize());
+        assertTrue(store.range(7000, 7000).isEmpty());
+
+        // varying values until the budget is used up several times over
+        for (int i = 0; t < 100_000_000; t += 1000, i++) {
+            store.onSealed(t, t + 1000, new N26RollingStatistics.AggregatedStatistics(i, i * 1.1, i * 0.3, i * 7.9));
+        }
+        assertEquals(2 * 4096, store.getMemoryUsage());
+        assertTrue(store.getOldest() > 100_000);
+        assertTrue(store.range(0, 100_000).isEmpty());
+        List<HistoryStore.Point> tail = store.range(store.getOldest(), t);
+        assertEquals(t - 1000, tail.get(tail.size() - 1).getWindowStart());
+    }
+
+    @Test
+    public void testFedBySealedBuckets() {
+        AtomicLong time = new AtomicLong();
+        N26RollingStatistics counter = new N26RollingStatistics(time::get, 200, 10,
+                new N26RollingStatistics.Options().history(4096));
+        for (int i = 0; i < 50; i++) {
+            counter.addValue((double) i);
+            time.addAndGet(counter.bucketSizeInMilliseconds);
+        }
+        counter.getRolling();
+
+        // buckets 0 to 48 long after they left the ring, 49 and 50 are still live
+        List<HistoryStore.Point> history = counter.getHistory().range(0, Long.MAX_VALUE);
+        assertEquals(49, history.size());
+        for (int i = 0; i < history.size(); i++) {
+            assertEquals(i * counter.bucketSizeInMilliseconds, history.get(i).getWindowStart());
+            assertEquals(i, history.get(i).getStatistics().getSum(), 0.0);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.n26;
+
+import com.n26.restful.api.dto.LaneDto;
+import com.n26.restful.api.dto.MetricsDto;
+import com.n26.restful.api.dto.StatisticsDto;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.embedded.LocalServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Open loop HTTP load generator. Requests are scheduled at a fixed arrival rate no matter how fast the service
+ * answers, and latency is measured from the moment a request was supposed to be sent rather than from the moment it
+ * actually left, so that a stalled service does not hide its own latency (coordinated omission).
+ *
+ *<br>
+ * Reads and writes are served by separate lanes, so read latency should stay flat while the write rate goes up until
+ * writes are rejected with 503. Rejections are counted apart from errors and the load of both lanes is printed.
+ *
+ *<br>
+ * Excluded from the default build, run it with {@code mvn test -Pload-test}. Tunable via system properties:
+ * <ul>
+ *     <li>{@code load.rate} - requests per second, default 2000</li>
+ *     <li>{@code load.duration} - seconds, default 20, must stay below the 60 second window</li>
+ *     <li>{@code load.read-ratio} - share of {@code GET /statistics} requests, default 0.1</li>
+ *     <li>{@code load.threads} - client threads, default 64</li>
+ *     <li>{@code load.max-lost} - tolerated difference between accepted and reported transactions, default 0, the
+ *     sums may then differ by {@link #MAX_AMOUNT} per transaction</li>
+ * </ul>
+ */
+@RunWith(SpringRunner.class)
+@TestConfiguration("ProjectConfiguration")
+@TestPropertySource("classpath:config.properties")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class HttpLoadTest {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    /* amounts are whole numbers from 1 to this */
+    private static final long MAX_AMOUNT = 99;
+
+    private final int rate = Integer.getInteger("load.rate", 2000);
+    private final int duration = Integer.getInteger("load.duration", 20);
+    private final double readRatio = Double.parseDouble(System.getProperty("load.read-ratio", "0.1"));
+    private final int threads = Integer.getInteger("load.threads", 64);
+    private final long maxLost = Long.getLong("load.max-lost", 0);
+
+    private final Histogram writeLatency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram readLatency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong acceptedSum = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rejectedWrites = new AtomicLong();
+    private final AtomicLong rejectedReads = new AtomicLong();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void openLoop() throws Exception {
+        assertTrue("load.duration must stay within the 60 second window", duration < 60);
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * duration;
+        long start = System.nanoTime();
+
+        for (long i = 0; i < total; i++) {
+            final long intended = start + i * interval;
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+            if (ThreadLocalRandom.current().nextDouble() < readRatio) {
+                clients.execute(() -> read(intended));
+            } else {
+                clients.execute(() -> write(intended));
+            }
+        }
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.MINUTES);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        Thread.sleep(1000); // let the statistics worker catch up
+        StatisticsDto reported = restTemplate.getForObject(IntegrationTest.STATISTICS, StatisticsDto.class);
+        long lost = accepted.get() - reported.getCount();
+
+        System.out.println(String.format("Sent %d requests in %.1fs, %.0f req/s, %d errors, %d writes and %d reads rejected",
+                total, elapsed, total / elapsed, errors.get(), rejectedWrites.get(), rejectedReads.get()));
+        print("POST /transactions", writeLatency);
+        print("GET /statistics", readLatency);
+        MetricsDto metrics = restTemplate.getForObject(IntegrationTest.METRICS, MetricsDto.class);
+        for (Map.Entry<String, LaneDto> lane : metrics.getLanes().entrySet()) {
+            LaneDto l = lane.getValue();
+            System.out.println(String.format("%-20s threads=%d completed=%d rejected=%d mean queue wait=%dus",
+                    lane.getKey() + " lane", l.getThreads(), l.getCompleted(), l.getRejected(),
+                    l.getCompleted() == 0 ? 0 : l.getQueueWaitMicros() / l.getCompleted()));
+        }
+        System.out.println(String.format("Accepted %d transactions summing to %d, reported %d summing to %.0f, lost %d",
+                accepted.get(), acceptedSum.get(), reported.getCount(), reported.getSum().doubleValue(), lost));
+
+        assertTrue("Lost " + lost + " transactions", Math.abs(lost) <= maxLost);
+        double lostSum = acceptedSum.get() - reported.getSum().doubleValue();
+        assertTrue("Lost " + lostSum + " of the sum", Math.abs(lostSum) <= maxLost * MAX_AMOUNT);
+    }
+
+    private void write(long intended) {
+        // whole amounts keep the double sum exact, so any difference is a lost update
+        long amount = ThreadLocalRandom.current().nextLong(1, MAX_AMOUNT + 1);
+        String body = "{\"amount\":" + amount + ",\"timestamp\":" + System.currentTimeMillis() + "}";
+        try {
+            HttpURLConnection c = open(IntegrationTest.TRANSACTIONS);
+            c.setRequestMethod("POST");
+            c.setDoOutput(true);
+            c.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = c.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            int status = c.getResponseCode();
+            drain(c);
+            writeLatency.recordValue(micros(intended));
+            if (status == 201) {
+                accepted.incrementAndGet();
+                acceptedSum.addAndGet(amount);
+            } else if (status == 503) {
+                rejectedWrites.incrementAndGet(); // the write lane is full, by design
+            } else if (status >= 400) {
+                errors.incrementAndGet();
+            }
+        } catch (IOException ex) {
+            errors.incrementAndGet();
+        }
+    }
+
+    private void read(long intended) {
+        try {
+            HttpURLConnection c = open(IntegrationTest.STATISTICS);
+            int status = c.getResponseCode();
+            drain(c);
+            readLatency.recordValue(micros(intended));
+            if (status == 503) {
+                rejectedReads.incrementAndGet();
+            } else if (status >= 400) {
+                errors.incrementAndGet();
+            }
+        } catch (IOException ex) {
+            errors.incrementAndGet();
+        }
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+    }
+
+    /**
+     * Reading the body to the end lets HttpURLConnection reuse the connection.
+     */
+    private static void drain(HttpURLConnection c) throws IOException {
+        InputStream in = c.getResponseCode() >= 400 ? c.getErrorStream() : c.getInputStream();
+        if (in == null) {
+            return;
+        }
+        try (InputStream body = in) {
+            byte[] buffer = new byte[512];
+            while (body.read(buffer) != -1) {
+                // discard
+            }
+        }
+    }
+
+    private static long micros(long intended) {
+        return Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended));
+    }
+
+    private static void print(String name, Histogram h) {
+        System.out.println(String.format("%-20s n=%d p50=%dus p99=%dus p999=%dus max=%dus",
+                name,
+                h.getTotalCount(),
+                h.getValueAtPercentile(50),
+                h.getValueAtPercentile(99),
+                h.getValueAtPercentile(99.9),
+                h.getMaxValue()));
+    }
+}
@@ -30,6 +30,7 @@ import static org.junit.Assert.assertTrue;
 public class IntegrationTest {
     public static final String TRANSACTIONS = "/transactions";
     public static final String STATISTICS = "/statistics";
+    public static final String METRICS = "/metrics";
 
     private ExecutorService e = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
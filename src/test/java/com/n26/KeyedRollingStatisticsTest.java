@@ -0,0 +1,105 @@
+package com.n26;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KeyedRollingStatisticsTest {
+
+    @Test
+    public void testKeysAreIndependent() {
+        MockedTime time = new MockedTime(1000);
+        KeyedRollingStatistics keyed = new KeyedRollingStatistics(time, 200, 10, 1 << 20);
+
+        assertTrue(keyed.addValue("EUR", 10.0, 1000L));
+        assertTrue(keyed.addValue("EUR", 20.0, 1000L));
+        assertTrue(keyed.addValue("USD", -5.0, 1000L));
+
+        N26RollingStatistics.AggregatedStatistics eur = keyed.getRolling("EUR");
+        assertEquals(2, eur.getSize());
+        assertEquals(30.0, eur.getSum(), 0.0001);
+        assertEquals(10.0, eur.getMin(), 0.0001);
+        assertEquals(20.0, eur.getMax(), 0.0001);
+        assertEquals(15.0, eur.getAvg(), 0.0001);
+
+        N26RollingStatistics.AggregatedStatistics usd = keyed.getRolling("USD");
+        assertEquals(1, usd.getSize());
+        assertEquals(-5.0, usd.getSum(), 0.0001);
+
+        assertSame(N26RollingStatistics.EMPTY, keyed.getRolling("GBP"));
+        assertEquals(2, keyed.size());
+    }
+
+    @Test
+    public void testRollsOverWindow() {
+        MockedTime time = new MockedTime(1000);
+        KeyedRollingStatistics keyed = new KeyedRollingStatistics(time, 200, 10, 1 << 20);
+
+        keyed.addValue("EUR", 10.0, time.getCurrentTimeInMillis());
+        time.addValue(100);
+        keyed.addValue("EUR", 5.0, time.getCurrentTimeInMillis());
+        assertEquals(2, keyed.getRolling("EUR").getSize());
+
+        // the first bucket falls out of the window
+        time.addValue(100);
+        N26RollingStatistics.AggregatedStatistics eur = keyed.getRolling("EUR");
+        assertEquals(1, eur.getSize());
+        assertEquals(5.0, eur.getMax(), 0.0001);
+
+        // a recycled slot does not leak old values
+        keyed.addValue("EUR", 1.0, time.getCurrentTimeInMillis());
+        eur = keyed.getRolling("EUR");
+        assertEquals(2, eur.getSize());
+        assertEquals(6.0, eur.getSum(), 0.0001);
+    }
+
+    @Test
+    public void testExpiredTransaction() {
+        MockedTime time = new MockedTime(1000);
+        KeyedRollingStatistics keyed = new KeyedRollingStatistics(time, 200, 10, 1 << 20);
+
+        assertFalse(keyed.addValue("EUR", 10.0, 700L));
+        assertEquals(0, keyed.size());
+    }
+
+    @Test
+    public void testIdleKeysEvicted() {
+        MockedTime time = new MockedTime(1000);
+        KeyedRollingStatistics keyed = new KeyedRollingStatistics(time, 200, 10, 1 << 20);
+
+        keyed.addValue("EUR", 10.0, time.getCurrentTimeInMillis());
+        time.addValue(150);
+        keyed.addValue("USD", 10.0, time.getCurrentTimeInMillis());
+        time.addValue(100);
+
+        assertEquals(1, keyed.evictIdle());
+        assertEquals(1, keyed.size());
+        assertSame(N26RollingStatistics.EMPTY, keyed.getRolling("EUR"));
+        assertEquals(1, keyed.getRolling("USD").getSize());
+    }
+
+    @Test
+    public void testMemoryBudget() {
+        MockedTime time = new MockedTime(1000);
+        KeyedRollingStatistics keyed = new KeyedRollingStatistics(time, 200, 10,
+                2 * KeyedRollingStatistics.bytesPerKey(10));
+        assertEquals(2, keyed.maxKeys);
+
+        assertTrue(keyed.addValue("EUR", 1.0, time.getCurrentTimeInMillis()));
+        assertTrue(keyed.addValue("USD", 1.0, time.getCurrentTimeInMillis()));
+        assertFalse(keyed.addValue("GBP", 1.0, time.getCurrentTimeInMillis()));
+
+        assertEquals(2, keyed.size());
+        assertEquals(1, keyed.getRejectedKeys());
+        assertSame(N26RollingStatistics.EMPTY, keyed.getRolling("GBP"));
+
+        // once the old keys go idle the next sweep makes room again
+        time.addValue(250);
+        assertFalse(keyed.addValue("GBP", 1.0, time.getCurrentTimeInMillis()));
+        assertEquals(2, keyed.evictIdleIfDue());
+        assertEquals(-1, keyed.evictIdleIfDue());
+        assertTrue(keyed.addValue("GBP", 1.0, time.getCurrentTimeInMillis()));
+        assertEquals(1, keyed.size());
+        assertEquals(1, keyed.getRolling("GBP").getSize());
+    }
+}
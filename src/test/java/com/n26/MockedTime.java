@@ -0,0 +1,27 @@
+package com.n26;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock of the tests, only moves when told to.
+ */
+class MockedTime implements N26RollingStatistics.Time {
+
+    private final AtomicLong time;
+
+    MockedTime() {
+        this(0);
+    }
+
+    MockedTime(long start) {
+        time = new AtomicLong(start);
+    }
+
+    public long getCurrentTimeInMillis() {
+        return time.get();
+    }
+
+    public void addValue(long millis) {
+        time.addAndGet(millis);
+    }
+}
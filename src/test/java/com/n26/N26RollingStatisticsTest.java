@@ -19,7 +19,8 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.util.Iterator;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -435,18 +436,435 @@ public class N26RollingStatisticsTest {
         }
     }
 
-    private static class MockedTime implements N26RollingStatistics.Time {
+    @Test
+    public void testTopKeys() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().topKeysCapacity(4));
+
+        // many small transactions of one merchant, a few big ones of another, plenty of noise
+        for (int i = 0; i < 100; i++) {
+            counter.addValue(1.0, 0L, "small");
+            counter.addValue(1.0, 0L, "noise" + i);
+            if (i % 25 == 0) {
+                counter.addValue(1000.0, 0L, "big");
+            }
+            if (i == 50) {
+                time.addValue(counter.bucketSizeInMilliseconds);
+            }
+        }
 
-        private AtomicInteger time = new AtomicInteger(0);
+        N26RollingStatistics.TopKeys top = counter.getTopKeys(2);
+        assertEquals(2, top.getByCount().size());
+        assertEquals("small", top.getByCount().get(0).getKey());
+        assertTrue(top.getByCount().get(0).getEstimate() >= 100);
+        assertEquals("big", top.getBySum().get(0).getKey());
+        assertTrue(top.getBySum().get(0).getEstimate() >= 4000);
+        assertTrue(top.getBySum().get(0).getEstimate() - top.getBySum().get(0).getError() <= 4000);
+
+        // keys without a summary configured are just not tracked
+        N26RollingStatistics plain = new N26RollingStatistics(time, 200, 10);
+        plain.addValue(1.0, 0L, "small");
+        assertEquals(0, plain.getTopKeys(2).getByCount().size());
+    }
+
+    @Test
+    public void testPercentiles() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().percentiles(true));
 
-        public long getCurrentTimeInMillis() {
-            return time.get();
+        for (int i = 1; i <= 100; i++) {
+            counter.addValue((double) i);
+            if (i % 30 == 0) {
+                time.addValue(counter.bucketSizeInMilliseconds);
+            }
         }
+        N26RollingStatistics.AggregatedStatistics rollOut = counter.getRolling();
+        assertEquals(50, rollOut.getP50(), 50 * 0.04);
+        assertEquals(90, rollOut.getP90(), 90 * 0.04);
+        assertEquals(99, rollOut.getP99(), 99 * 0.04);
+        assertTrue(rollOut.getP99() <= rollOut.getMax());
+
+        // negative amounts keep their order
+        counter.reset();
+        counter.addValue(-10.0);
+        counter.addValue(-5.0);
+        counter.addValue(20.0);
+        rollOut = counter.getRolling();
+        assertEquals(-5.0, rollOut.getP50(), 5 * 0.04);
+        assertEquals(20.0, rollOut.getP99(), 20 * 0.04);
+    }
 
-        public void addValue(int millis) {
-            time.addAndGet(millis);
+    @Test
+    public void testVariance() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().variance(true));
+
+        // large offset which a naive sum of squares in double would not survive
+        double offset = 1e9;
+        double[] values = {2, 4, 4, 4, 5, 5, 7, 9};
+        for (int i = 0; i < values.length; i++) {
+            counter.addValue(offset + values[i]);
+            if (i % 3 == 2) {
+                time.addValue(counter.bucketSizeInMilliseconds);
+            }
         }
+        N26RollingStatistics.AggregatedStatistics rollOut = counter.getRolling();
+        assertEquals(4.0, rollOut.getVariance(), 1e-6);
+        assertEquals(2.0, rollOut.getStddev(), 1e-6);
+
+        counter.reset();
+        counter.addValue(3.0);
+        assertEquals(0.0, counter.getRolling().getVariance(), 0.0);
+    }
 
+    @Test
+    public void testConsistentReads() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics plain = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().variance(true).compensatedSum(true));
+        N26RollingStatistics consistent = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().variance(true).compensatedSum(true).consistentReads(true));
+
+        // spread over live and sealed buckets, same results either way
+        double[] values = {1e16, 1.0, -1e16, 2.5, -3.0, 7.0, 0.1, 42.0};
+        for (int i = 0; i < values.length; i++) {
+            plain.addValue(values[i]);
+            consistent.addValue(values[i]);
+            time.addValue(consistent.bucketSizeInMilliseconds);
+        }
+        N26RollingStatistics.AggregatedStatistics expected = plain.getRolling();
+        N26RollingStatistics.AggregatedStatistics actual = consistent.getRolling();
+        assertEquals(expected.getSize(), actual.getSize());
+        assertEquals(expected.getSum(), actual.getSum(), 0.0);
+        assertEquals(expected.getMin(), actual.getMin(), 0.0);
+        assertEquals(expected.getMax(), actual.getMax(), 0.0);
+        assertEquals(expected.getVariance(), actual.getVariance(), 1e-6 * expected.getVariance());
+
+        // variance stays off unless asked for
+        N26RollingStatistics noVariance = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().consistentReads(true));
+        noVariance.addValue(1.0);
+        noVariance.addValue(3.0);
+        assertEquals(2.0, noVariance.getRolling().getAvg(), 0.0);
+        assertEquals(0.0, noVariance.getRolling().getVariance(), 0.0);
     }
 
+    @Test
+    public void testMoneyMode() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().moneyScale(2));
+        assertTrue(counter.isMoneyMode());
+
+        // 0.1 is not representable in binary, a million of them in double does not add up to 100000
+        for (int i = 0; i < 1000000; i++) {
+            counter.addMinorUnits(10, 0L, null);
+        }
+        counter.addMinorUnits(-250, 0L, null);
+        N26RollingStatistics.AggregatedStatistics rollOut = counter.getRolling();
+        assertTrue(rollOut.isExact());
+        assertEquals(1000001, rollOut.getSize());
+        assertEquals(9999750, rollOut.getSumUnits());
+        assertEquals(-250, rollOut.getMinUnits());
+        assertEquals(10, rollOut.getMaxUnits());
+        assertEquals(10, rollOut.getAvgUnits());
+        assertEquals(99997.5, rollOut.getSum(), 0.0);
+
+        // double callers are converted at the door
+        counter.reset();
+        counter.addValue(0.1);
+        counter.addValue(0.2);
+        assertEquals(30, counter.getRolling().getSumUnits());
+    }
+
+    @Test
+    public void testCompensatedSum() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().compensatedSum(true));
+
+        // every 1.0 is lost next to 1e16 in plain double arithmetic, spread over two buckets
+        counter.addValue(1e16);
+        for (int i = 0; i < 1000; i++) {
+            counter.addValue(1.0);
+            if (i == 500) {
+                time.addValue(counter.bucketSizeInMilliseconds);
+            }
+        }
+        counter.addValue(-1e16);
+        assertEquals(1000.0, counter.getRolling().getSum(), 0.0);
+    }
+
+    @Test
+    public void testSealedBuckets() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().variance(true));
+
+        counter.addValue(10.0);
+        counter.addValue(-4.0);
+        N26RollingStatistics.Bucket first = counter.getCurrentBucket();
+        time.addValue(counter.bucketSizeInMilliseconds);
+        counter.addValue(7.0);
+        // right behind the tail, writers may still be on it
+        assertFalse(first.isSealed());
+
+        time.addValue(counter.bucketSizeInMilliseconds);
+        counter.addValue(1.0);
+        assertTrue(first.isSealed());
+        assertFalse(counter.buckets.getLast().isSealed());
+        assertEquals(2, first.totals().count);
+        assertEquals(6.0, first.totals().sum, 0.0);
+        assertEquals(-4.0, first.totals().min, 0.0);
+        assertEquals(10.0, first.totals().max, 0.0);
+        // compacted primitives keep their value
+        assertEquals(6.0, first.getSum().doubleValue(), 0.0);
+
+        N26RollingStatistics.AggregatedStatistics rollOut = counter.getRolling();
+        assertEquals(4, rollOut.getSize());
+        assertEquals(14.0, rollOut.getSum(), 0.0);
+        assertEquals(-4.0, rollOut.getMin(), 0.0);
+        assertEquals(10.0, rollOut.getMax(), 0.0);
+        assertEquals(29.25, rollOut.getVariance(), 1e-9);
+    }
+
+    @Test
+    public void testColumnsFollowRing() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().variance(true));
+
+        // wrap around the columns a few times, every bucket i holds i and -i / 2
+        for (int i = 1; i <= 35; i++) {
+            counter.addValue((double) i);
+            counter.addValue(-i / 2.0);
+            time.addValue(counter.bucketSizeInMilliseconds);
+            counter.getCurrentBucket();
+
+            long size = 0;
+            double sum = 0.0;
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (N26RollingStatistics.Bucket b : counter.buckets) {
+                N26RollingStatistics.BucketTotals t = b.totals();
+                if (t.count > 0) {
+                    size += t.count;
+                    sum += t.sum;
+                    min = Math.min(min, t.min);
+                    max = Math.max(max, t.max);
+                }
+            }
+            N26RollingStatistics.AggregatedStatistics rollOut = counter.getRolling();
+            assertEquals(size, rollOut.getSize());
+            assertEquals(sum, rollOut.getSum(), 1e-9);
+            assertEquals(min, rollOut.getMin(), 0.0);
+            assertEquals(max, rollOut.getMax(), 0.0);
+        }
+        // the last nine buckets with values, 27..35
+        assertEquals(18, counter.getRolling().getSize());
+        assertEquals(-17.5, counter.getRolling().getMin(), 0.0);
+
+        counter.reset();
+        counter.addValue(1.0);
+        assertEquals(1, counter.getRolling().getSize());
+        assertEquals(0.0, counter.getRolling().getVariance(), 0.0);
+    }
+
+    @Test
+    public void testTumblingWindows() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 6000, 10,
+                new N26RollingStatistics.Options().tumblingWindows(2));
+        TumblingWindows windows = counter.getTumblingWindows();
+
+        // 100 buckets per minute, one value per bucket for two and a half minutes
+        for (int i = 0; i < 250; i++) {
+            counter.addValue(i < 100 ? 1.0 : 2.0);
+            time.addValue(counter.bucketSizeInMilliseconds);
+        }
+        counter.getRolling();
+        List<TumblingWindows.Window> minutes = windows.getClosed(TimeUnit.MINUTES);
+        assertEquals(2, minutes.size());
+        assertEquals(60000, minutes.get(0).getStart());
+        assertEquals(120000, minutes.get(0).getEnd());
+        assertEquals(100, minutes.get(0).getStatistics().getSize());
+        assertEquals(200.0, minutes.get(0).getStatistics().getSum(), 0.0);
+        assertEquals(0, minutes.get(1).getStart());
+        assertEquals(100.0, minutes.get(1).getStatistics().getSum(), 0.0);
+        assertTrue(windows.getClosed(TimeUnit.HOURS).isEmpty());
+
+        // a gap longer than the window resets the ring, the values of the third minute survive it
+        time.addValue(10 * 60000);
+        counter.addValue(5.0);
+        for (int i = 0; i < 3; i++) {
+            time.addValue(counter.bucketSizeInMilliseconds);
+            counter.getRolling();
+        }
+        minutes = windows.getClosed(TimeUnit.MINUTES);
+        assertEquals(2, minutes.size());
+        assertEquals(120000, minutes.get(0).getStart());
+        assertEquals(50, minutes.get(0).getStatistics().getSize());
+        assertEquals(100.0, minutes.get(0).getStatistics().getSum(), 0.0);
+    }
+
+    @Test
+    public void testTumblingWindowsClose() {
+        TumblingWindows windows = new TumblingWindows(5);
+        N26RollingStatistics.AggregatedStatistics one = new N26RollingStatistics.AggregatedStatistics(1, 1.0, 1.0, 1.0);
+
+        // the bucket which reaches the end of the minute closes it
+        windows.onSealed(58000, 59000, one);
+        assertTrue(windows.getClosed(TimeUnit.MINUTES).isEmpty());
+        windows.onSealed(59000, 60000, one);
+        List<TumblingWindows.Window> minutes = windows.getClosed(TimeUnit.MINUTES);
+        assertEquals(1, minutes.size());
+        assertEquals(2, minutes.get(0).getStatistics().getSize());
+
+        // windows which ended while nothing was sealed
+        windows.onSealed(120000, 121000, one);
+        windows.closeEnded(10 * 60000);
+        minutes = windows.getClosed(TimeUnit.MINUTES);
+        assertEquals(2, minutes.size());
+        assertEquals(120000, minutes.get(0).getStart());
+        assertEquals(1, minutes.get(0).getStatistics().getSize());
+        assertTrue(windows.getClosed(TimeUnit.HOURS).isEmpty());
+    }
+
+    @Test
+    public void testTumblingWindowsLateBucket() {
+        TumblingWindows windows = new TumblingWindows(5);
+        N26RollingStatistics.AggregatedStatistics one = new N26RollingStatistics.AggregatedStatistics(1, 1.0, 1.0, 1.0);
+
+        // a late bucket of the open window is folded into it
+        windows.onSealed(1000, 2000, one);
+        windows.onSealed(0, 1000, one);
+        assertEquals(0, windows.getDropped(TimeUnit.MINUTES));
+
+        // a bucket of the next window closes the first one
+        windows.onSealed(60000, 61000, one);
+        List<TumblingWindows.Window> minutes = windows.getClosed(TimeUnit.MINUTES);
+        assertEquals(1, minutes.size());
+        assertEquals(2, minutes.get(0).getStatistics().getSize());
+
+        // a late bucket of the closed window is dropped rather than reopening it, the open window is left alone
+        windows.onSealed(59000, 60000, one);
+        assertEquals(1, windows.getDropped(TimeUnit.MINUTES));
+        assertEquals(0, windows.getDropped(TimeUnit.HOURS));
+        windows.closeEnded(120000);
+        minutes = windows.getClosed(TimeUnit.MINUTES);
+        assertEquals(2, minutes.size());
+        assertEquals(60000, minutes.get(0).getStart());
+        assertEquals(1, minutes.get(0).getStatistics().getSize());
+        assertEquals(0, minutes.get(1).getStart());
+        assertEquals(2, minutes.get(1).getStatistics().getSize());
+
+        // also when no window is open
+        windows.onSealed(61000, 62000, one);
+        assertEquals(2, windows.getDropped(TimeUnit.MINUTES));
+        assertEquals(2, windows.getClosed(TimeUnit.MINUTES).size());
+    }
+
+    @Test
+    public void testDeduplication() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().dedup(100, 0.001));
+
+        assertTrue(counter.firstSeen("a"));
+        assertFalse(counter.firstSeen("a"));
+
+        // still a duplicate from an older bucket of the window
+        time.addValue(counter.bucketSizeInMilliseconds * 5);
+        assertFalse(counter.firstSeen("a"));
+        assertTrue(counter.firstSeen("b"));
+
+        // forgotten once its bucket rotates out
+        time.addValue(counter.bucketSizeInMilliseconds * 5);
+        assertTrue(counter.firstSeen("a"));
+        assertFalse(counter.firstSeen("b"));
+
+        // off by default
+        N26RollingStatistics plain = new N26RollingStatistics(time, 200, 10);
+        assertTrue(plain.firstSeen("a"));
+        assertTrue(plain.firstSeen("a"));
+        assertFalse(plain.seen("a"));
+    }
+
+    @Test
+    public void testDeduplicationMarksOnlyWhenAsked() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().dedup(100, 0.001));
+
+        // a first delivery which was not accounted, e.g. expired, leaves no trace
+        assertFalse(counter.seen("a"));
+        assertFalse(counter.seen("a"));
+
+        counter.markSeen("a");
+        assertTrue(counter.seen("a"));
+        time.addValue(counter.bucketSizeInMilliseconds * 5);
+        assertTrue(counter.seen("a"));
+    }
+
+    @Test
+    public void testDeduplicationFalsePositives() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 200, 10,
+                new N26RollingStatistics.Options().dedup(1000, 0.01));
+
+        for (int bucket = 0; bucket < 10; bucket++) {
+            for (int i = 0; i < 1000; i++) {
+                counter.firstSeen(bucket + "-" + i);
+            }
+            time.addValue(counter.bucketSizeInMilliseconds);
+        }
+        // the filters of the window are full, new ids hit a false positive about 1% of the time
+        int duplicates = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (!counter.firstSeen("new-" + i)) {
+                duplicates++;
+            }
+        }
+        assertTrue("false positives " + duplicates, duplicates < 30);
+    }
+
+    @Test
+    public void testSeries() {
+        MockedTime time = new MockedTime();
+        N26RollingStatistics counter = new N26RollingStatistics(time, 200, 10);
+
+        for (int i = 0; i < 5; i++) {
+            counter.addValue(1.0 + i);
+            counter.addValue(10.0 + i);
+            time.addValue(counter.bucketSizeInMilliseconds);
+        }
+        List<N26RollingStatistics.SeriesPoint> series = counter.getSeries();
+        assertEquals(6, series.size());
+        for (int i = 0; i < 5; i++) {
+            N26RollingStatistics.SeriesPoint point = series.get(i);
+            assertEquals(i * counter.bucketSizeInMilliseconds, point.getWindowStart());
+            assertEquals(2, point.getStatistics().getSize());
+            assertEquals(11.0 + 2 * i, point.getStatistics().getSum(), 0.0);
+            assertEquals(1.0 + i, point.getStatistics().getMin(), 0.0);
+            assertEquals(10.0 + i, point.getStatistics().getMax(), 0.0);
+        }
+        assertEquals(0, series.get(5).getStatistics().getSize());
+
+        // sealed points are built once, live ones on every call
+        List<N26RollingStatistics.SeriesPoint> again = counter.getSeries();
+        assertTrue(series.get(0).isSealed());
+        assertSame(series.get(0), again.get(0));
+        assertFalse(series.get(5).isSealed());
+        assertNotSame(series.get(5), again.get(5));
+
+        // the window slides
+        time.addValue(counter.bucketSizeInMilliseconds * 8);
+        series = counter.getSeries();
+        assertEquals(10, series.size());
+        assertEquals(4 * counter.bucketSizeInMilliseconds, series.get(0).getWindowStart());
+        assertEquals(2, series.get(0).getStatistics().getSize());
+    }
 }
@@ -0,0 +1,77 @@
+package com.n26;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OutlierDetectorTest {
+
+    @Test
+    public void testScoreAgainstBaseline() {
+        N26RollingStatistics statistics = new N26RollingStatistics(new MockedTime(1000), 200, 10,
+                new N26RollingStatistics.Options().variance(true).percentiles(true));
+        for (int i = 0; i < 50; i++) {
+            statistics.addValue(9.0);
+            statistics.addValue(11.0);
+        }
+        N26RollingStatistics.AggregatedStatistics rollOut = statistics.getRolling();
+        OutlierDetector detector = new OutlierDetector(3.0, 30, true);
+        detector.update(rollOut);
+
+        OutlierDetector.Score typical = detector.score(11.0);
+        assertEquals(1.0 / rollOut.getStddev(), typical.getZScore(), 1e-9);
+        assertFalse(typical.isFlagged());
+
+        OutlierDetector.Score high = detector.score(20.0);
+        assertEquals(10.0 / rollOut.getStddev(), high.getZScore(), 1e-9);
+        assertTrue(high.isFlagged());
+        assertTrue(high.isAboveP99());
+
+        // both directions
+        assertTrue(detector.score(0.0).isFlagged());
+
+        assertEquals(3, detector.getScored());
+        assertEquals(2, detector.getFlagged());
+    }
+
+    @Test
+    public void testMinSamples() {
+        N26RollingStatistics statistics = new N26RollingStatistics(new MockedTime(1000), 200, 10,
+                new N26RollingStatistics.Options().variance(true));
+        for (int i = 0; i < 10; i++) {
+            statistics.addValue(9.0);
+            statistics.addValue(11.0);
+        }
+        OutlierDetector detector = new OutlierDetector(3.0, 30, false);
+        detector.update(statistics.getRolling());
+
+        OutlierDetector.Score score = detector.score(1000.0);
+        assertEquals(0.0, score.getZScore(), 0.0);
+        assertFalse(score.isFlagged());
+        assertFalse(score.isAboveP99());
+
+        for (int i = 0; i < 10; i++) {
+            statistics.addValue(9.0);
+            statistics.addValue(11.0);
+        }
+        detector.update(statistics.getRolling());
+        assertTrue(detector.score(1000.0).isFlagged());
+        // no percentiles, no p99
+        assertFalse(detector.score(1000.0).isAboveP99());
+    }
+
+    @Test
+    public void testNoSpread() {
+        OutlierDetector detector = new OutlierDetector(3.0, 1, true);
+        // without variance the stddev is 0, nothing can be flagged
+        detector.update(new N26RollingStatistics.AggregatedStatistics(100, 1000.0, 10.0, 10.0));
+        assertFalse(detector.score(1e9).isFlagged());
+        assertEquals(1, detector.getScored());
+        assertEquals(0, detector.getFlagged());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThresholdMustBePositive() {
+        new OutlierDetector(0.0, 30, false);
+    }
+}
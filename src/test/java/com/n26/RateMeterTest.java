@@ -0,0 +1,66 @@
+package com.n26;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RateMeterTest {
+
+    @Test
+    public void testSteadyRate() {
+        RateMeter meter = new RateMeter();
+        assertEquals(0L, meter.getRates().getAsOf());
+
+        // 50 transactions of 2.0 per 100ms bucket
+        for (long t = 0; t < 10000; t += 100) {
+            meter.onSealed(t, t + 100, new N26RollingStatistics.AggregatedStatistics(50, 100.0, 2.0, 2.0));
+        }
+        RateMeter.Rates rates = meter.getRates();
+        assertEquals(10000L, rates.getAsOf());
+        assertEquals(500.0, rates.getTransactions().getCurrent(), 1e-9);
+        assertEquals(500.0, rates.getTransactions().getOneMinute(), 1e-9);
+        assertEquals(500.0, rates.getTransactions().getFifteenMinutes(), 1e-9);
+        assertEquals(1000.0, rates.getAmount().getFiveMinutes(), 1e-9);
+    }
+
+    @Test
+    public void testDecay() {
+        RateMeter meter = new RateMeter();
+        meter.onSealed(0, 1000, new N26RollingStatistics.AggregatedStatistics(100, 100.0, 1.0, 1.0));
+        // a minute of empty buckets takes the one minute average down to 1/e
+        for (long t = 1000; t < 61000; t += 1000) {
+            meter.onSealed(t, t + 1000, N26RollingStatistics.EMPTY);
+        }
+        RateMeter.Rate transactions = meter.getRates().getTransactions();
+        assertEquals(0.0, transactions.getCurrent(), 0.0);
+        assertEquals(100.0 / Math.E, transactions.getOneMinute(), 1e-9);
+        assertEquals(100.0 * Math.exp(-60.0 / 300), transactions.getFiveMinutes(), 1e-9);
+
+        // a gap decays the same as empty buckets
+        RateMeter gapped = new RateMeter();
+        gapped.onSealed(0, 1000, new N26RollingStatistics.AggregatedStatistics(100, 100.0, 1.0, 1.0));
+        gapped.onSealed(60000, 61000, N26RollingStatistics.EMPTY);
+        assertEquals(transactions.getOneMinute(), gapped.getRates().getTransactions().getOneMinute(), 1e-9);
+    }
+
+    @Test
+    public void testFedByRotation() {
+        MockedTime time = new MockedTime(0);
+        N26RollingStatistics statistics = new N26RollingStatistics(time, 1000, 10,
+                new N26RollingStatistics.Options().rates(true));
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 10; j++) {
+                statistics.addValue(3.0);
+            }
+            time.addValue(100);
+        }
+        statistics.getRolling();
+        RateMeter.Rates rates = statistics.getRateMeter().getRates();
+        // the live buckets are not sealed yet
+        assertEquals(1900L, rates.getAsOf());
+        assertEquals(100.0, rates.getTransactions().getCurrent(), 1e-9);
+        assertEquals(300.0, rates.getAmount().getOneMinute(), 1e-9);
+
+        assertNull(new N26RollingStatistics(time, 1000, 10).getRateMeter());
+    }
+}
@@ -0,0 +1,89 @@
+package com.n26;
+
+import com.n26.lane.RequestLane;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RequestLaneTest {
+
+    @Test
+    public void testRunsTasks() throws InterruptedException {
+        RequestLane lane = new RequestLane("test", 2, 100);
+        AtomicInteger ran = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(50);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(lane.execute(() -> {
+                ran.incrementAndGet();
+                done.countDown();
+            }));
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        lane.close();
+        assertEquals(50, ran.get());
+        assertEquals(50, lane.getCompleted());
+        assertEquals(0, lane.getRejected());
+        assertEquals(0, lane.getQueued());
+    }
+
+    @Test
+    public void testRejectsWhenFull() throws InterruptedException {
+        RequestLane lane = new RequestLane("test", 1, 2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(lane.execute(() -> {
+            started.countDown();
+            await(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(lane.execute(() -> { }));
+        assertTrue(lane.execute(() -> { }));
+
+        // the only thread is busy and the queue is full, no waiting and no extra thread
+        assertFalse(lane.execute(() -> fail("Must not run")));
+        assertEquals(1, lane.getRejected());
+        assertEquals(2, lane.getQueued());
+        assertEquals(1, lane.getActive());
+
+        Thread.sleep(20);
+        release.countDown();
+        lane.close();
+        assertEquals(3, lane.getCompleted());
+        // the queued tasks waited for the blocked one
+        assertTrue(lane.getQueueWaitInMicroseconds() >= 2 * 20_000);
+    }
+
+    @Test
+    public void testSurvivesFailingTask() throws InterruptedException {
+        RequestLane lane = new RequestLane("test", 1, 10);
+        CountDownLatch done = new CountDownLatch(1);
+        assertTrue(lane.execute(() -> {
+            throw new IllegalStateException("Expected");
+        }));
+        assertTrue(lane.execute(done::countDown));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, lane.getThreads());
+        lane.close();
+        assertEquals(2, lane.getCompleted());
+    }
+
+    @Test
+    public void testClosedLaneRejects() {
+        RequestLane lane = new RequestLane("test", 1, 10);
+        lane.close();
+        assertFalse(lane.execute(() -> fail("Must not run")));
+        assertEquals(1, lane.getRejected());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
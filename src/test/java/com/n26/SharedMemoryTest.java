@@ -0,0 +1,80 @@
+package com.n26;
+
+import com.n26.shm.SharedMemoryPublisher;
+import com.n26.shm.SharedMemoryReader;
+import com.n26.shm.SharedSnapshot;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SharedMemoryTest {
+
+    private File path;
+
+    @Before
+    public void setUp() throws IOException {
+        path = File.createTempFile("n26-statistics", ".shm");
+        path.delete();
+    }
+
+    @After
+    public void tearDown() {
+        path.delete();
+    }
+
+    @Test
+    public void testPublishAndRead() throws IOException {
+        try (SharedMemoryPublisher publisher = new SharedMemoryPublisher(path);
+             SharedMemoryReader reader = new SharedMemoryReader(path)) {
+            assertEquals(0, reader.read().getVersion());
+
+            publisher.publish(new N26RollingStatistics.AggregatedStatistics(4, 10.0, -1.0, 6.0));
+            SharedSnapshot snapshot = reader.read();
+            assertEquals(1, snapshot.getVersion());
+            assertEquals(4, snapshot.getCount());
+            assertEquals(10.0, snapshot.getSum(), 0.0);
+            assertEquals(-1.0, snapshot.getMin(), 0.0);
+            assertEquals(6.0, snapshot.getMax(), 0.0);
+            assertEquals(2.5, snapshot.getAvg(), 0.0);
+            assertTrue(snapshot.getPublishedAt() > 0);
+
+            publisher.publish(N26RollingStatistics.EMPTY);
+            assertEquals(2, reader.read().getVersion());
+            assertEquals(0, reader.read().getCount());
+        }
+    }
+
+    @Test
+    public void testRestartedPublisherKeepsVersion() throws IOException {
+        try (SharedMemoryPublisher publisher = new SharedMemoryPublisher(path)) {
+            publisher.publish(N26RollingStatistics.EMPTY);
+            publisher.publish(N26RollingStatistics.EMPTY);
+        }
+        try (SharedMemoryPublisher publisher = new SharedMemoryPublisher(path);
+             SharedMemoryReader reader = new SharedMemoryReader(path)) {
+            publisher.publish(N26RollingStatistics.EMPTY);
+            assertEquals(3, reader.read().getVersion());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsForeignFile() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(path)) {
+            out.write(new byte[256]);
+        }
+        new SharedMemoryReader(path);
+    }
+
+    @Test
+    public void testDisabled() {
+        SharedMemoryPublisher publisher = SharedMemoryPublisher.disabled();
+        assertFalse(publisher.isEnabled());
+        publisher.publish(N26RollingStatistics.EMPTY);
+    }
+}
@@ -0,0 +1,168 @@
+package com.n26;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Contract every {@link StatisticsEngineProvider} on the class path has to honour, run against each of them. Values
+ * are added without the clock moving, where even the decaying engine reports exact totals.
+ */
+public class StatisticsEngineConformanceTest {
+
+    @Test
+    public void testProvidersAreRegistered() {
+        List<String> names = StatisticsEngines.getNames();
+        assertTrue(names.contains("bucketed"));
+        assertTrue(names.contains("thread-local"));
+        assertTrue(names.contains("decaying"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEngine() {
+        StatisticsEngines.create("unknown", new StatisticsEngine.Settings());
+    }
+
+    @Test
+    public void testEmpty() {
+        for (String name : StatisticsEngines.getNames()) {
+            StatisticsEngine engine = create(name, new MockedTime(1000));
+            assertEquals(name, 0, engine.getRolling().getSize());
+        }
+    }
+
+    @Test
+    public void testAddValue() {
+        for (String name : StatisticsEngines.getNames()) {
+            StatisticsEngine engine = create(name, new MockedTime(1000));
+
+            assertTrue(name, engine.addValue(10.0, 1000L));
+            assertTrue(name, engine.addValue(2.0, 1000L, "merchant"));
+            engine.addValue(6.0);
+
+            N26RollingStatistics.AggregatedStatistics rollOut = engine.getRolling();
+            assertEquals(name, 3, rollOut.getSize());
+            assertEquals(name, 18.0, rollOut.getSum(), 0.0);
+            assertEquals(name, 2.0, rollOut.getMin(), 0.0);
+            assertEquals(name, 10.0, rollOut.getMax(), 0.0);
+        }
+    }
+
+    @Test
+    public void testRejectsOldValues() {
+        for (String name : StatisticsEngines.getNames()) {
+            StatisticsEngine engine = create(name, new MockedTime(10000));
+
+            assertFalse(name, engine.addValue(10.0, 0L));
+            assertEquals(name, 0, engine.getRolling().getSize());
+        }
+    }
+
+    @Test
+    public void testAddValues() {
+        for (String name : StatisticsEngines.getNames()) {
+            StatisticsEngine engine = create(name, new MockedTime(10000));
+
+            int added = engine.addValues(new double[]{1.0, 2.0, 3.0, 4.0}, new long[]{10000L, 10000L, 0L, 10000L});
+
+            assertEquals(name, 3, added);
+            N26RollingStatistics.AggregatedStatistics rollOut = engine.getRolling();
+            assertEquals(name, 3, rollOut.getSize());
+            assertEquals(name, 7.0, rollOut.getSum(), 0.0);
+            assertEquals(name, 1.0, rollOut.getMin(), 0.0);
+            assertEquals(name, 4.0, rollOut.getMax(), 0.0);
+        }
+    }
+
+    @Test
+    public void testAddValuesChecksLengths() {
+        for (String name : StatisticsEngines.getNames()) {
+            StatisticsEngine engine = create(name, new MockedTime(1000));
+            try {
+                engine.addValues(new double[]{1.0, 2.0}, new long[]{1000L});
+                fail(name);
+            } catch (IllegalArgumentException expected) {
+                assertEquals(name, 0, engine.getRolling().getSize());
+            }
+        }
+    }
+
+    @Test
+    public void testForgetsOldValues() {
+        for (String name : StatisticsEngines.getNames()) {
+            MockedTime time = new MockedTime(1000);
+            StatisticsEngine engine = create(name, time);
+
+            engine.addValue(10.0);
+            time.addValue(2000);
+
+            assertEquals(name, 0, engine.getRolling().getSize());
+        }
+    }
+
+    @Test
+    public void testReset() {
+        for (String name : StatisticsEngines.getNames()) {
+            StatisticsEngine engine = create(name, new MockedTime(1000));
+
+            engine.addValue(10.0);
+            engine.reset();
+            assertEquals(name, 0, engine.getRolling().getSize());
+
+            engine.addValue(5.0);
+            N26RollingStatistics.AggregatedStatistics rollOut = engine.getRolling();
+            assertEquals(name, 1, rollOut.getSize());
+            assertEquals(name, 5.0, rollOut.getSum(), 0.0);
+        }
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        for (String name : StatisticsEngines.getNames()) {
+            StatisticsEngine engine = create(name, new MockedTime(1000));
+
+            Thread[] writers = new Thread[4];
+            for (int i = 0; i < writers.length; i++) {
+                writers[i] = new Thread(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        if (j % 2 == 0) {
+                            engine.addValue(1.0);
+                        } else {
+                            engine.addValues(new double[]{1.0}, new long[]{1000L});
+                        }
+                    }
+                });
+                writers[i].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+
+            N26RollingStatistics.AggregatedStatistics rollOut = engine.getRolling();
+            assertEquals(name, 4000, rollOut.getSize());
+            assertEquals(name, 4000.0, rollOut.getSum(), 0.0);
+        }
+    }
+
+    @Test
+    public void testUnwrap() {
+        for (String name : StatisticsEngines.getNames()) {
+            StatisticsEngine engine = create(name, new MockedTime(1000));
+
+            assertSame(name, engine, engine.unwrap(StatisticsEngine.class));
+            assertNull(name, engine.unwrap(String.class));
+        }
+        StatisticsEngine bucketed = create("bucketed", new MockedTime(1000));
+        assertNotNull(bucketed.unwrap(N26RollingStatistics.class));
+    }
+
+    private static StatisticsEngine create(String name, MockedTime time) {
+        // a 200ms window, and a mean lifetime of the same length for the decaying engine
+        return StatisticsEngines.create(name, new StatisticsEngine.Settings()
+                .time(time)
+                .window(200, 10)
+                .meanLifetime(200));
+    }
+}
@@ -0,0 +1,88 @@
+package com.n26;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ThreadLocalRollingStatisticsTest {
+
+    @Test
+    public void testMergesThreads() throws Exception {
+        MockedTime time = new MockedTime(1000);
+        ThreadLocalRollingStatistics statistics = new ThreadLocalRollingStatistics(time, 200, 10);
+
+        statistics.addValue(10.0, 1000L);
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            final double value = i;
+            writers[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    statistics.addValue(value);
+                }
+            });
+            writers[i].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        N26RollingStatistics.AggregatedStatistics rollOut = statistics.getRolling();
+        assertEquals(4001, rollOut.getSize());
+        assertEquals(6010.0, rollOut.getSum(), 0.0);
+        assertEquals(0.0, rollOut.getMin(), 0.0);
+        assertEquals(10.0, rollOut.getMax(), 0.0);
+        assertEquals(5, statistics.getRingCount());
+    }
+
+    @Test
+    public void testRollsOverWindow() {
+        MockedTime time = new MockedTime(1000);
+        ThreadLocalRollingStatistics statistics = new ThreadLocalRollingStatistics(time, 200, 10);
+
+        assertFalse(statistics.addValue(10.0, 800L));
+        statistics.addValue(10.0);
+        time.addValue(100);
+        statistics.addValue(5.0);
+        assertEquals(2, statistics.getRolling().getSize());
+
+        time.addValue(100);
+        N26RollingStatistics.AggregatedStatistics rollOut = statistics.getRolling();
+        assertEquals(1, rollOut.getSize());
+        assertEquals(5.0, rollOut.getMax(), 0.0);
+
+        // a recycled slot does not leak old values
+        statistics.addValue(1.0);
+        assertEquals(6.0, statistics.getRolling().getSum(), 0.0);
+    }
+
+    @Test
+    public void testDeadThreadsDropped() throws Exception {
+        MockedTime time = new MockedTime(1000);
+        ThreadLocalRollingStatistics statistics = new ThreadLocalRollingStatistics(time, 200, 10);
+
+        Thread writer = new Thread(() -> statistics.addValue(3.0));
+        writer.start();
+        writer.join();
+
+        // values of a dead thread still count within the window
+        assertEquals(1, statistics.getRolling().getSize());
+        assertEquals(1, statistics.getRingCount());
+
+        time.addValue(200);
+        assertSame(N26RollingStatistics.EMPTY, statistics.getRolling());
+        assertEquals(0, statistics.getRingCount());
+    }
+
+    @Test
+    public void testReset() {
+        MockedTime time = new MockedTime(1000);
+        ThreadLocalRollingStatistics statistics = new ThreadLocalRollingStatistics(time, 200, 10);
+
+        statistics.addValue(3.0);
+        statistics.reset();
+        assertSame(N26RollingStatistics.EMPTY, statistics.getRolling());
+
+        statistics.addValue(4.0);
+        assertEquals(4.0, statistics.getRolling().getSum(), 0.0);
+    }
+}